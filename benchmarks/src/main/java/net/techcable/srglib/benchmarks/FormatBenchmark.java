@@ -0,0 +1,60 @@
+package net.techcable.srglib.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parsing and writing the srg and compact srg formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+    private static final long SEED = 42;
+    @Param({ "1000", "10000" })
+    public int classCount;
+    @Param({ "SRG", "CSRG" })
+    public String format;
+    private MappingsFormat mappingsFormat;
+    private Mappings mappings;
+    private List<String> lines;
+
+    @Setup
+    public void setup() {
+        mappingsFormat = format.equals("SRG") ? MappingsFormat.SEARGE_FORMAT : MappingsFormat.COMPACT_SEARGE_FORMAT;
+        mappings = MappingsGenerator.create(SEED).withClassCount(classCount).withMemberCount(classCount * 20).generate();
+        lines = mappingsFormat.toLines(mappings);
+    }
+
+    @Benchmark
+    public Mappings parse() {
+        return mappingsFormat.parseLines(lines);
+    }
+
+    @Benchmark
+    public StringBuilder write() throws IOException {
+        StringBuilder output = new StringBuilder();
+        mappingsFormat.write(mappings, output);
+        return output;
+    }
+}
@@ -0,0 +1,86 @@
+package net.techcable.srglib.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks looking up single members and parsing descriptors.
+ * <p>
+ * The members are looked up in a shuffled order, so the lookups don't all hit the same cache lines.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    private static final long SEED = 42;
+    private static final int KEY_COUNT = 4096;
+    private static final int KEY_MASK = KEY_COUNT - 1;
+    @Param({ "1000", "10000" })
+    public int classCount;
+    private ImmutableMappings mappings;
+    private MethodData[] methods;
+    private FieldData[] fields;
+    private String[] descriptors;
+    private int index;
+
+    @Setup
+    public void setup() {
+        mappings = MappingsGenerator.create(SEED).withClassCount(classCount).withMemberCount(classCount * 20).generate();
+        Random random = new Random(classCount);
+        methods = sample(new ArrayList<>(mappings.methods()), random).toArray(new MethodData[KEY_COUNT]);
+        fields = sample(new ArrayList<>(mappings.fields()), random).toArray(new FieldData[KEY_COUNT]);
+        descriptors = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            descriptors[i] = methods[i].getSignature().getDescriptor();
+        }
+    }
+
+    private static <T> List<T> sample(List<T> values, Random random) {
+        Collections.shuffle(values, random);
+        List<T> result = new ArrayList<>(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            result.add(values.get(i % values.size()));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public MethodData getNewMethod() {
+        return mappings.getNewMethod(methods[index++ & KEY_MASK]);
+    }
+
+    @Benchmark
+    public FieldData getNewField() {
+        return mappings.getNewField(fields[index++ & KEY_MASK]);
+    }
+
+    @Benchmark
+    public MethodSignature fromDescriptor() {
+        return MethodSignature.fromDescriptor(descriptors[index++ & KEY_MASK]);
+    }
+}
@@ -0,0 +1,97 @@
+package net.techcable.srglib.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations which build whole new mappings, like chaining and inverting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingsBenchmark {
+    private static final long SEED = 42;
+    @Param({ "1000", "10000" })
+    public int classCount;
+    private ImmutableMappings mappings;
+    private Mappings renaming;
+    private Mappings next;
+    private ImmutableBiMap<JavaType, JavaType> classes;
+    private ImmutableBiMap<MethodData, MethodData> methods;
+    private ImmutableBiMap<FieldData, FieldData> fields;
+
+    @Setup
+    public void setup() {
+        ImmutableList<ImmutableMappings> versions = MappingsGenerator.create(SEED)
+                .withClassCount(classCount)
+                .withMemberCount(classCount * 20)
+                .generateChain(2);
+        mappings = versions.get(0);
+        next = versions.get(1);
+        renaming = Mappings.createRenamingMappings(
+                type -> JavaType.fromInternalName(type.getInternalName().replace("net/techcable/generated/", "net/techcable/renamed/")),
+                method -> method.getName() + "Renamed",
+                field -> field.getName() + "Renamed"
+        );
+        ImmutableBiMap.Builder<JavaType, JavaType> classes = ImmutableBiMap.builder();
+        ImmutableBiMap.Builder<MethodData, MethodData> methods = ImmutableBiMap.builder();
+        ImmutableBiMap.Builder<FieldData, FieldData> fields = ImmutableBiMap.builder();
+        mappings.forEachClass(classes::put);
+        mappings.forEachMethod(methods::put);
+        mappings.forEachField(fields::put);
+        this.classes = classes.build();
+        this.methods = methods.build();
+        this.fields = fields.build();
+    }
+
+    @Benchmark
+    public Mappings chain() {
+        return Mappings.chain(mappings, next);
+    }
+
+    /**
+     * Invert newly created mappings.
+     * <p>
+     * Since inverted mappings are cached, new mappings need to be created each time,
+     * so this includes the cost of {@link #create()}.
+     * </p>
+     */
+    @Benchmark
+    public ImmutableMappings inverted() {
+        return ImmutableMappings.create(classes, methods, fields).inverted();
+    }
+
+    @Benchmark
+    public ImmutableMappings create() {
+        return ImmutableMappings.create(classes, methods, fields);
+    }
+
+    @Benchmark
+    public Mappings transform() {
+        return renaming.transform(mappings);
+    }
+}
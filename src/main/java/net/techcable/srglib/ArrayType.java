@@ -51,7 +51,9 @@ import static java.util.Objects.*;
             elementType = elementType.getElementType();
             dimensions += 1;
         }
-        return JavaType.createArray(dimensions, elementType.mapClass(func));
+        JavaType newElementType = elementType.mapClass(func);
+        if (newElementType.equals(elementType)) return this;
+        return JavaType.createArray(dimensions, newElementType);
     }
 
     private int hashCode = 0;
@@ -12,10 +12,17 @@ public final class FieldData {
     private final JavaType declaringType;
     private final String name;
 
+    /**
+     * Create field data with the specified name, which must already be {@link #checkName(String) checked}.
+     */
     private FieldData(JavaType declaringType, String name) {
         this.declaringType = requireNonNull(declaringType, "Null declaring type");
-        this.name = requireNonNull(name, "Null name");
-        checkArgument(SrgLib.isValidIdentifier(name), "Invalid name: %s", name);
+        this.name = name;
+    }
+
+    private static String checkName(String name) {
+        checkArgument(SrgLib.isValidIdentifier(requireNonNull(name, "Null name")), "Invalid name: %s", name);
+        return MemberNames.intern(name);
     }
 
     /**
@@ -49,7 +56,8 @@ public final class FieldData {
     }
 
     public FieldData withName(String name) {
-        return new FieldData(declaringType, name);
+        if (name.equals(this.name)) return this;
+        return new FieldData(declaringType, checkName(name));
     }
 
     public boolean hasSameTypes(FieldData other) {
@@ -58,16 +66,17 @@ public final class FieldData {
     }
 
     public FieldData withDeclaringType(JavaType declaringType) {
+        if (declaringType.equals(this.declaringType)) return this;
         return new FieldData(declaringType, name);
     }
 
     public FieldData mapTypes(UnaryOperator<JavaType> transformer) {
-        return new FieldData(transformer.apply(declaringType), name);
+        return withDeclaringType(transformer.apply(declaringType));
     }
 
 
     public static FieldData create(JavaType declaringType, String name) {
-        return new FieldData(declaringType, name);
+        return new FieldData(declaringType, checkName(name));
     }
 
 
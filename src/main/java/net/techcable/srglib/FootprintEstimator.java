@@ -0,0 +1,179 @@
+package net.techcable.srglib;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+
+/**
+ * Estimates the bytes retained by mappings, by walking all their entries.
+ * <p>
+ * Object sizes are derived from the fields of each class, assuming a 64-bit JVM with compressed references.
+ * The bimaps aren't walked, since their layout is private to guava,
+ * so their overhead is estimated from the layout of guava's immutable bimaps.
+ * </p>
+ */
+/* package */ final class FootprintEstimator {
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+    /**
+     * Strings are stored as one byte per char when possible since java 9, instead of always using two.
+     */
+    private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version").startsWith("1.");
+    private static final int BIMAP_ENTRY = align(OBJECT_HEADER + 2 * REFERENCE);
+    private static final float BIMAP_LOAD_FACTOR = 1.2f;
+    private static final ClassValue<Integer> SHALLOW_SIZES = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            long size = OBJECT_HEADER;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += fieldSize(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long classBytes, methodBytes, fieldBytes, signatureBytes, stringBytes;
+
+    private FootprintEstimator() {
+    }
+
+    /* package */ static MappingsFootprint estimate(Mappings mappings) {
+        ImmutableMappings immutable = mappings.snapshot();
+        FootprintEstimator estimator = new FootprintEstimator();
+        immutable.forEachClass((original, renamed) -> {
+            estimator.visitType(original);
+            estimator.visitType(renamed);
+        });
+        immutable.forEachMethod((original, renamed) -> {
+            estimator.visitMethod(original);
+            estimator.visitMethod(renamed);
+        });
+        immutable.forEachField((original, renamed) -> {
+            estimator.visitField(original);
+            estimator.visitField(renamed);
+        });
+        long biMapBytes = estimateBiMap(immutable.classes().size())
+                + estimateBiMap(immutable.methods().size())
+                + estimateBiMap(immutable.fields().size());
+        return new MappingsFootprint(
+                estimator.classBytes,
+                estimator.methodBytes,
+                estimator.fieldBytes,
+                estimator.signatureBytes,
+                estimator.stringBytes,
+                biMapBytes
+        );
+    }
+
+    private void visitType(JavaType type) {
+        if (type.isPrimitiveType() || !visited.add(type)) return; // Primitives are shared constants
+        classBytes += shallowSize(type);
+        if (type.isArrayType()) {
+            visitType(type.getElementType());
+        } else {
+            visitString(type.getName());
+            visitString(type.getInternalName());
+        }
+    }
+
+    private void visitMethod(MethodData method) {
+        if (!visited.add(method)) return;
+        methodBytes += shallowSize(method);
+        visitType(method.getDeclaringType());
+        visitString(method.getName());
+        visitSignature(method.getSignature());
+    }
+
+    private void visitField(FieldData field) {
+        if (!visited.add(field)) return;
+        fieldBytes += shallowSize(field);
+        visitType(field.getDeclaringType());
+        visitString(field.getName());
+    }
+
+    private void visitSignature(MethodSignature signature) {
+        if (!visited.add(signature)) return;
+        signatureBytes += shallowSize(signature);
+        ImmutableList<JavaType> parameterTypes = signature.getParameterTypes();
+        if (visited.add(parameterTypes)) {
+            signatureBytes += shallowSize(parameterTypes);
+            // Lists with more than one element keep them in an array
+            if (parameterTypes.size() > 1) {
+                signatureBytes += arraySize(REFERENCE, parameterTypes.size());
+            }
+        }
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            visitType(parameterTypes.get(i));
+        }
+        visitType(signature.getReturnType());
+        visitString(signature.getCachedDescriptor());
+    }
+
+    private void visitString(@Nullable String s) {
+        if (s == null || !visited.add(s)) return;
+        stringBytes += shallowSize(s) + arraySize(COMPACT_STRINGS && isLatin1(s) ? 1 : 2, s.length());
+    }
+
+    private static boolean isLatin1(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Estimate the overhead of a guava immutable bimap with the specified number of entries.
+     * <p>
+     * Each entry is an object referencing its key and value,
+     * kept in an array and hash tables for both the keys and the values.
+     * </p>
+     */
+    private static long estimateBiMap(int size) {
+        if (size == 0) return 0; // The empty bimap is shared
+        int tableSize = Integer.highestOneBit(Math.max(size, 2));
+        if (size > (int) (BIMAP_LOAD_FACTOR * tableSize)) {
+            tableSize <<= 1;
+        }
+        return (long) size * BIMAP_ENTRY + arraySize(REFERENCE, size) + 2 * arraySize(REFERENCE, tableSize);
+    }
+
+    private static int shallowSize(Object obj) {
+        return SHALLOW_SIZES.get(obj.getClass());
+    }
+
+    private static long arraySize(int elementSize, int length) {
+        return align(ARRAY_HEADER + (long) elementSize * length);
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        } else {
+            return REFERENCE;
+        }
+    }
+
+    private static int align(long size) {
+        return (int) ((size + ALIGNMENT - 1) & -ALIGNMENT);
+    }
+}
@@ -1,6 +1,5 @@
 package net.techcable.srglib;
 
-import java.util.Locale;
 import java.util.function.UnaryOperator;
 import javax.annotation.Nonnull;
 
@@ -150,16 +149,16 @@ public interface JavaType {
             } while (--dimensions > 0);
             return result;
         }
+        // Check the primitives directly, since throwing an exception for every class name is expensive
+        for (PrimitiveType primitiveType : PrimitiveType.values()) {
+            if (primitiveType.name().equalsIgnoreCase(name)) return primitiveType;
+        }
+        // Fallback to treating it as a reference-type/class
         try {
-            return PrimitiveType.valueOf(name.toUpperCase(Locale.ROOT));
-        } catch (IllegalArgumentException ignored) {
-            // Fallback to treating it as a reference-type/class
-            try {
-                return new ReferenceType(name);
-            } catch (IllegalArgumentException e) {
-                // Hide the true error ^_^
-                throw new IllegalArgumentException("Invalid type name: " + name);
-            }
+            return new ReferenceType(name);
+        } catch (IllegalArgumentException e) {
+            // Hide the true error ^_^
+            throw new IllegalArgumentException("Invalid type name: " + name);
         }
     }
 
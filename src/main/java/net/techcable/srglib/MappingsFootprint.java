@@ -0,0 +1,110 @@
+package net.techcable.srglib;
+
+import com.google.common.base.MoreObjects;
+
+import net.techcable.srglib.mappings.Mappings;
+
+/**
+ * The approximate number of bytes retained by mappings, broken down by what retains them.
+ * <p>
+ * Each object is only counted once, no matter how many entries share it,
+ * and is counted in the first category it is found in.
+ * </p>
+ *
+ * @see SrgLib#estimateFootprint(Mappings)
+ */
+public final class MappingsFootprint {
+    private final long classBytes;
+    private final long methodBytes;
+    private final long fieldBytes;
+    private final long signatureBytes;
+    private final long stringBytes;
+    private final long biMapBytes;
+
+    /* package */ MappingsFootprint(
+            long classBytes,
+            long methodBytes,
+            long fieldBytes,
+            long signatureBytes,
+            long stringBytes,
+            long biMapBytes
+    ) {
+        this.classBytes = classBytes;
+        this.methodBytes = methodBytes;
+        this.fieldBytes = fieldBytes;
+        this.signatureBytes = signatureBytes;
+        this.stringBytes = stringBytes;
+        this.biMapBytes = biMapBytes;
+    }
+
+    /**
+     * Return the bytes retained by the {@link JavaType}s, excluding their names.
+     *
+     * @return the bytes retained by the types
+     */
+    public long getClassBytes() {
+        return classBytes;
+    }
+
+    /**
+     * Return the bytes retained by the {@link MethodData}, excluding their names, types and signatures.
+     *
+     * @return the bytes retained by the methods
+     */
+    public long getMethodBytes() {
+        return methodBytes;
+    }
+
+    /**
+     * Return the bytes retained by the {@link FieldData}, excluding their names and types.
+     *
+     * @return the bytes retained by the fields
+     */
+    public long getFieldBytes() {
+        return fieldBytes;
+    }
+
+    /**
+     * Return the bytes retained by the {@link MethodSignature}s and their lists of parameter types.
+     *
+     * @return the bytes retained by the signatures
+     */
+    public long getSignatureBytes() {
+        return signatureBytes;
+    }
+
+    /**
+     * Return the bytes retained by the names of the types and members, and any cached descriptors.
+     *
+     * @return the bytes retained by strings
+     */
+    public long getStringBytes() {
+        return stringBytes;
+    }
+
+    /**
+     * Return the bytes retained by the bimaps themselves, including their entries and hash tables.
+     *
+     * @return the overhead of the bimaps
+     */
+    public long getBiMapBytes() {
+        return biMapBytes;
+    }
+
+    public long getTotalBytes() {
+        return classBytes + methodBytes + fieldBytes + signatureBytes + stringBytes + biMapBytes;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("classBytes", classBytes)
+                .add("methodBytes", methodBytes)
+                .add("fieldBytes", fieldBytes)
+                .add("signatureBytes", signatureBytes)
+                .add("stringBytes", stringBytes)
+                .add("biMapBytes", biMapBytes)
+                .add("totalBytes", getTotalBytes())
+                .toString();
+    }
+}
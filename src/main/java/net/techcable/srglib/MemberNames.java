@@ -0,0 +1,24 @@
+package net.techcable.srglib;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * The symbol table of field and method names, shared by all members.
+ * <p>
+ * Obfuscated names like {@code a} or {@code func_12345_a} repeat across thousands of classes,
+ * but the parsers split a new string out of every line, so each name is replaced by a single shared instance.
+ * Besides saving memory, this lets equal names be compared by identity.
+ * The names are weakly held, so they can still be collected once no member uses them.
+ * </p>
+ */
+/* package */ final class MemberNames {
+    private static final Interner<String> NAMES = Interners.newWeakInterner();
+
+    private MemberNames() {
+    }
+
+    /* package */ static String intern(String name) {
+        return NAMES.intern(name);
+    }
+}
@@ -15,13 +15,20 @@ public final class MethodData {
     private final String name;
     private final MethodSignature signature;
 
+    /**
+     * Create method data with the specified name, which must already be {@link #checkName(String) checked}.
+     */
     private MethodData(JavaType declaringType, String name, MethodSignature signature) {
         this.declaringType = requireNonNull(declaringType, "Null declaring type");
-        this.name = requireNonNull(name, "Null name");
+        this.name = name;
         this.signature = requireNonNull(signature, "Null method descriptor");
-        if (!SrgLib.isValidIdentifier(name)) {
+    }
+
+    private static String checkName(String name) {
+        if (!SrgLib.isValidIdentifier(requireNonNull(name, "Null name"))) {
             throw new IllegalArgumentException("Invalid method name: " + name);
         }
+        return MemberNames.intern(name);
     }
 
     /**
@@ -85,7 +92,7 @@ public final class MethodData {
         if (signature.equals(this.signature)) {
             return this;
         } else {
-            return create(declaringType, name, signature);
+            return new MethodData(declaringType, name, signature);
         }
     }
 
@@ -94,7 +101,13 @@ public final class MethodData {
     }
 
     public MethodData mapTypes(UnaryOperator<JavaType> transformer) {
-        return mapSignature(transformer).withDeclaringType(transformer.apply(declaringType));
+        MethodSignature newSignature = signature.mapTypes(transformer);
+        JavaType newDeclaringType = transformer.apply(declaringType);
+        if (newSignature == signature && newDeclaringType.equals(declaringType)) {
+            return this;
+        } else {
+            return new MethodData(newDeclaringType, name, newSignature);
+        }
     }
 
     public boolean hasSameTypes(MethodData other) {
@@ -110,7 +123,7 @@ public final class MethodData {
 
     public MethodData withName(String name) {
         if (name.equals(this.name)) return this;
-        return new MethodData(declaringType, name, signature);
+        return new MethodData(declaringType, checkName(name), signature);
     }
 
     public MethodData withDeclaringType(JavaType declaringType) {
@@ -173,7 +186,7 @@ public final class MethodData {
             String name,
             MethodSignature signature
     ) {
-        return new MethodData(declaringType, name, signature);
+        return new MethodData(declaringType, checkName(name), signature);
     }
 
     public static MethodData fromInternalName(String joinedName, MethodSignature signature) {
@@ -1,7 +1,10 @@
 package net.techcable.srglib;
 
 import java.util.function.UnaryOperator;
+import javax.annotation.Nullable;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 
 import net.techcable.srglib.utils.ImmutableLists;
@@ -16,6 +19,16 @@ public final class MethodSignature {
     private final ImmutableList<JavaType> parameterTypes;
     private final JavaType returnType;
 
+    /**
+     * The shared signatures, keyed by their descriptor.
+     * <p>
+     * Mappings only have a few thousand distinct descriptors across hundreds of thousands of methods,
+     * so sharing them saves both memory and parsing.
+     * The values are weak, so signatures which aren't used anymore can still be collected.
+     * </p>
+     */
+    private static final Cache<String, MethodSignature> INTERNED = CacheBuilder.newBuilder().weakValues().build();
+
     private MethodSignature(ImmutableList<JavaType> parameterTypes, JavaType returnType) {
         this.parameterTypes = requireNonNull(parameterTypes, "Null parameter types");
         this.returnType = requireNonNull(returnType, "Null return type");
@@ -32,19 +45,37 @@ public final class MethodSignature {
         return returnType;
     }
 
+    /**
+     * Transform all the types in this signature using the specified function.
+     * <p>
+     * If the function doesn't change any of the types, this signature is returned without allocating anything.
+     * </p>
+     *
+     * @param transformer the function to transform the types with
+     * @return the transformed signature
+     */
     public MethodSignature mapTypes(UnaryOperator<JavaType> transformer) {
         JavaType newReturnType = transformer.apply(returnType);
-        ImmutableList<JavaType> newParameterTypes = ImmutableLists.transform(this.parameterTypes, transformer);
-        MethodSignature result = create(newParameterTypes, newReturnType);
-        if (result.equals(this)) {
+        ImmutableList<JavaType> newParameterTypes = ImmutableLists.transformIfChanged(this.parameterTypes, transformer);
+        if (newParameterTypes == this.parameterTypes && newReturnType.equals(this.returnType)) {
             return this;
         } else {
-            return result;
+            return create(newParameterTypes, newReturnType);
         }
     }
 
     private String descriptor;
 
+    /**
+     * Return the descriptor if it has already been computed, without computing it.
+     *
+     * @return the cached descriptor, or null if it hasn't been computed yet
+     */
+    @Nullable
+    /* package */ String getCachedDescriptor() {
+        return descriptor;
+    }
+
     /**
      * Return the bytecode descriptor of this method type.
      *
@@ -97,13 +128,45 @@ public final class MethodSignature {
     }
 
     /**
-     * Parse the specified bytecode method descriptor into a signature object.
+     * Return the shared instance of this signature, so identical signatures can share their memory.
+     * <p>
+     * Shared instances are compared by identity, and keep their descriptor and hash cached.
+     * If no signature with the same descriptor is shared yet, this signature becomes the shared instance.
+     * </p>
+     *
+     * @return the shared signature
+     */
+    public MethodSignature intern() {
+        MethodSignature existing = INTERNED.asMap().putIfAbsent(getDescriptor(), this);
+        return existing != null ? existing : this;
+    }
+
+    /**
+     * Return the signature with the specified bytecode descriptor.
+     * <p>
+     * Signatures are interned, so parsing the same descriptor again returns the same instance without re-parsing it.
+     * </p>
      *
      * @param descriptor the bytecode descriptor
-     * @return a new signature object
+     * @return the signature object
      * @throws IllegalArgumentException if the signature is invalid
      */
     public static MethodSignature fromDescriptor(String descriptor) {
+        MethodSignature result = INTERNED.getIfPresent(requireNonNull(descriptor, "Null descriptor"));
+        if (result == null) {
+            result = parseDescriptor(descriptor);
+            if (descriptor.indexOf('.') < 0) {
+                result.descriptor = descriptor; // Only cache the descriptor if it's already in canonical form
+            }
+            MethodSignature existing = INTERNED.asMap().putIfAbsent(descriptor, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    private static MethodSignature parseDescriptor(String descriptor) {
         checkArgument(descriptor.length() > 2 && descriptor.charAt(0) == '(', "Invalid descriptor: %s", descriptor);
         int lastArgChar = descriptor.indexOf(')');
         checkArgument(lastArgChar >= 0, "Invalid descriptor: %s", descriptor);
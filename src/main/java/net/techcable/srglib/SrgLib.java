@@ -21,9 +21,14 @@ public final class SrgLib {
      */
     public static boolean isValidIdentifier(String name) {
         checkArgument(!name.isEmpty(), "Empty name: %s", name);
-        return Character.isJavaIdentifierStart(name.codePointAt(0)) && name.codePoints()
-                .skip(1) // Skip the first char, since we already checked it
-                .allMatch(Character::isJavaIdentifierPart);
+        int codePoint = name.codePointAt(0);
+        if (!Character.isJavaIdentifierStart(codePoint)) return false;
+        // Loop over the chars directly, since this is checked for every member and streams allocate
+        for (int i = Character.charCount(codePoint); i < name.length(); i += Character.charCount(codePoint)) {
+            codePoint = name.codePointAt(i);
+            if (!Character.isJavaIdentifierPart(codePoint)) return false;
+        }
+        return true;
     }
 
     /**
@@ -45,4 +50,20 @@ public final class SrgLib {
                 renamedMethod
         ));
     }
+
+    /**
+     * Estimate the number of bytes retained by the specified mappings.
+     * <p>
+     * The estimate is broken down into the types, members, signatures, strings and the bimaps holding them,
+     * and objects shared between entries, like common types and signatures, are only counted once.
+     * Sizes assume a 64-bit JVM with compressed references, and the lazily built caches of the mappings aren't included.
+     * Mutable mappings are estimated by the size of an immutable {@link Mappings#snapshot() snapshot}.
+     * </p>
+     *
+     * @param mappings the mappings to estimate the footprint of
+     * @return the approximate footprint of the mappings
+     */
+    public static MappingsFootprint estimateFootprint(Mappings mappings) {
+        return FootprintEstimator.estimate(checkNotNull(mappings, "Null mappings"));
+    }
 }
@@ -0,0 +1,571 @@
+package net.techcable.srglib.bytecode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.*;
+import static net.techcable.srglib.bytecode.ConstantPool.*;
+
+/**
+ * Rewrites a single class file for a {@link ClassRemapper}.
+ * <p>
+ * Changes are recorded as patches to two-byte constant pool indexes,
+ * then applied all at once while copying the class file and the appended constant pool entries into the output.
+ * </p>
+ */
+/* package */ final class ClassFileRewriter {
+    private final ClassRemapper remapper;
+    private final byte[] data;
+    private final ConstantPool pool;
+    private int nextIndex;
+    private byte[] appended = new byte[256];
+    private int appendedSize;
+    private final Map<String, Integer> appendedStrings = new HashMap<>();
+    private final Map<Integer, Integer> appendedNameAndTypes = new HashMap<>();
+    /**
+     * Pairs of (offset, new value) for each two-byte index that needs to change.
+     */
+    private int[] patches = new int[32];
+    private int patchCount;
+    /**
+     * The offsets of the entries in the BootstrapMethods attribute, found the first time an invokedynamic needs them.
+     */
+    @Nullable
+    private int[] bootstrapMethods;
+
+    /* package */ ClassFileRewriter(ClassRemapper remapper, byte[] data) {
+        this.remapper = remapper;
+        this.data = data;
+        this.pool = ConstantPool.parse(data);
+        this.nextIndex = pool.count();
+    }
+
+    /* package */ byte[] rewrite() {
+        try {
+            rewriteConstantPool();
+            rewriteBody();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file", e);
+        }
+        if (patchCount == 0 && appendedSize == 0) return data;
+        checkArgument(nextIndex <= 0xFFFF, "Too many constants after remapping: %s", nextIndex);
+        int poolEnd = pool.end();
+        byte[] result = new byte[data.length + appendedSize];
+        System.arraycopy(data, 0, result, 0, poolEnd);
+        System.arraycopy(appended, 0, result, poolEnd, appendedSize);
+        System.arraycopy(data, poolEnd, result, poolEnd + appendedSize, data.length - poolEnd);
+        writeU2(result, 8, nextIndex);
+        for (int i = 0; i < patchCount; i += 2) {
+            int offset = patches[i];
+            writeU2(result, offset < poolEnd ? offset : offset + appendedSize, patches[i + 1]);
+        }
+        return result;
+    }
+
+    private void rewriteConstantPool() {
+        for (int index = 1; index < pool.count(); index++) {
+            int offset = pool.offset(index);
+            switch (pool.tag(index)) {
+                case CLASS: {
+                    String name = pool.utf8(u2(offset + 1));
+                    String newName = name.charAt(0) == '[' ? remapper.remapDescriptor(name) : remapper.remapClassName(name);
+                    patchString(offset + 1, name, newName);
+                    break;
+                }
+                case FIELD_REF:
+                case METHOD_REF:
+                case INTERFACE_METHOD_REF: {
+                    String owner = pool.className(u2(offset + 1));
+                    int nameAndType = u2(offset + 3);
+                    int nameIndex = u2(pool.offset(nameAndType) + 1), descriptorIndex = u2(pool.offset(nameAndType) + 3);
+                    String name = pool.utf8(nameIndex), descriptor = pool.utf8(descriptorIndex);
+                    final String newName, newDescriptor;
+                    if (pool.tag(index) == FIELD_REF) {
+                        newName = remapper.remapFieldName(owner, name);
+                        newDescriptor = remapper.remapDescriptor(descriptor);
+                    } else {
+                        newName = remapper.remapMethodName(owner, name, descriptor);
+                        newDescriptor = remapper.remapMethodDescriptor(descriptor);
+                    }
+                    patchNameAndType(offset + 3, nameIndex, name, newName, descriptorIndex, descriptor, newDescriptor);
+                    break;
+                }
+                case METHOD_TYPE: {
+                    String descriptor = pool.utf8(u2(offset + 1));
+                    patchString(offset + 1, descriptor, remapper.remapMethodDescriptor(descriptor));
+                    break;
+                }
+                case DYNAMIC:
+                case INVOKE_DYNAMIC: {
+                    int nameAndType = u2(offset + 3);
+                    int nameIndex = u2(pool.offset(nameAndType) + 1), descriptorIndex = u2(pool.offset(nameAndType) + 3);
+                    String name = pool.utf8(nameIndex), descriptor = pool.utf8(descriptorIndex);
+                    final String newName, newDescriptor;
+                    if (pool.tag(index) == DYNAMIC) {
+                        newName = name;
+                        newDescriptor = remapper.remapDescriptor(descriptor);
+                    } else {
+                        newName = remapInvokeDynamicName(u2(offset + 1), name, descriptor);
+                        newDescriptor = remapper.remapMethodDescriptor(descriptor);
+                    }
+                    patchNameAndType(offset + 3, nameIndex, name, newName, descriptorIndex, descriptor, newDescriptor);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remap the name of an invokedynamic call site.
+     * <p>
+     * The name is usually chosen by the bootstrap method, so it's left alone,
+     * except for lambdas where it's the name of the functional interface's method.
+     * That interface is the type returned by the call site,
+     * and the erased descriptor of its method is the first argument to the bootstrap method.
+     * </p>
+     */
+    private String remapInvokeDynamicName(int bootstrapIndex, String name, String descriptor) {
+        int[] bootstrapMethods = bootstrapMethods();
+        checkArgument(bootstrapIndex < bootstrapMethods.length, "Invalid bootstrap method index: %s", bootstrapIndex);
+        int entry = bootstrapMethods[bootstrapIndex];
+        int handle = u2(entry);
+        checkArgument(pool.tag(handle) == METHOD_HANDLE, "Constant %s isn't a method handle", handle);
+        int reference = u2(pool.offset(handle) + 2);
+        if (pool.tag(reference) != METHOD_REF && pool.tag(reference) != INTERFACE_METHOD_REF) return name;
+        int bootstrapNameAndType = u2(pool.offset(reference) + 3);
+        String bootstrapName = pool.utf8(u2(pool.offset(bootstrapNameAndType) + 1));
+        if (!pool.className(u2(pool.offset(reference) + 1)).equals("java/lang/invoke/LambdaMetafactory")
+                || !(bootstrapName.equals("metafactory") || bootstrapName.equals("altMetafactory"))
+                || u2(entry + 2) == 0) {
+            return name;
+        }
+        int methodType = u2(entry + 4);
+        int returnType = descriptor.indexOf(')') + 1;
+        if (pool.tag(methodType) != METHOD_TYPE || descriptor.charAt(returnType) != 'L') return name;
+        String functionalInterface = descriptor.substring(returnType + 1, descriptor.length() - 1);
+        return remapper.remapMethodName(functionalInterface, name, pool.utf8(u2(pool.offset(methodType) + 1)));
+    }
+
+    private int[] bootstrapMethods() {
+        int[] bootstrapMethods = this.bootstrapMethods;
+        if (bootstrapMethods == null) {
+            int offset = findClassAttribute("BootstrapMethods");
+            checkArgument(offset >= 0, "Missing BootstrapMethods attribute");
+            bootstrapMethods = new int[u2(offset)];
+            offset += 2;
+            for (int i = 0; i < bootstrapMethods.length; i++) {
+                bootstrapMethods[i] = offset;
+                offset += 4 + 2 * u2(offset + 2);
+            }
+            this.bootstrapMethods = bootstrapMethods;
+        }
+        return bootstrapMethods;
+    }
+
+    /**
+     * Find the contents of the class attribute with the specified name, skipping over the fields and methods.
+     *
+     * @return the offset of the attribute's contents, or -1 if it's missing
+     */
+    private int findClassAttribute(String name) {
+        int offset = pool.end() + 6; // access, this_class, super_class
+        offset += 2 + 2 * u2(offset); // interfaces
+        for (int table = 0; table < 2; table++) { // fields, then methods
+            int count = u2(offset);
+            offset += 2;
+            for (int i = 0; i < count; i++) {
+                offset = skipAttributes(offset + 6);
+            }
+        }
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            if (pool.utf8(u2(offset)).equals(name)) return offset + 6;
+            offset += 6 + ConstantPool.u4(data, offset + 2);
+        }
+        return -1;
+    }
+
+    private int skipAttributes(int offset) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset += 6 + ConstantPool.u4(data, offset + 2);
+        }
+        return offset;
+    }
+
+    private void rewriteBody() {
+        int offset = pool.end();
+        String className = pool.className(u2(offset + 2));
+        offset += 6; // access, this_class, super_class
+        offset += 2 + 2 * u2(offset); // interfaces
+        int fieldCount = u2(offset);
+        offset += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            String name = pool.utf8(u2(offset + 2));
+            String descriptor = pool.utf8(u2(offset + 4));
+            patchString(offset + 2, name, remapper.remapFieldName(className, name));
+            patchString(offset + 4, descriptor, remapper.remapDescriptor(descriptor));
+            offset = rewriteAttributes(offset + 6, className);
+        }
+        int methodCount = u2(offset);
+        offset += 2;
+        for (int i = 0; i < methodCount; i++) {
+            String name = pool.utf8(u2(offset + 2));
+            String descriptor = pool.utf8(u2(offset + 4));
+            patchString(offset + 2, name, remapper.remapMethodName(className, name, descriptor));
+            patchString(offset + 4, descriptor, remapper.remapMethodDescriptor(descriptor));
+            offset = rewriteAttributes(offset + 6, className);
+        }
+        offset = rewriteAttributes(offset, className);
+        checkArgument(offset == data.length, "Unexpected data after the end of the class file");
+    }
+
+    /**
+     * Rewrite the attributes table at the specified offset.
+     *
+     * @return the offset after the attributes
+     */
+    private int rewriteAttributes(int offset, String className) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            String name = pool.utf8(u2(offset));
+            int length = ConstantPool.u4(data, offset + 2);
+            int start = offset + 6;
+            switch (name) {
+                case "Code":
+                    rewriteCode(start, className);
+                    break;
+                case "LocalVariableTable":
+                    rewriteLocalVariables(start, false);
+                    break;
+                case "LocalVariableTypeTable":
+                    rewriteLocalVariables(start, true);
+                    break;
+                case "Signature": {
+                    String signature = pool.utf8(u2(start));
+                    patchString(start, signature, remapper.remapSignature(signature));
+                    break;
+                }
+                case "InnerClasses":
+                    rewriteInnerClasses(start);
+                    break;
+                case "EnclosingMethod":
+                    rewriteEnclosingMethod(start);
+                    break;
+                case "Record":
+                    rewriteRecord(start, className);
+                    break;
+                case "RuntimeVisibleAnnotations":
+                case "RuntimeInvisibleAnnotations":
+                    rewriteAnnotations(start);
+                    break;
+                case "RuntimeVisibleTypeAnnotations":
+                case "RuntimeInvisibleTypeAnnotations":
+                    rewriteTypeAnnotations(start);
+                    break;
+                case "RuntimeVisibleParameterAnnotations":
+                case "RuntimeInvisibleParameterAnnotations": {
+                    int parameters = data[start] & 0xFF;
+                    int position = start + 1;
+                    for (int parameter = 0; parameter < parameters; parameter++) {
+                        position = rewriteAnnotations(position);
+                    }
+                    break;
+                }
+                case "AnnotationDefault":
+                    rewriteElementValue(start);
+                    break;
+            }
+            offset = start + length;
+        }
+        return offset;
+    }
+
+    private void rewriteCode(int offset, String className) {
+        int codeLength = ConstantPool.u4(data, offset + 4);
+        offset += 8 + codeLength;
+        offset += 2 + 8 * u2(offset); // exception table
+        rewriteAttributes(offset, className);
+    }
+
+    private void rewriteLocalVariables(int offset, boolean signatures) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++, offset += 10) {
+            String descriptor = pool.utf8(u2(offset + 6));
+            String newDescriptor = signatures ? remapper.remapSignature(descriptor) : remapper.remapDescriptor(descriptor);
+            patchString(offset + 6, descriptor, newDescriptor);
+        }
+    }
+
+    private void rewriteInnerClasses(int offset) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++, offset += 8) {
+            int innerClass = u2(offset), innerNameIndex = u2(offset + 4);
+            if (innerClass == 0 || innerNameIndex == 0) continue; // Anonymous
+            String innerName = pool.className(innerClass);
+            String simpleName = pool.utf8(innerNameIndex);
+            String newInnerName = remapper.remapClassName(innerName);
+            if (newInnerName.equals(innerName) || !innerName.endsWith("$" + simpleName)) continue;
+            int separator = Math.max(newInnerName.lastIndexOf('$'), newInnerName.lastIndexOf('/'));
+            patchString(offset + 4, simpleName, newInnerName.substring(separator + 1));
+        }
+    }
+
+    private void rewriteEnclosingMethod(int offset) {
+        int nameAndType = u2(offset + 2);
+        if (nameAndType == 0) return; // Not enclosed by a method
+        String owner = pool.className(u2(offset));
+        int nameIndex = u2(pool.offset(nameAndType) + 1), descriptorIndex = u2(pool.offset(nameAndType) + 3);
+        String name = pool.utf8(nameIndex), descriptor = pool.utf8(descriptorIndex);
+        patchNameAndType(
+                offset + 2,
+                nameIndex, name, remapper.remapMethodName(owner, name, descriptor),
+                descriptorIndex, descriptor, remapper.remapMethodDescriptor(descriptor)
+        );
+    }
+
+    private void rewriteRecord(int offset, String className) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            // Record components are named after their fields
+            String name = pool.utf8(u2(offset));
+            String descriptor = pool.utf8(u2(offset + 2));
+            patchString(offset, name, remapper.remapFieldName(className, name));
+            patchString(offset + 2, descriptor, remapper.remapDescriptor(descriptor));
+            offset = rewriteAttributes(offset + 4, className);
+        }
+    }
+
+    /**
+     * Rewrite the annotations table at the specified offset.
+     *
+     * @return the offset after the annotations
+     */
+    private int rewriteAnnotations(int offset) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset = rewriteAnnotation(offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Rewrite the type annotations table at the specified offset.
+     * <p>
+     * Type annotations are regular annotations, prefixed with the location of the annotated type.
+     * </p>
+     */
+    private void rewriteTypeAnnotations(int offset) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            int targetType = data[offset++] & 0xFF;
+            switch (targetType) {
+                case 0x00: // type_parameter_target
+                case 0x01:
+                case 0x16: // formal_parameter_target
+                    offset += 1;
+                    break;
+                case 0x10: // supertype_target
+                case 0x11: // type_parameter_bound_target
+                case 0x12:
+                case 0x17: // throws_target
+                case 0x42: // catch_target
+                case 0x43: // offset_target
+                case 0x44:
+                case 0x45:
+                case 0x46:
+                    offset += 2;
+                    break;
+                case 0x13: // empty_target
+                case 0x14:
+                case 0x15:
+                    break;
+                case 0x40: // localvar_target
+                case 0x41:
+                    offset += 2 + 6 * u2(offset);
+                    break;
+                case 0x47: // type_argument_target
+                case 0x48:
+                case 0x49:
+                case 0x4A:
+                case 0x4B:
+                    offset += 3;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid type annotation target: " + targetType);
+            }
+            offset += 1 + 2 * (data[offset] & 0xFF); // type_path
+            offset = rewriteAnnotation(offset);
+        }
+    }
+
+    private int rewriteAnnotation(int offset) {
+        String type = pool.utf8(u2(offset));
+        patchString(offset, type, remapper.remapDescriptor(type));
+        String owner = ownerName(type);
+        int pairs = u2(offset + 2);
+        offset += 4;
+        for (int i = 0; i < pairs; i++) {
+            // Elements are named after the methods of the annotation type
+            String name = pool.utf8(u2(offset));
+            if (owner != null) patchString(offset, name, remapper.remapAnnotationElementName(owner, name));
+            offset = rewriteElementValue(offset + 2);
+        }
+        return offset;
+    }
+
+    private int rewriteElementValue(int offset) {
+        char tag = (char) data[offset++];
+        switch (tag) {
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+            case 's':
+                return offset + 2;
+            case 'e': {
+                String type = pool.utf8(u2(offset));
+                String constant = pool.utf8(u2(offset + 2));
+                String owner = ownerName(type);
+                patchString(offset, type, remapper.remapDescriptor(type));
+                // Enum constants are named after their fields
+                if (owner != null) patchString(offset + 2, constant, remapper.remapFieldName(owner, constant));
+                return offset + 4;
+            }
+            case 'c': {
+                // Unlike a field descriptor, this can be void.class
+                String type = pool.utf8(u2(offset));
+                if (!type.equals("V")) patchString(offset, type, remapper.remapDescriptor(type));
+                return offset + 2;
+            }
+            case '@':
+                return rewriteAnnotation(offset);
+            case '[': {
+                int count = u2(offset);
+                offset += 2;
+                for (int i = 0; i < count; i++) {
+                    offset = rewriteElementValue(offset);
+                }
+                return offset;
+            }
+            default:
+                throw new IllegalArgumentException("Invalid annotation element tag: " + tag);
+        }
+    }
+
+    /**
+     * Return the internal name of the class in the specified descriptor, or null if it isn't a class.
+     */
+    @Nullable
+    private static String ownerName(String descriptor) {
+        if (descriptor.length() < 3 || descriptor.charAt(0) != 'L' || descriptor.charAt(descriptor.length() - 1) != ';') {
+            return null;
+        }
+        return descriptor.substring(1, descriptor.length() - 1);
+    }
+
+    //
+    // Patching
+    //
+
+    private void patchString(int offset, String value, String newValue) {
+        if (!value.equals(newValue)) {
+            patch(offset, appendString(newValue));
+        }
+    }
+
+    private void patchNameAndType(
+            int offset,
+            int nameIndex,
+            String name,
+            String newName,
+            int descriptorIndex,
+            String descriptor,
+            String newDescriptor
+    ) {
+        boolean sameName = name.equals(newName), sameDescriptor = descriptor.equals(newDescriptor);
+        if (sameName && sameDescriptor) return;
+        int newNameIndex = sameName ? nameIndex : appendString(newName);
+        int newDescriptorIndex = sameDescriptor ? descriptorIndex : appendString(newDescriptor);
+        // Other references may share the original entry, so we always need a new one
+        Integer key = (newNameIndex << 16) | newDescriptorIndex;
+        Integer index = appendedNameAndTypes.get(key);
+        if (index == null) {
+            index = nextIndex++;
+            ensureAppendedCapacity(5);
+            appended[appendedSize++] = NAME_AND_TYPE;
+            writeU2(appended, appendedSize, newNameIndex);
+            writeU2(appended, appendedSize + 2, newDescriptorIndex);
+            appendedSize += 4;
+            appendedNameAndTypes.put(key, index);
+        }
+        patch(offset, index);
+    }
+
+    private void patch(int offset, int value) {
+        if (patchCount == patches.length) {
+            patches = Arrays.copyOf(patches, patches.length * 2);
+        }
+        patches[patchCount++] = offset;
+        patches[patchCount++] = value;
+    }
+
+    private int appendString(String value) {
+        Integer existing = appendedStrings.get(value);
+        if (existing != null) return existing;
+        int length = value.length();
+        ensureAppendedCapacity(3 + length * 3);
+        int start = appendedSize;
+        appended[appendedSize] = UTF8;
+        appendedSize += 3;
+        // Encode as 'modified utf8', which encodes nulls as two bytes and surrogates separately
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c != 0 && c < 0x80) {
+                appended[appendedSize++] = (byte) c;
+            } else if (c < 0x800) {
+                appended[appendedSize++] = (byte) (0xC0 | (c >> 6));
+                appended[appendedSize++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                appended[appendedSize++] = (byte) (0xE0 | (c >> 12));
+                appended[appendedSize++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                appended[appendedSize++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        int encodedLength = appendedSize - start - 3;
+        checkArgument(encodedLength <= 0xFFFF, "String too long for the constant pool: %s", value);
+        writeU2(appended, start + 1, encodedLength);
+        int index = nextIndex++;
+        appendedStrings.put(value, index);
+        return index;
+    }
+
+    private void ensureAppendedCapacity(int amount) {
+        if (appendedSize + amount > appended.length) {
+            appended = Arrays.copyOf(appended, Math.max(appended.length * 2, appendedSize + amount));
+        }
+    }
+
+    private int u2(int offset) {
+        return ConstantPool.u2(data, offset);
+    }
+
+    private static void writeU2(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >> 8);
+        data[offset + 1] = (byte) value;
+    }
+}
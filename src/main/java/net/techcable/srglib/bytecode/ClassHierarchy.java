@@ -0,0 +1,157 @@
+package net.techcable.srglib.bytecode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+
+/**
+ * The inheritance relationships between a set of classes.
+ * <p>
+ * Hierarchies can be read from jars, or supplied externally by creating the {@link ClassInfo} directly.
+ * All class names are the original internal names, before any remapping.
+ * </p>
+ */
+public interface ClassHierarchy {
+    /**
+     * Return information about the specified class, or null if it isn't part of this hierarchy.
+     *
+     * @param internalName the internal name of the class
+     * @return the class information
+     */
+    @Nullable
+    ClassInfo getInfo(String internalName);
+
+    /**
+     * Return the internal names of all the classes in this hierarchy.
+     *
+     * @return the class names
+     */
+    Set<String> classNames();
+
+    /**
+     * Propagate the method mappings through this hierarchy.
+     * <p>
+     * The mapping for a method is pushed down to the methods that override it,
+     * and up to the superclass and interface methods it overrides,
+     * so that all the methods in an override family end up with the same name.
+     * Methods that are already mapped explicitly are never changed,
+     * and private, static and constructor methods are never propagated.
+     * </p>
+     * <p>
+     * The families for each method name and descriptor are independent,
+     * so they are computed in parallel.
+     * </p>
+     *
+     * @param mappings the mappings to propagate
+     * @return the mappings including the propagated methods
+     * @throws IllegalArgumentException if methods in the same override family are mapped to different names
+     */
+    default ImmutableMappings propagate(Mappings mappings) {
+        return MethodPropagator.propagate(this, mappings);
+    }
+
+    /**
+     * Create a hierarchy containing the specified classes.
+     *
+     * @param classes the classes in the hierarchy
+     * @return the hierarchy
+     * @throws IllegalArgumentException if there are duplicate classes
+     */
+    static ClassHierarchy create(Iterable<ClassInfo> classes) {
+        return SimpleClassHierarchy.create(classes);
+    }
+
+    /**
+     * Create a hierarchy containing all the classes in the specified hierarchies.
+     * <p>
+     * If multiple hierarchies contain the same class, the first one takes priority.
+     * </p>
+     *
+     * @param hierarchies the hierarchies to combine
+     * @return the combined hierarchy
+     */
+    static ClassHierarchy compose(ClassHierarchy... hierarchies) {
+        return compose(Arrays.asList(hierarchies));
+    }
+
+    /**
+     * Create a hierarchy containing all the classes in the specified hierarchies.
+     * <p>
+     * If multiple hierarchies contain the same class, the first one takes priority.
+     * </p>
+     *
+     * @param hierarchies the hierarchies to combine
+     * @return the combined hierarchy
+     */
+    static ClassHierarchy compose(List<ClassHierarchy> hierarchies) {
+        ImmutableList<ClassHierarchy> list = ImmutableList.copyOf(hierarchies);
+        if (list.size() == 1) return list.get(0);
+        ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+        for (ClassHierarchy hierarchy : list) {
+            classNames.addAll(hierarchy.classNames());
+        }
+        ImmutableSet<String> allClassNames = classNames.build();
+        return new ClassHierarchy() {
+            @Nullable
+            @Override
+            public ClassInfo getInfo(String internalName) {
+                for (ClassHierarchy hierarchy : list) {
+                    ClassInfo info = hierarchy.getInfo(internalName);
+                    if (info != null) return info;
+                }
+                return null;
+            }
+
+            @Override
+            public Set<String> classNames() {
+                return allClassNames;
+            }
+        };
+    }
+
+    /**
+     * Read the hierarchy of all the classes in the specified jar.
+     * <p>
+     * Only the base version of multi-release classes is read, and {@code module-info} is ignored.
+     * </p>
+     *
+     * @param jar the jar to read
+     * @return the hierarchy of the jar's classes
+     * @throws IOException if an error occurs reading the jar, or a class file is invalid
+     */
+    static ClassHierarchy readJar(Path jar) throws IOException {
+        try (RawZipFile zip = RawZipFile.open(jar)) {
+            ClassInfo[] classes = zip.entries().parallelStream()
+                    .filter(entry -> {
+                        String name = entry.getName();
+                        return name.endsWith(".class")
+                                && !name.startsWith("META-INF/")
+                                && !name.endsWith("module-info.class")
+                                && !entry.isDirectory();
+                    })
+                    .map(entry -> {
+                        try {
+                            return ClassInfo.read(zip.read(entry));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        } catch (IllegalArgumentException e) {
+                            throw new UncheckedIOException(new IOException("Invalid class file " + entry, e));
+                        }
+                    })
+                    .toArray(ClassInfo[]::new);
+            return create(Arrays.asList(classes));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package net.techcable.srglib.bytecode;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import static com.google.common.base.Preconditions.*;
+import static java.util.Objects.*;
+
+/**
+ * The information about a class that's needed to understand the class hierarchy.
+ * <p>
+ * This is the name and access flags of the class, its supertypes, and its declared members.
+ * All names are internal names, and the methods are keyed by their name followed by their descriptor,
+ * like {@code equals(Ljava/lang/Object;)Z}.
+ * </p>
+ */
+public final class ClassInfo {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_PROTECTED = 0x0004;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_INTERFACE = 0x0200;
+
+    private final int access;
+    private final String name;
+    @Nullable
+    private final String superName;
+    private final ImmutableList<String> interfaces;
+    private final ImmutableMap<String, Integer> fields;
+    private final ImmutableMap<String, Integer> methods;
+
+    private ClassInfo(
+            int access,
+            String name,
+            @Nullable String superName,
+            ImmutableList<String> interfaces,
+            ImmutableMap<String, Integer> fields,
+            ImmutableMap<String, Integer> methods
+    ) {
+        this.access = access;
+        this.name = requireNonNull(name, "Null name");
+        this.superName = superName;
+        this.interfaces = requireNonNull(interfaces, "Null interfaces");
+        this.fields = requireNonNull(fields, "Null fields");
+        this.methods = requireNonNull(methods, "Null methods");
+    }
+
+    public int getAccess() {
+        return access;
+    }
+
+    public boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * Return the internal name of the class.
+     *
+     * @return the name of the class
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the internal name of the superclass, or null if this class is {@code java/lang/Object} or a module.
+     *
+     * @return the name of the superclass
+     */
+    @Nullable
+    public String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * Return the internal names of the interfaces this class directly implements.
+     *
+     * @return the names of the interfaces
+     */
+    public ImmutableList<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Return the access flags of the fields this class declares, keyed by the field name.
+     *
+     * @return the declared fields
+     */
+    public ImmutableMap<String, Integer> getFields() {
+        return fields;
+    }
+
+    /**
+     * Return the access flags of the methods this class declares, keyed by the name and descriptor of the method.
+     *
+     * @return the declared methods
+     */
+    public ImmutableMap<String, Integer> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Return the access flags of the specified method, or -1 if the class doesn't declare it.
+     *
+     * @param name the name of the method
+     * @param descriptor the descriptor of the method
+     * @return the access flags of the method
+     */
+    public int getMethodAccess(String name, String descriptor) {
+        Integer result = methods.get(methodKey(name, descriptor));
+        return result != null ? result : -1;
+    }
+
+    /**
+     * Return the key of the specified method in {@link #getMethods()}.
+     *
+     * @param name the name of the method
+     * @param descriptor the descriptor of the method
+     * @return the key of the method
+     */
+    public static String methodKey(String name, String descriptor) {
+        return name + descriptor;
+    }
+
+    /**
+     * Return the package of this class, as an internal name without a trailing slash.
+     *
+     * @return the package name
+     */
+    public String getPackageName() {
+        int index = name.lastIndexOf('/');
+        return index >= 0 ? name.substring(0, index) : "";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != ClassInfo.class) return false;
+        ClassInfo other = (ClassInfo) obj;
+        return access == other.access
+                && name.equals(other.name)
+                && Objects.equals(superName, other.superName)
+                && interfaces.equals(other.interfaces)
+                && fields.equals(other.fields)
+                && methods.equals(other.methods);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ClassInfo(" + name + ")";
+    }
+
+    /**
+     * Create class information from the specified values.
+     *
+     * @param access the access flags of the class
+     * @param name the internal name of the class
+     * @param superName the internal name of the superclass, or null if there is none
+     * @param interfaces the internal names of the interfaces
+     * @param fields the access flags of the fields, keyed by name
+     * @param methods the access flags of the methods, keyed by {@link #methodKey(String, String)}
+     * @return the class information
+     */
+    public static ClassInfo create(
+            int access,
+            String name,
+            @Nullable String superName,
+            List<String> interfaces,
+            Map<String, Integer> fields,
+            Map<String, Integer> methods
+    ) {
+        return new ClassInfo(
+                access,
+                name,
+                superName,
+                ImmutableList.copyOf(interfaces),
+                ImmutableMap.copyOf(fields),
+                ImmutableMap.copyOf(methods)
+        );
+    }
+
+    /**
+     * Read the class information from the specified class file.
+     * <p>
+     * Only the constant pool and the member declarations are parsed, so this is much cheaper than remapping.
+     * </p>
+     *
+     * @param classFile the bytes of the class file
+     * @return the class information
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    public static ClassInfo read(byte[] classFile) {
+        ConstantPool pool = ConstantPool.parse(classFile);
+        try {
+            int offset = pool.end();
+            int access = ConstantPool.u2(classFile, offset);
+            String name = pool.className(ConstantPool.u2(classFile, offset + 2));
+            int superIndex = ConstantPool.u2(classFile, offset + 4);
+            String superName = superIndex != 0 ? pool.className(superIndex) : null;
+            int interfaceCount = ConstantPool.u2(classFile, offset + 6);
+            offset += 8;
+            ImmutableList.Builder<String> interfaces = ImmutableList.builder();
+            for (int i = 0; i < interfaceCount; i++, offset += 2) {
+                interfaces.add(pool.className(ConstantPool.u2(classFile, offset)));
+            }
+            Map<String, Integer> fields = new LinkedHashMap<>();
+            offset = readMembers(classFile, pool, offset, false, fields);
+            Map<String, Integer> methods = new LinkedHashMap<>();
+            readMembers(classFile, pool, offset, true, methods);
+            return new ClassInfo(
+                    access,
+                    name,
+                    superName,
+                    interfaces.build(),
+                    ImmutableMap.copyOf(fields),
+                    ImmutableMap.copyOf(methods)
+            );
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file", e);
+        }
+    }
+
+    private static int readMembers(byte[] classFile, ConstantPool pool, int offset, boolean methods, Map<String, Integer> result) {
+        int count = ConstantPool.u2(classFile, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            int access = ConstantPool.u2(classFile, offset);
+            String name = pool.utf8(ConstantPool.u2(classFile, offset + 2));
+            String key = methods ? methodKey(name, pool.utf8(ConstantPool.u2(classFile, offset + 4))) : name;
+            result.putIfAbsent(key, access);
+            int attributeCount = ConstantPool.u2(classFile, offset + 6);
+            offset += 8;
+            for (int j = 0; j < attributeCount; j++) {
+                offset += 6 + ConstantPool.u4(classFile, offset + 2);
+            }
+        }
+        checkArgument(offset <= classFile.length, "Truncated class file");
+        return offset;
+    }
+}
@@ -0,0 +1,219 @@
+package net.techcable.srglib.bytecode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.SrgLib;
+import net.techcable.srglib.mappings.Mappings;
+
+import static java.util.Objects.*;
+
+/**
+ * Remaps the class, field and method names in compiled class files.
+ * <p>
+ * Class files are rewritten directly, without building an object model of the class.
+ * The original constant pool entries stay at the same indexes, so the bytecode itself never needs to change,
+ * and any names that change are appended to the end of the constant pool.
+ * Besides the constant pool and the declared members, the
+ * {@code InnerClasses}, {@code EnclosingMethod}, {@code LocalVariableTable}, {@code LocalVariableTypeTable},
+ * {@code Signature}, {@code Record}, annotation and type annotation attributes are remapped,
+ * including the names of annotation elements and enum constants.
+ * </p>
+ * <p>
+ * Remappers are thread-safe, and cache the renamed classes, so the mappings must not change while in use.
+ * Descriptors are remapped by {@link Mappings#remapDescriptor(String)},
+ * which {@link net.techcable.srglib.mappings.ImmutableMappings} caches,
+ * so immutable mappings are much faster to remap with.
+ * </p>
+ */
+public final class ClassRemapper {
+    private final Mappings mappings;
+    private final ConcurrentMap<String, String> classNames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Optional<JavaType>> owners = new ConcurrentHashMap<>();
+    /**
+     * The new names of the renamed methods without parameters, by their owner and original name.
+     */
+    @Nullable
+    private ImmutableMap<String, String> elementNames;
+
+    private ClassRemapper(Mappings mappings) {
+        this.mappings = requireNonNull(mappings, "Null mappings");
+    }
+
+    /**
+     * Return the mappings this remapper uses.
+     *
+     * @return the mappings
+     */
+    public Mappings getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Remap the specified class file.
+     * <p>
+     * If nothing needs to be renamed, the original array may be returned.
+     * </p>
+     *
+     * @param classFile the bytes of the class file
+     * @return the remapped class file
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    public byte[] remap(byte[] classFile) {
+        return new ClassFileRewriter(this, classFile).rewrite();
+    }
+
+    /**
+     * Remap the specified internal class name.
+     *
+     * @param internalName the original internal name of the class
+     * @return the new internal name of the class
+     */
+    public String remapClassName(String internalName) {
+        String result = classNames.get(internalName);
+        if (result == null) {
+            JavaType type = parseOwner(internalName);
+            result = type != null ? mappings.getNewClass(type).getInternalName() : internalName;
+            classNames.putIfAbsent(internalName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Remap the class names in the specified field descriptor.
+     *
+     * @param descriptor the original field descriptor
+     * @return the remapped descriptor
+     * @throws IllegalArgumentException if the descriptor is invalid
+     */
+    public String remapDescriptor(String descriptor) {
+        return mappings.remapDescriptor(descriptor);
+    }
+
+    /**
+     * Remap the class names in the specified method descriptor.
+     *
+     * @param descriptor the original method descriptor
+     * @return the remapped descriptor
+     * @throws IllegalArgumentException if the descriptor is invalid
+     */
+    public String remapMethodDescriptor(String descriptor) {
+        return mappings.remapMethodDescriptor(descriptor);
+    }
+
+    /**
+     * Remap the class names in the specified generic signature.
+     * <p>
+     * Class, method and field signatures are all supported.
+     * </p>
+     *
+     * @param signature the original generic signature
+     * @return the remapped signature
+     * @throws IllegalArgumentException if the signature is invalid
+     */
+    public String remapSignature(String signature) {
+        return SignatureRemapper.remap(signature, this::remapClassName);
+    }
+
+    /**
+     * Remap the name of the specified field.
+     *
+     * @param owner the internal name of the class that declares the field
+     * @param name the original name of the field
+     * @return the new name of the field
+     */
+    public String remapFieldName(String owner, String name) {
+        JavaType ownerType = parseOwner(owner);
+        if (ownerType == null || !SrgLib.isValidIdentifier(name)) return name;
+        return mappings.getNewField(FieldData.create(ownerType, name)).getName();
+    }
+
+    /**
+     * Remap the name of the specified method.
+     * <p>
+     * Constructors and static initializers are never renamed.
+     * </p>
+     *
+     * @param owner the internal name of the class that declares the method
+     * @param name the original name of the method
+     * @param descriptor the original descriptor of the method
+     * @return the new name of the method
+     */
+    public String remapMethodName(String owner, String name, String descriptor) {
+        JavaType ownerType = parseOwner(owner);
+        if (ownerType == null || !SrgLib.isValidIdentifier(name)) return name;
+        MethodData original = MethodData.create(ownerType, name, MethodSignature.fromDescriptor(descriptor));
+        return mappings.getNewMethod(original).getName();
+    }
+
+    /**
+     * Remap the name of an element of the specified annotation type.
+     * <p>
+     * Annotation elements are methods without parameters, and since they can't be overloaded,
+     * they're looked up by name alone, without needing their return type.
+     * The renamed methods without parameters are indexed the first time this is called.
+     * </p>
+     *
+     * @param owner the internal name of the annotation type
+     * @param name the original name of the element
+     * @return the new name of the element
+     */
+    public String remapAnnotationElementName(String owner, String name) {
+        ImmutableMap<String, String> elementNames = this.elementNames;
+        if (elementNames == null) {
+            Map<String, String> result = new HashMap<>();
+            mappings.forEachMethod((original, renamed) -> {
+                if (original.getSignature().getParameterTypes().isEmpty() && !original.getName().equals(renamed.getName())) {
+                    result.putIfAbsent(original.getDeclaringType().getInternalName() + '.' + original.getName(), renamed.getName());
+                }
+            });
+            this.elementNames = elementNames = ImmutableMap.copyOf(result);
+        }
+        return elementNames.getOrDefault(owner + '.' + name, name);
+    }
+
+    /**
+     * Parse the internal name of the owning class, reusing the types that were already parsed.
+     */
+    private JavaType parseOwner(String internalName) {
+        Optional<JavaType> result = owners.get(internalName);
+        if (result == null) {
+            result = Optional.ofNullable(parseClassName(internalName));
+            owners.putIfAbsent(internalName, result);
+        }
+        return result.orElse(null);
+    }
+
+    /**
+     * Parse the internal name of a class, returning null for arrays and names the mappings can't represent.
+     */
+    private static JavaType parseClassName(String internalName) {
+        if (internalName.isEmpty() || internalName.charAt(0) == '[') return null;
+        try {
+            JavaType type = JavaType.fromInternalName(internalName);
+            return type.isReferenceType() ? type : null;
+        } catch (IllegalArgumentException e) {
+            return null; // Names like 'module-info' aren't valid java identifiers
+        }
+    }
+
+    /**
+     * Create a remapper for the specified mappings.
+     *
+     * @param mappings the mappings to apply
+     * @return a new remapper
+     */
+    public static ClassRemapper create(Mappings mappings) {
+        return new ClassRemapper(mappings);
+    }
+}
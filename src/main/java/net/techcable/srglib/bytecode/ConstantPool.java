@@ -0,0 +1,184 @@
+package net.techcable.srglib.bytecode;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import com.google.common.base.Charsets;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * The constant pool of a class file, which decodes its entries lazily.
+ */
+/* package */ final class ConstantPool {
+    /* package */ static final int UTF8 = 1;
+    /* package */ static final int INTEGER = 3;
+    /* package */ static final int FLOAT = 4;
+    /* package */ static final int LONG = 5;
+    /* package */ static final int DOUBLE = 6;
+    /* package */ static final int CLASS = 7;
+    /* package */ static final int STRING = 8;
+    /* package */ static final int FIELD_REF = 9;
+    /* package */ static final int METHOD_REF = 10;
+    /* package */ static final int INTERFACE_METHOD_REF = 11;
+    /* package */ static final int NAME_AND_TYPE = 12;
+    /* package */ static final int METHOD_HANDLE = 15;
+    /* package */ static final int METHOD_TYPE = 16;
+    /* package */ static final int DYNAMIC = 17;
+    /* package */ static final int INVOKE_DYNAMIC = 18;
+    /* package */ static final int MODULE = 19;
+    /* package */ static final int PACKAGE = 20;
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final byte[] data;
+    private final int[] offsets;
+    private final String[] strings;
+    private final int end;
+
+    private ConstantPool(byte[] data, int[] offsets, int end) {
+        this.data = data;
+        this.offsets = offsets;
+        this.strings = new String[offsets.length];
+        this.end = end;
+    }
+
+    /**
+     * Return the number of entries in the constant pool, including the unused zero index.
+     *
+     * @return the constant pool count
+     */
+    /* package */ int count() {
+        return offsets.length;
+    }
+
+    /**
+     * Return the offset of the first byte after the constant pool.
+     *
+     * @return the end of the constant pool
+     */
+    /* package */ int end() {
+        return end;
+    }
+
+    /**
+     * Return the offset of the specified entry's tag byte, or zero if the index is unused.
+     *
+     * @param index the index of the entry
+     * @return the offset of the entry
+     */
+    /* package */ int offset(int index) {
+        return offsets[index];
+    }
+
+    /* package */ int tag(int index) {
+        int offset = offsets[index];
+        return offset == 0 ? 0 : data[offset];
+    }
+
+    /* package */ String utf8(int index) {
+        String result = strings[index];
+        if (result == null) {
+            checkArgument(tag(index) == UTF8, "Constant %s isn't a utf8 entry", index);
+            int offset = offsets[index];
+            int length = u2(data, offset + 1);
+            if (isAscii(data, offset + 3, length)) {
+                result = new String(data, offset + 3, length, Charsets.ISO_8859_1);
+            } else {
+                try {
+                    // The constant pool uses the same 'modified utf8' as DataInput
+                    result = new DataInputStream(new ByteArrayInputStream(data, offset + 1, length + 2)).readUTF();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Invalid utf8 constant " + index, e);
+                }
+            }
+            strings[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Return the internal name referenced by the specified class entry.
+     *
+     * @param index the index of the class entry
+     * @return the class name
+     */
+    /* package */ String className(int index) {
+        checkArgument(tag(index) == CLASS, "Constant %s isn't a class entry", index);
+        return utf8(u2(data, offsets[index] + 1));
+    }
+
+    private static boolean isAscii(byte[] data, int start, int length) {
+        for (int i = start, end = start + length; i < end; i++) {
+            if (data[i] <= 0) return false; // Non-ascii or an encoded null
+        }
+        return true;
+    }
+
+    /**
+     * Parse the constant pool of the specified class file.
+     *
+     * @param data the bytes of the class file
+     * @return the constant pool
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    /* package */ static ConstantPool parse(byte[] data) {
+        checkArgument(data.length >= 10 && u4(data, 0) == MAGIC, "Invalid class file magic");
+        int count = u2(data, 8);
+        int[] offsets = new int[count];
+        int offset = 10;
+        try {
+            for (int index = 1; index < count; index++) {
+                offsets[index] = offset;
+                int tag = data[offset];
+                switch (tag) {
+                    case UTF8:
+                        offset += 3 + u2(data, offset + 1);
+                        break;
+                    case INTEGER:
+                    case FLOAT:
+                    case FIELD_REF:
+                    case METHOD_REF:
+                    case INTERFACE_METHOD_REF:
+                    case NAME_AND_TYPE:
+                    case DYNAMIC:
+                    case INVOKE_DYNAMIC:
+                        offset += 5;
+                        break;
+                    case LONG:
+                    case DOUBLE:
+                        offset += 9;
+                        index++; // Takes up two slots
+                        break;
+                    case CLASS:
+                    case STRING:
+                    case METHOD_TYPE:
+                    case MODULE:
+                    case PACKAGE:
+                        offset += 3;
+                        break;
+                    case METHOD_HANDLE:
+                        offset += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at index " + index);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated constant pool", e);
+        }
+        checkArgument(offset <= data.length, "Truncated constant pool");
+        return new ConstantPool(data, offsets, offset);
+    }
+
+    /* package */ static int u2(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    /* package */ static int u4(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24)
+                | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8)
+                | (data[offset + 3] & 0xFF);
+    }
+}
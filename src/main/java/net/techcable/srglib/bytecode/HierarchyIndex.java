@@ -0,0 +1,438 @@
+package net.techcable.srglib.bytecode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import static java.util.Objects.*;
+
+/**
+ * A class hierarchy stored in a compact binary file, which is memory-mapped instead of being read into the heap.
+ * <p>
+ * Indexes are meant to be built once for each jar and then cached on disk,
+ * so later runs don't need to read every class file again.
+ * {@link #open(Path, Path)} keys the cached indexes by the SHA-256 of the jar's contents,
+ * so an index is only rebuilt when the jar actually changes.
+ * </p>
+ * <p>
+ * The file contains a string table, a record for each class, and an open-addressing hash table
+ * from the class names to their records. Classes are decoded lazily the first time they're requested,
+ * but the bounds of every string and record are checked when the index is loaded.
+ * </p>
+ */
+public final class HierarchyIndex implements ClassHierarchy {
+    private static final int MAGIC = 0x53524748; // 'SRGH'
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final String EXTENSION = ".hierarchy";
+    private static final int NO_SUPERCLASS = -1;
+
+    private final Path path;
+    private final ByteBuffer data;
+    private final int classCount;
+    private final int stringCount;
+    private final int stringOffsetsStart;
+    private final int tableStart;
+    private final int tableSize;
+    private final ConcurrentMap<String, ClassInfo> decodedClasses = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile ImmutableSet<String> classNames;
+
+    private HierarchyIndex(Path path, ByteBuffer data) throws IOException {
+        this.path = path;
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Invalid hierarchy index: " + path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported hierarchy index version " + data.getInt(4) + ": " + path);
+        }
+        this.classCount = data.getInt(8);
+        this.stringCount = data.getInt(12);
+        this.stringOffsetsStart = data.getInt(16);
+        this.tableStart = data.getInt(20);
+        this.tableSize = data.getInt(24);
+        if (classCount < 0
+                || stringCount < 0
+                || Integer.bitCount(tableSize) != 1
+                || stringOffsetsStart < HEADER_SIZE
+                || (long) stringOffsetsStart + stringCount * 4L > data.capacity()
+                || tableStart < HEADER_SIZE
+                || (long) tableStart + tableSize * 8L != data.capacity()) {
+            throw new IOException("Corrupted hierarchy index: " + path);
+        }
+        validate();
+    }
+
+    /**
+     * Check that every string and record lies within its section of the file,
+     * so a truncated or corrupted index is rejected up front instead of failing on some later lookup.
+     */
+    private void validate() throws IOException {
+        for (int id = 0; id < stringCount; id++) {
+            int offset = data.getInt(stringOffsetsStart + id * 4);
+            checkBounds(offset, 4, HEADER_SIZE, stringOffsetsStart);
+            checkBounds(offset + 4, data.getInt(offset), HEADER_SIZE, stringOffsetsStart);
+        }
+        int recordsStart = stringOffsetsStart + stringCount * 4;
+        int records = 0;
+        for (int slot = 0; slot < tableSize; slot++) {
+            int record = data.getInt(tableStart + slot * 8 + 4);
+            if (record == 0) continue;
+            records++;
+            checkBounds(record, 16, recordsStart, tableStart);
+            checkString(data.getInt(record));
+            int superId = data.getInt(record + 8);
+            if (superId != NO_SUPERCLASS) checkString(superId);
+            int interfaceCount = data.getInt(record + 12);
+            int offset = record + 16;
+            checkBounds(offset, interfaceCount * 4L, recordsStart, tableStart);
+            for (int i = 0; i < interfaceCount; i++, offset += 4) {
+                checkString(data.getInt(offset));
+            }
+            for (int table = 0; table < 2; table++) { // fields, then methods
+                checkBounds(offset, 4, recordsStart, tableStart);
+                int memberCount = data.getInt(offset);
+                offset += 4;
+                checkBounds(offset, memberCount * 8L, recordsStart, tableStart);
+                for (int i = 0; i < memberCount; i++, offset += 8) {
+                    checkString(data.getInt(offset));
+                }
+            }
+        }
+        if (records != classCount) throw new IOException("Corrupted hierarchy index: " + path);
+    }
+
+    private void checkString(int id) throws IOException {
+        if (id < 0 || id >= stringCount) throw new IOException("Corrupted hierarchy index: " + path);
+    }
+
+    private void checkBounds(long offset, long length, int start, int end) throws IOException {
+        if (length < 0 || offset < start || offset + length > end) {
+            throw new IOException("Corrupted hierarchy index: " + path);
+        }
+    }
+
+    /**
+     * Return the path of the index file.
+     *
+     * @return the path of the index
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Nullable
+    @Override
+    public ClassInfo getInfo(String internalName) {
+        ClassInfo result = decodedClasses.get(requireNonNull(internalName, "Null name"));
+        if (result == null) {
+            int record = findRecord(internalName);
+            if (record < 0) return null;
+            result = decodeClass(record);
+            decodedClasses.putIfAbsent(internalName, result);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> classNames() {
+        ImmutableSet<String> classNames = this.classNames;
+        if (classNames == null) {
+            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+            for (int slot = 0; slot < tableSize; slot++) {
+                int record = data.getInt(tableStart + slot * 8 + 4);
+                if (record != 0) builder.add(string(data.getInt(record)));
+            }
+            this.classNames = classNames = builder.build();
+        }
+        return classNames;
+    }
+
+    private int findRecord(String internalName) {
+        byte[] name = internalName.getBytes(Charsets.UTF_8);
+        int hash = hash(name);
+        int mask = tableSize - 1;
+        for (int slot = hash & mask, probes = 0; probes < tableSize; slot = (slot + 1) & mask, probes++) {
+            int entry = tableStart + slot * 8;
+            int record = data.getInt(entry + 4);
+            if (record == 0) return -1; // Empty slot
+            if (data.getInt(entry) == hash && stringEquals(data.getInt(record), name)) return record;
+        }
+        return -1;
+    }
+
+    private ClassInfo decodeClass(int offset) {
+        String name = string(data.getInt(offset));
+        int access = data.getInt(offset + 4);
+        int superId = data.getInt(offset + 8);
+        int interfaceCount = data.getInt(offset + 12);
+        offset += 16;
+        ImmutableList.Builder<String> interfaces = ImmutableList.builder();
+        for (int i = 0; i < interfaceCount; i++, offset += 4) {
+            interfaces.add(string(data.getInt(offset)));
+        }
+        ImmutableMap.Builder<String, Integer> fields = ImmutableMap.builder();
+        offset = decodeMembers(offset, fields);
+        ImmutableMap.Builder<String, Integer> methods = ImmutableMap.builder();
+        decodeMembers(offset, methods);
+        return ClassInfo.create(
+                access,
+                name,
+                superId != NO_SUPERCLASS ? string(superId) : null,
+                interfaces.build(),
+                fields.build(),
+                methods.build()
+        );
+    }
+
+    private int decodeMembers(int offset, ImmutableMap.Builder<String, Integer> result) {
+        int count = data.getInt(offset);
+        offset += 4;
+        for (int i = 0; i < count; i++, offset += 8) {
+            result.put(string(data.getInt(offset)), data.getInt(offset + 4));
+        }
+        return offset;
+    }
+
+    private String string(int id) {
+        int offset = data.getInt(stringOffsetsStart + id * 4);
+        byte[] bytes = new byte[data.getInt(offset)];
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(offset + 4);
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    private boolean stringEquals(int id, byte[] expected) {
+        int offset = data.getInt(stringOffsetsStart + id * 4);
+        if (data.getInt(offset) != expected.length) return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (data.get(offset + 4 + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static int hash(byte[] name) {
+        int hash = Arrays.hashCode(name);
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "HierarchyIndex(" + path + ", " + classCount + " classes)";
+    }
+
+    /**
+     * Open the cached index of the specified jar, building it if the jar hasn't been indexed yet.
+     * <p>
+     * The index is stored in the cache directory, named by the SHA-256 hash of the jar's contents.
+     * New indexes are written to a temporary file and then atomically moved into place,
+     * so concurrent builds never see a partially written index.
+     * </p>
+     *
+     * @param jar the jar to index
+     * @param cacheDirectory the directory which contains the cached indexes
+     * @return the index of the jar
+     * @throws IOException if an error occurs reading the jar or writing the index
+     */
+    public static HierarchyIndex open(Path jar, Path cacheDirectory) throws IOException {
+        HashCode hash = com.google.common.io.Files.asByteSource(jar.toFile()).hash(Hashing.sha256());
+        Path indexFile = cacheDirectory.resolve(hash + EXTENSION);
+        if (Files.exists(indexFile)) {
+            try {
+                return load(indexFile);
+            } catch (IOException ignored) {
+                // Rebuild invalid or outdated indexes
+            }
+        }
+        Files.createDirectories(cacheDirectory);
+        Path temp = Files.createTempFile(cacheDirectory, hash.toString(), ".tmp");
+        try {
+            write(ClassHierarchy.readJar(jar), temp);
+            try {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return load(indexFile);
+    }
+
+    /**
+     * Memory-map the specified index file.
+     *
+     * @param indexFile the index file to load
+     * @return the index
+     * @throws IOException if an error occurs reading the file, or it isn't a valid index
+     */
+    public static HierarchyIndex load(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Hierarchy index is too large: " + indexFile);
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new HierarchyIndex(indexFile, data);
+        }
+    }
+
+    /**
+     * Write an index of the specified hierarchy to the specified file.
+     *
+     * @param hierarchy the hierarchy to index
+     * @param indexFile the file to write the index to
+     * @throws IOException if an error occurs writing the index
+     */
+    public static void write(ClassHierarchy hierarchy, Path indexFile) throws IOException {
+        List<ClassInfo> classes = hierarchy.classNames().stream()
+                .map(hierarchy::getInfo)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        // Assign every string an id, and encode the class records
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        GrowableBuffer records = new GrowableBuffer();
+        int[] recordOffsets = new int[classes.size()];
+        for (int i = 0; i < classes.size(); i++) {
+            ClassInfo info = classes.get(i);
+            recordOffsets[i] = records.size();
+            records.putInt(stringId(strings, info.getName()));
+            records.putInt(info.getAccess());
+            records.putInt(info.getSuperName() != null ? stringId(strings, info.getSuperName()) : NO_SUPERCLASS);
+            records.putInt(info.getInterfaces().size());
+            for (String interfaceName : info.getInterfaces()) {
+                records.putInt(stringId(strings, interfaceName));
+            }
+            for (Map<String, Integer> members : ImmutableList.of(info.getFields(), info.getMethods())) {
+                records.putInt(members.size());
+                for (Map.Entry<String, Integer> member : members.entrySet()) {
+                    records.putInt(stringId(strings, member.getKey()));
+                    records.putInt(member.getValue());
+                }
+            }
+        }
+        GrowableBuffer stringData = new GrowableBuffer();
+        int[] stringOffsets = new int[strings.size()];
+        byte[][] encodedNames = new byte[classes.size()][];
+        int index = 0;
+        for (String string : strings.keySet()) {
+            stringOffsets[index++] = stringData.size();
+            byte[] bytes = string.getBytes(Charsets.UTF_8);
+            stringData.putInt(bytes.length);
+            stringData.put(bytes);
+        }
+        for (int i = 0; i < classes.size(); i++) {
+            encodedNames[i] = classes.get(i).getName().getBytes(Charsets.UTF_8);
+        }
+        // Lay out the file: header, strings, string offsets, records, then the hash table
+        int stringsStart = HEADER_SIZE;
+        int stringOffsetsStart = stringsStart + stringData.size();
+        int recordsStart = stringOffsetsStart + stringOffsets.length * 4;
+        int tableStart = recordsStart + records.size();
+        // Keep the table at most half full, so probe sequences stay short
+        int tableSize = Integer.highestOneBit(Math.max(1, classes.size()) * 2 - 1) << 1;
+        ByteBuffer result = ByteBuffer.allocate(Math.toIntExact(tableStart + tableSize * 8L));
+        result.putInt(MAGIC);
+        result.putInt(VERSION);
+        result.putInt(classes.size());
+        result.putInt(strings.size());
+        result.putInt(stringOffsetsStart);
+        result.putInt(tableStart);
+        result.putInt(tableSize);
+        result.putInt(0); // Reserved
+        result.put(stringData.array(), 0, stringData.size());
+        for (int offset : stringOffsets) {
+            result.putInt(stringsStart + offset);
+        }
+        // The string ids in the records don't depend on the position, but the table needs absolute offsets
+        result.put(records.array(), 0, records.size());
+        int mask = tableSize - 1;
+        for (int i = 0; i < classes.size(); i++) {
+            int hash = hash(encodedNames[i]);
+            int slot = hash & mask;
+            while (result.getInt(tableStart + slot * 8 + 4) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            result.putInt(tableStart + slot * 8, hash);
+            result.putInt(tableStart + slot * 8 + 4, recordsStart + recordOffsets[i]);
+        }
+        result.clear();
+        try (FileChannel channel = FileChannel.open(
+                indexFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            while (result.hasRemaining()) {
+                channel.write(result);
+            }
+        }
+    }
+
+    private static int stringId(Map<String, Integer> strings, String string) {
+        Integer id = strings.get(string);
+        if (id == null) {
+            id = strings.size();
+            strings.put(string, id);
+        }
+        return id;
+    }
+
+    /**
+     * A simple big-endian byte buffer that grows as needed.
+     */
+    private static final class GrowableBuffer {
+        private byte[] array = new byte[4096];
+        private int size;
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > array.length) {
+                array = Arrays.copyOf(array, Math.max(array.length * 2, size + additional));
+            }
+        }
+
+        private void putInt(int value) {
+            ensureCapacity(4);
+            array[size++] = (byte) (value >>> 24);
+            array[size++] = (byte) (value >>> 16);
+            array[size++] = (byte) (value >>> 8);
+            array[size++] = (byte) value;
+        }
+
+        private void put(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, array, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] array() {
+            return array;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package net.techcable.srglib.bytecode;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+
+import static com.google.common.base.Preconditions.*;
+import static java.util.Objects.*;
+
+/**
+ * Remaps all the classes in a jar file.
+ * <p>
+ * Classes are inflated, remapped and deflated again in parallel,
+ * but the output entries are always written in the same order as the input.
+ * Resources and classes that don't change are copied without ever decompressing them,
+ * transferring their data directly between the files where the platform supports it.
+ * </p>
+ * <p>
+ * To bound memory usage, only a limited number of bytes of classes can be in-flight at once,
+ * so remapping stays ahead of writing without buffering the whole jar.
+ * </p>
+ * <p>
+ * Remapped classes can also be cached on disk with {@link #withCacheDirectory(Path)},
+ * so remapping a new build of a jar only has to remap the classes which changed.
+ * </p>
+ * <p>
+ * Remappers are immutable and thread-safe.
+ * </p>
+ */
+public final class JarRemapper {
+    private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64 * 1024 * 1024;
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+    /**
+     * The version of the cache format and remapping logic, which must change whenever either does.
+     */
+    private static final int CACHE_VERSION = 1;
+    private static final String CACHE_EXTENSION = ".remapped";
+    private static final byte CACHE_UNCHANGED = 0;
+    private static final byte CACHE_REMAPPED = 1;
+    private static final int CACHE_HEADER_SIZE = 9;
+    private final ClassRemapper remapper;
+    private final Executor executor;
+    private final long maxInFlightBytes;
+    @Nullable
+    private final Path cacheDirectory;
+    /**
+     * The hash of the mappings, which is part of the key of every cached class.
+     */
+    @Nullable
+    private final HashCode mappingsFingerprint;
+
+    private JarRemapper(
+            ClassRemapper remapper,
+            Executor executor,
+            long maxInFlightBytes,
+            @Nullable Path cacheDirectory,
+            @Nullable HashCode mappingsFingerprint
+    ) {
+        this.remapper = requireNonNull(remapper, "Null remapper");
+        this.executor = requireNonNull(executor, "Null executor");
+        checkArgument(maxInFlightBytes > 0, "Invalid max in-flight bytes: %s", maxInFlightBytes);
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.cacheDirectory = cacheDirectory;
+        this.mappingsFingerprint = mappingsFingerprint;
+    }
+
+    /**
+     * Return the remapper used to remap the classes.
+     *
+     * @return the class remapper
+     */
+    public ClassRemapper getRemapper() {
+        return remapper;
+    }
+
+    /**
+     * Return a jar remapper which runs its work on the specified executor.
+     * <p>
+     * The default is the common {@link ForkJoinPool}.
+     * </p>
+     *
+     * @param executor the executor to use
+     * @return a remapper using the executor
+     */
+    public JarRemapper withExecutor(Executor executor) {
+        return new JarRemapper(remapper, executor, maxInFlightBytes, cacheDirectory, mappingsFingerprint);
+    }
+
+    /**
+     * Return a jar remapper which keeps at most the specified number of bytes of classes in memory.
+     * <p>
+     * This limit is a soft limit, since a single class larger than the limit is still remapped.
+     * The default is 64 MB.
+     * </p>
+     *
+     * @param maxInFlightBytes the maximum number of bytes to keep in memory
+     * @return a remapper using the limit
+     * @throws IllegalArgumentException if the limit isn't positive
+     */
+    public JarRemapper withMaxInFlightBytes(long maxInFlightBytes) {
+        return new JarRemapper(remapper, executor, maxInFlightBytes, cacheDirectory, mappingsFingerprint);
+    }
+
+    /**
+     * Return a jar remapper which caches the remapped classes in the specified directory.
+     * <p>
+     * Each class is cached under a hash of its compressed data and a fingerprint of the mappings,
+     * so only classes which changed need to be remapped again, unless the mappings changed too.
+     * The input jar still has to be read and hashed, but that's much cheaper than remapping it.
+     * Since cached classes are never invalid, the directory can be shared between builds and processes,
+     * but old classes are never deleted from it.
+     * </p>
+     * <p>
+     * Computing the fingerprint requires writing out all the mappings, so it's only done once here.
+     * The default is to not cache anything.
+     * </p>
+     *
+     * @param cacheDirectory the directory to cache classes in, or null to disable caching
+     * @return a remapper using the cache
+     */
+    public JarRemapper withCacheDirectory(@Nullable Path cacheDirectory) {
+        HashCode fingerprint = null;
+        if (cacheDirectory != null) {
+            fingerprint = mappingsFingerprint != null ? mappingsFingerprint : fingerprint(remapper.getMappings());
+        }
+        return new JarRemapper(remapper, executor, maxInFlightBytes, cacheDirectory, fingerprint);
+    }
+
+    /**
+     * Return the directory the remapped classes are cached in.
+     *
+     * @return the cache directory, or null if caching is disabled
+     */
+    @Nullable
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    private static HashCode fingerprint(Mappings mappings) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        // The sorted mappings are always written the same way
+        try (Writer writer = new OutputStreamWriter(Funnels.asOutputStream(hasher), StandardCharsets.UTF_8)) {
+            MappingsFormat.SEARGE_FORMAT.write(mappings.snapshot().sorted(), writer);
+        } catch (IOException e) {
+            throw new AssertionError("Hasher threw IOException", e);
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Remap the specified jar, writing the result to the output file.
+     * <p>
+     * The output is written to a temporary file first, then moved into place once it's complete,
+     * so the output file is never left partially written.
+     * </p>
+     *
+     * @param input the jar to remap
+     * @param output where to write the remapped jar
+     * @throws IOException if an error occurs reading or writing the jars, or a class file is invalid
+     */
+    public void remap(Path input, Path output) throws IOException {
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        boolean success = false;
+        if (cacheDirectory != null) Files.createDirectories(cacheDirectory);
+        try {
+            try (RawZipFile in = RawZipFile.open(input); RawZipWriter out = RawZipWriter.create(temp)) {
+                remap(in, out);
+            }
+            try {
+                Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+            success = true;
+        } finally {
+            if (!success) Files.deleteIfExists(temp);
+        }
+    }
+
+    private void remap(RawZipFile in, RawZipWriter out) throws IOException {
+        List<RawZipEntry> entries = in.entries();
+        List<CompletableFuture<RemappedEntry>> pending = new ArrayList<>(entries.size());
+        long inFlightBytes = 0;
+        try {
+            for (int written = 0; written < entries.size(); written++) {
+                // Keep submitting classes until we run out of memory, but always submit the class we need next
+                while (pending.size() < entries.size() && (pending.size() == written || inFlightBytes < maxInFlightBytes)) {
+                    RawZipEntry entry = entries.get(pending.size());
+                    if (isClass(entry)) {
+                        inFlightBytes += inFlightSize(entry);
+                        pending.add(CompletableFuture.supplyAsync(() -> remapClass(in, entry), executor));
+                    } else {
+                        pending.add(null);
+                    }
+                }
+                RawZipEntry entry = entries.get(written);
+                CompletableFuture<RemappedEntry> future = pending.set(written, null);
+                if (future == null) {
+                    out.transfer(entry, in);
+                } else {
+                    RemappedEntry result = join(entry, future);
+                    inFlightBytes -= inFlightSize(entry);
+                    if (result.data == null) {
+                        out.transfer(result.entry, in);
+                    } else {
+                        out.write(result.entry, result.data);
+                    }
+                }
+            }
+        } finally {
+            // If we failed, don't bother finishing the remaining classes
+            for (CompletableFuture<RemappedEntry> future : pending) {
+                if (future != null) future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Remap the name of the specified entry, if it's a class.
+     * <p>
+     * Classes in the versioned directories of multi-release jars are remapped too.
+     * </p>
+     *
+     * @param name the original name of the entry
+     * @return the new name of the entry
+     */
+    public String remapEntryName(String name) {
+        if (!name.endsWith(CLASS_SUFFIX)) return name;
+        int start = 0;
+        if (name.startsWith(VERSIONS_PREFIX)) {
+            int versionEnd = name.indexOf('/', VERSIONS_PREFIX.length());
+            if (versionEnd < 0) return name;
+            start = versionEnd + 1;
+        }
+        String className = name.substring(start, name.length() - CLASS_SUFFIX.length());
+        String remapped = remapper.remapClassName(className);
+        if (remapped.equals(className)) return name;
+        return name.substring(0, start) + remapped + CLASS_SUFFIX;
+    }
+
+    private RemappedEntry remapClass(RawZipFile in, RawZipEntry entry) {
+        try {
+            String name = remapEntryName(entry.getName());
+            if (cacheDirectory == null) return remapClass(entry, name, in.read(entry));
+            byte[] raw = in.readRaw(entry);
+            HashCode key = Hashing.sha256().newHasher()
+                    .putInt(CACHE_VERSION)
+                    .putBytes(requireNonNull(mappingsFingerprint).asBytes())
+                    .putInt(entry.getMethod())
+                    .putInt(entry.getCrc())
+                    .putLong(entry.getSize())
+                    .putBytes(raw)
+                    .hash();
+            Path cacheFile = cacheDirectory.resolve(key + CACHE_EXTENSION);
+            RemappedEntry result = readCache(cacheFile, entry, name);
+            if (result == null) {
+                result = remapClass(entry, name, RawZipFile.decompress(entry, raw));
+                writeCache(cacheFile, key, result);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RemappedEntry remapClass(RawZipEntry entry, String name, byte[] original) throws IOException {
+        byte[] remapped;
+        try {
+            remapped = remapper.remap(original);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid class file " + entry, e);
+        }
+        if (remapped == original) {
+            // Nothing changed, so we can copy the original data without compressing it again
+            return unchanged(entry, name);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(remapped);
+        byte[] compressed = deflate(remapped);
+        return new RemappedEntry(
+                entry.withData(name, RawZipEntry.DEFLATED, (int) crc.getValue(), compressed.length, remapped.length),
+                ByteBuffer.wrap(compressed)
+        );
+    }
+
+    private static RemappedEntry unchanged(RawZipEntry entry, String name) {
+        return new RemappedEntry(entry.withData(name, entry.getMethod(), entry.getCrc(), entry.getCompressedSize(), entry.getSize()), null);
+    }
+
+    /**
+     * Read the cached result of remapping the specified entry.
+     *
+     * @return the cached result, or null if it isn't cached or the cache file is invalid
+     */
+    @Nullable
+    private static RemappedEntry readCache(Path cacheFile, RawZipEntry entry, String name) throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(cacheFile);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (data.length < CACHE_HEADER_SIZE) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte status = buffer.get();
+        int crc = buffer.getInt();
+        int size = buffer.getInt();
+        if (status == CACHE_UNCHANGED && data.length == CACHE_HEADER_SIZE) {
+            return unchanged(entry, name);
+        } else if (status == CACHE_REMAPPED && size >= 0) {
+            return new RemappedEntry(entry.withData(name, RawZipEntry.DEFLATED, crc, buffer.remaining(), size), buffer.slice());
+        } else {
+            return null;
+        }
+    }
+
+    private void writeCache(Path cacheFile, HashCode key, RemappedEntry result) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CACHE_HEADER_SIZE);
+        header.put(result.data != null ? CACHE_REMAPPED : CACHE_UNCHANGED);
+        header.putInt(result.entry.getCrc());
+        header.putInt(Math.toIntExact(result.entry.getSize()));
+        header.flip();
+        // Write to a temporary file first, so other remappers never see a partially written class
+        Path temp = Files.createTempFile(requireNonNull(cacheDirectory), key.toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) channel.write(header);
+                if (result.data != null) {
+                    ByteBuffer data = result.data.duplicate();
+                    while (data.hasRemaining()) channel.write(data);
+                }
+            }
+            try {
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static RemappedEntry join(RawZipEntry entry, CompletableFuture<RemappedEntry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException("Unable to remap " + entry, cause);
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] result = new byte[data.length / 2 + 64];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == result.length) result = Arrays.copyOf(result, result.length * 2);
+                size += deflater.deflate(result, size, result.length - size);
+            }
+            return Arrays.copyOf(result, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static boolean isClass(RawZipEntry entry) {
+        return !entry.isDirectory() && entry.getName().endsWith(CLASS_SUFFIX);
+    }
+
+    private static long inFlightSize(RawZipEntry entry) {
+        return entry.getCompressedSize() + entry.getSize();
+    }
+
+    private static final class RemappedEntry {
+        private final RawZipEntry entry;
+        /**
+         * The new compressed data, or null to copy the original data.
+         */
+        @Nullable
+        private final ByteBuffer data;
+
+        private RemappedEntry(RawZipEntry entry, @Nullable ByteBuffer data) {
+            this.entry = entry;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Create a jar remapper for the specified mappings.
+     *
+     * @param mappings the mappings to apply
+     * @return a new jar remapper
+     */
+    public static JarRemapper create(Mappings mappings) {
+        return create(ClassRemapper.create(mappings));
+    }
+
+    /**
+     * Create a jar remapper which remaps classes with the specified remapper.
+     *
+     * @param remapper the remapper to use
+     * @return a new jar remapper
+     */
+    public static JarRemapper create(ClassRemapper remapper) {
+        return new JarRemapper(remapper, ForkJoinPool.commonPool(), DEFAULT_MAX_IN_FLIGHT_BYTES, null, null);
+    }
+}
@@ -0,0 +1,275 @@
+package net.techcable.srglib.bytecode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.ImmutableLists;
+
+/**
+ * Propagates method mappings to the other methods in their override families.
+ * <p>
+ * Every class is connected to every other class through {@code java/lang/Object},
+ * so the class hierarchy itself is a single huge component.
+ * However, a method can only override methods with the same name and descriptor,
+ * so the hierarchy splits into an independent graph for each mapped name and descriptor,
+ * containing only the classes that declare it.
+ * The connected components of each graph are the override families,
+ * which are found with a union-find and processed in parallel.
+ * </p>
+ * <p>
+ * A class can also implement an interface method with one it inherits from its superclass,
+ * without declaring anything itself, so those two methods are joined through the class that implements the interface.
+ * These links are found up front, in a single pass over the classes which implement interfaces,
+ * looking only at the mapped methods of their interfaces.
+ * </p>
+ * <p>
+ * If two methods in the same family are explicitly mapped to different names,
+ * no name would keep them overriding each other, so the mappings are rejected.
+ * </p>
+ */
+/* package */ final class MethodPropagator {
+    private MethodPropagator() {}
+
+    /* package */ static ImmutableMappings propagate(ClassHierarchy hierarchy, Mappings mappings) {
+        // Group the explicitly mapped methods by their name and descriptor
+        Map<String, List<MethodData>> explicitMethods = new LinkedHashMap<>();
+        mappings.forEachMethod((original, renamed) -> {
+            String key = ClassInfo.methodKey(original.getName(), original.getSignature().getDescriptor());
+            explicitMethods.computeIfAbsent(key, k -> new ArrayList<>()).add(original);
+        });
+        // Find the classes which declare each of the mapped methods
+        Map<String, List<ClassInfo>> declarers = new HashMap<>();
+        Map<String, List<InheritedLink>> inheritedLinks = new HashMap<>();
+        for (String className : hierarchy.classNames()) {
+            ClassInfo info = hierarchy.getInfo(className);
+            if (info == null) continue;
+            if (!info.isInterface() && !info.getInterfaces().isEmpty()) {
+                findInheritedLinks(hierarchy, info, explicitMethods.keySet(), inheritedLinks);
+            }
+            info.getMethods().forEach((key, access) -> {
+                if (isOverridable(access) && explicitMethods.containsKey(key)) {
+                    declarers.computeIfAbsent(key, k -> new ArrayList<>()).add(info);
+                }
+            });
+        }
+        ImmutableList<List<PropagatedMethod>> propagated = explicitMethods.entrySet().parallelStream()
+                .map(entry -> propagateFamilies(
+                        hierarchy,
+                        mappings,
+                        entry.getKey(),
+                        entry.getValue(),
+                        declarers.getOrDefault(entry.getKey(), Collections.emptyList()),
+                        inheritedLinks.getOrDefault(entry.getKey(), Collections.emptyList())
+                ))
+                .collect(ImmutableLists.collector());
+        ImmutableBiMap.Builder<JavaType, JavaType> classes = ImmutableBiMap.builder();
+        mappings.forEachClass(classes::put);
+        ImmutableBiMap.Builder<FieldData, FieldData> fields = ImmutableBiMap.builder();
+        mappings.forEachField(fields::put);
+        ImmutableBiMap.Builder<MethodData, MethodData> methods = ImmutableBiMap.builder();
+        mappings.forEachMethod(methods::put);
+        for (List<PropagatedMethod> family : propagated) {
+            for (PropagatedMethod method : family) {
+                methods.put(method.original, mappings.getNewMethod(method.original).withName(method.newName));
+            }
+        }
+        return ImmutableMappings.create(classes.build(), methods.build(), fields.build());
+    }
+
+    private static List<PropagatedMethod> propagateFamilies(
+            ClassHierarchy hierarchy,
+            Mappings mappings,
+            String key,
+            List<MethodData> explicitMethods,
+            List<ClassInfo> declarers,
+            List<InheritedLink> inheritedLinks
+    ) {
+        if (declarers.size() < 2) return Collections.emptyList(); // Nothing to override
+        Map<String, ClassInfo> declarersByName = new HashMap<>(declarers.size());
+        for (ClassInfo declarer : declarers) {
+            declarersByName.put(declarer.getName(), declarer);
+        }
+        // Union each method with the methods it overrides
+        Map<String, String> parents = new HashMap<>(declarers.size());
+        for (ClassInfo declarer : declarers) {
+            forEachAncestor(hierarchy, declarer, ancestorName -> {
+                ClassInfo ancestor = declarersByName.get(ancestorName);
+                if (ancestor != null && overrides(declarer, ancestor, ancestor.getMethods().get(key))) {
+                    union(parents, declarer.getName(), ancestor.getName());
+                }
+            });
+        }
+        for (InheritedLink link : inheritedLinks) {
+            union(parents, link.inherited, link.interfaceName);
+        }
+        // Give each family the name of its explicitly mapped methods, which must all agree
+        Set<String> explicitOwners = new HashSet<>();
+        Map<String, MethodData> familyMethods = new HashMap<>();
+        Map<String, String> familyNames = new HashMap<>();
+        for (MethodData method : explicitMethods) {
+            String owner = method.getDeclaringType().getInternalName();
+            explicitOwners.add(owner);
+            if (!declarersByName.containsKey(owner)) continue;
+            String family = find(parents, owner), newName = mappings.getNewMethod(method).getName();
+            String existingName = familyNames.putIfAbsent(family, newName);
+            if (existingName != null && !existingName.equals(newName)) {
+                throw new IllegalArgumentException(String.format(
+                        "%s is mapped to %s, but overrides %s, which is mapped to %s",
+                        method,
+                        newName,
+                        familyMethods.get(family),
+                        existingName
+                ));
+            }
+            familyMethods.putIfAbsent(family, method);
+        }
+        MethodData template = explicitMethods.get(0);
+        List<PropagatedMethod> result = new ArrayList<>();
+        for (ClassInfo declarer : declarers) {
+            if (explicitOwners.contains(declarer.getName())) continue;
+            String newName = familyNames.get(find(parents, declarer.getName()));
+            if (newName == null || newName.equals(template.getName())) continue;
+            JavaType owner;
+            try {
+                owner = JavaType.fromInternalName(declarer.getName());
+            } catch (IllegalArgumentException e) {
+                continue; // The mappings can't represent this class
+            }
+            result.add(new PropagatedMethod(MethodData.create(owner, template.getName(), template.getSignature()), newName));
+        }
+        return result;
+    }
+
+    /**
+     * Find the mapped interface methods the class implements with methods inherited from its superclasses.
+     * <p>
+     * Only the nearest superclass declaring each method matters, since that's the implementation the class inherits.
+     * Methods the class declares itself are already joined with the interface methods they override.
+     * </p>
+     */
+    private static void findInheritedLinks(
+            ClassHierarchy hierarchy,
+            ClassInfo info,
+            Set<String> mappedKeys,
+            Map<String, List<InheritedLink>> inheritedLinks
+    ) {
+        Map<String, List<String>> interfaceMethods = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        Queue<String> queue = new ArrayDeque<>(info.getInterfaces());
+        String interfaceName;
+        while ((interfaceName = queue.poll()) != null) {
+            if (!visited.add(interfaceName)) continue;
+            ClassInfo interfaceInfo = hierarchy.getInfo(interfaceName);
+            if (interfaceInfo == null) continue;
+            String name = interfaceName;
+            interfaceInfo.getMethods().forEach((key, access) -> {
+                if (isOverridable(access) && mappedKeys.contains(key) && !info.getMethods().containsKey(key)) {
+                    interfaceMethods.computeIfAbsent(key, k -> new ArrayList<>()).add(name);
+                }
+            });
+            queue.addAll(interfaceInfo.getInterfaces());
+        }
+        visited.clear();
+        String superName = info.getSuperName();
+        while (!interfaceMethods.isEmpty() && superName != null && visited.add(superName)) {
+            ClassInfo superInfo = hierarchy.getInfo(superName);
+            if (superInfo == null) break;
+            for (Map.Entry<String, Integer> method : superInfo.getMethods().entrySet()) {
+                int access = method.getValue();
+                if (!isOverridable(access)) continue;
+                List<String> interfaceNames = interfaceMethods.remove(method.getKey());
+                if (interfaceNames == null || (access & ClassInfo.ACC_PUBLIC) == 0) continue;
+                List<InheritedLink> links = inheritedLinks.computeIfAbsent(method.getKey(), k -> new ArrayList<>());
+                for (String implemented : interfaceNames) {
+                    links.add(new InheritedLink(superName, implemented));
+                }
+            }
+            superName = superInfo.getSuperName();
+        }
+    }
+
+    private static void forEachAncestor(ClassHierarchy hierarchy, ClassInfo info, Consumer<String> action) {
+        Set<String> visited = new HashSet<>();
+        Queue<ClassInfo> queue = new ArrayDeque<>();
+        queue.add(info);
+        ClassInfo current;
+        while ((current = queue.poll()) != null) {
+            List<String> supertypes = new ArrayList<>(current.getInterfaces().size() + 1);
+            if (current.getSuperName() != null) supertypes.add(current.getSuperName());
+            supertypes.addAll(current.getInterfaces());
+            for (String supertype : supertypes) {
+                if (!visited.add(supertype)) continue;
+                action.accept(supertype);
+                ClassInfo supertypeInfo = hierarchy.getInfo(supertype);
+                if (supertypeInfo != null) queue.add(supertypeInfo);
+            }
+        }
+    }
+
+    private static boolean isOverridable(int access) {
+        return (access & (ClassInfo.ACC_PRIVATE | ClassInfo.ACC_STATIC)) == 0;
+    }
+
+    private static boolean overrides(ClassInfo subclass, ClassInfo superclass, int superAccess) {
+        if ((superAccess & (ClassInfo.ACC_PUBLIC | ClassInfo.ACC_PROTECTED)) != 0) return true;
+        // Package-private methods can only be overridden from the same package
+        return subclass.getPackageName().equals(superclass.getPackageName());
+    }
+
+    private static String find(Map<String, String> parents, String name) {
+        String root = name;
+        String parent;
+        while ((parent = parents.get(root)) != null) {
+            root = parent;
+        }
+        // Compress the path, so later lookups are faster
+        while (!name.equals(root)) {
+            String next = parents.get(name);
+            parents.put(name, root);
+            name = next;
+        }
+        return root;
+    }
+
+    private static void union(Map<String, String> parents, String first, String second) {
+        String firstRoot = find(parents, first), secondRoot = find(parents, second);
+        if (!firstRoot.equals(secondRoot)) parents.put(firstRoot, secondRoot);
+    }
+
+    private static final class InheritedLink {
+        private final String inherited;
+        private final String interfaceName;
+
+        private InheritedLink(String inherited, String interfaceName) {
+            this.inherited = inherited;
+            this.interfaceName = interfaceName;
+        }
+    }
+
+    private static final class PropagatedMethod {
+        private final MethodData original;
+        private final String newName;
+
+        private PropagatedMethod(MethodData original, String newName) {
+            this.original = original;
+            this.newName = newName;
+        }
+    }
+}
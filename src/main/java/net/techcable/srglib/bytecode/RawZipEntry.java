@@ -0,0 +1,174 @@
+package net.techcable.srglib.bytecode;
+
+import com.google.common.base.Charsets;
+
+import static java.util.Objects.*;
+
+/**
+ * An entry in the central directory of a zip file, whose data is still compressed.
+ */
+/* package */ final class RawZipEntry {
+    /* package */ static final int STORED = 0;
+    /* package */ static final int DEFLATED = 8;
+    /**
+     * The flag indicating the entry's sizes are in a trailing data descriptor.
+     */
+    /* package */ static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+    /**
+     * The flag indicating the entry's name is encoded as utf8.
+     */
+    /* package */ static final int UTF8_FLAG = 1 << 11;
+
+    private final String name;
+    private final byte[] rawName;
+    private final int versionMadeBy, versionNeeded;
+    private final int flags, method;
+    private final int time, date;
+    private final int crc;
+    private final long compressedSize, size;
+    private final int internalAttributes, externalAttributes;
+    private final long localHeaderOffset;
+    private final byte[] extra, comment;
+
+    /* package */ RawZipEntry(
+            byte[] rawName,
+            int versionMadeBy,
+            int versionNeeded,
+            int flags,
+            int method,
+            int time,
+            int date,
+            int crc,
+            long compressedSize,
+            long size,
+            int internalAttributes,
+            int externalAttributes,
+            long localHeaderOffset,
+            byte[] extra,
+            byte[] comment
+    ) {
+        this.rawName = requireNonNull(rawName, "Null name");
+        // Names without the utf8 flag are technically cp437, but in practice jar tools always use utf8
+        this.name = new String(rawName, Charsets.UTF_8);
+        this.versionMadeBy = versionMadeBy;
+        this.versionNeeded = versionNeeded;
+        this.flags = flags;
+        this.method = method;
+        this.time = time;
+        this.date = date;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.internalAttributes = internalAttributes;
+        this.externalAttributes = externalAttributes;
+        this.localHeaderOffset = localHeaderOffset;
+        this.extra = requireNonNull(extra, "Null extra");
+        this.comment = requireNonNull(comment, "Null comment");
+    }
+
+    /* package */ String getName() {
+        return name;
+    }
+
+    /* package */ byte[] getRawName() {
+        return rawName;
+    }
+
+    /* package */ boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    /* package */ int getVersionMadeBy() {
+        return versionMadeBy;
+    }
+
+    /* package */ int getVersionNeeded() {
+        return versionNeeded;
+    }
+
+    /* package */ int getFlags() {
+        return flags;
+    }
+
+    /* package */ int getMethod() {
+        return method;
+    }
+
+    /* package */ int getTime() {
+        return time;
+    }
+
+    /* package */ int getDate() {
+        return date;
+    }
+
+    /* package */ int getCrc() {
+        return crc;
+    }
+
+    /* package */ long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /* package */ long getSize() {
+        return size;
+    }
+
+    /* package */ int getInternalAttributes() {
+        return internalAttributes;
+    }
+
+    /* package */ int getExternalAttributes() {
+        return externalAttributes;
+    }
+
+    /* package */ long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    /* package */ byte[] getExtra() {
+        return extra;
+    }
+
+    /* package */ byte[] getComment() {
+        return comment;
+    }
+
+    /**
+     * Return a copy of this entry with the specified name and data.
+     *
+     * @param name the new name of the entry
+     * @param method the new compression method
+     * @param crc the crc32 of the uncompressed data
+     * @param compressedSize the size of the compressed data
+     * @param size the size of the uncompressed data
+     * @return the new entry
+     */
+    /* package */ RawZipEntry withData(String name, int method, int crc, long compressedSize, long size) {
+        byte[] rawName = name.equals(this.name) ? this.rawName : name.getBytes(Charsets.UTF_8);
+        int flags = this.flags & ~DATA_DESCRIPTOR_FLAG;
+        if (rawName != this.rawName) flags |= UTF8_FLAG;
+        return new RawZipEntry(
+                rawName,
+                versionMadeBy,
+                method == DEFLATED ? Math.max(versionNeeded, 20) : versionNeeded,
+                flags,
+                method,
+                time,
+                date,
+                crc,
+                compressedSize,
+                size,
+                internalAttributes,
+                externalAttributes,
+                localHeaderOffset,
+                extra,
+                comment
+        );
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,259 @@
+package net.techcable.srglib.bytecode;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A zip file which gives direct access to the compressed data of its entries.
+ * <p>
+ * Reads only use absolute positions, so a single file can be safely read from multiple threads.
+ * Multi-disk and zip64 archives aren't supported.
+ * </p>
+ */
+/* package */ final class RawZipFile implements Closeable {
+    /* package */ static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    /* package */ static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    /* package */ static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    /* package */ static final int LOCAL_HEADER_SIZE = 30;
+    /* package */ static final int CENTRAL_HEADER_SIZE = 46;
+    /* package */ static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ImmutableList<RawZipEntry> entries;
+
+    private RawZipFile(Path path, FileChannel channel, ImmutableList<RawZipEntry> entries) {
+        this.path = path;
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    /**
+     * Return the entries of the zip file, in the order of the central directory.
+     *
+     * @return the entries
+     */
+    /* package */ ImmutableList<RawZipEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * Read the compressed data of the specified entry.
+     *
+     * @param entry the entry to read
+     * @return the compressed data
+     * @throws IOException if an error occurs reading the data
+     */
+    /* package */ byte[] readRaw(RawZipEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(entry.getCompressedSize()));
+        readFully(buffer, dataOffset(entry));
+        return buffer.array();
+    }
+
+    /**
+     * Read and decompress the data of the specified entry.
+     *
+     * @param entry the entry to read
+     * @return the uncompressed data
+     * @throws IOException if an error occurs reading the data, or it uses an unsupported compression method
+     */
+    /* package */ byte[] read(RawZipEntry entry) throws IOException {
+        return decompress(entry, readRaw(entry));
+    }
+
+    /**
+     * Decompress the data of the specified entry, which has already been read.
+     *
+     * @param entry the entry the data belongs to
+     * @param raw the compressed data
+     * @return the uncompressed data
+     * @throws IOException if the data is invalid, or it uses an unsupported compression method
+     */
+    /* package */ static byte[] decompress(RawZipEntry entry, byte[] raw) throws IOException {
+        switch (entry.getMethod()) {
+            case RawZipEntry.STORED:
+                return raw;
+            case RawZipEntry.DEFLATED:
+                byte[] result = new byte[Math.toIntExact(entry.getSize())];
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(raw);
+                    int size = 0;
+                    while (size < result.length) {
+                        int inflated = inflater.inflate(result, size, result.length - size);
+                        if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                        size += inflated;
+                    }
+                    if (size != result.length) throw new IOException("Invalid compressed data for " + entry);
+                } catch (DataFormatException e) {
+                    throw new IOException("Invalid compressed data for " + entry, e);
+                } finally {
+                    inflater.end();
+                }
+                return result;
+            default:
+                throw new IOException("Unsupported compression method " + entry.getMethod() + " for " + entry);
+        }
+    }
+
+    /**
+     * Transfer the compressed data of the specified entry into the target channel.
+     * <p>
+     * The data is copied directly between the channels, so it never needs to enter the java heap.
+     * </p>
+     *
+     * @param entry the entry to transfer
+     * @param target the channel to transfer the data to
+     * @throws IOException if an error occurs transferring the data
+     */
+    /* package */ void transferRaw(RawZipEntry entry, WritableByteChannel target) throws IOException {
+        long position = dataOffset(entry);
+        long remaining = entry.getCompressedSize();
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) throw new EOFException("Unexpected end of " + entry + " in " + path);
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    private long dataOffset(RawZipEntry entry) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, entry.getLocalHeaderOffset());
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header for " + entry + " in " + path);
+        }
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        return entry.getLocalHeaderOffset() + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new EOFException("Unexpected end of " + path);
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Open the specified zip file, reading its central directory.
+     *
+     * @param path the path to the zip file
+     * @return the zip file
+     * @throws IOException if an error occurs reading the file, or it isn't a supported zip file
+     */
+    /* package */ static RawZipFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new RawZipFile(path, channel, readCentralDirectory(path, channel));
+        } catch (Throwable t) {
+            channel.close();
+            throw t;
+        }
+    }
+
+    private static ImmutableList<RawZipEntry> readCentralDirectory(Path path, FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_LENGTH + ZIP64_LOCATOR_SIZE);
+        ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+        long tailStart = fileSize - tailSize;
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, tailStart + tail.position()) < 0) throw new EOFException("Unexpected end of " + path);
+        }
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) throw new IOException("Missing end of central directory: " + path);
+        if (end >= ZIP64_LOCATOR_SIZE && tail.getInt(end - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+            throw new IOException("Zip64 files aren't supported: " + path);
+        }
+        if (tail.getShort(end + 4) != 0 || tail.getShort(end + 6) != 0) {
+            throw new IOException("Multi-disk zip files aren't supported: " + path);
+        }
+        int count = tail.getShort(end + 10) & 0xFFFF;
+        long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+        if (directoryOffset + directorySize > tailStart + end) {
+            throw new IOException("Invalid central directory: " + path);
+        }
+        ByteBuffer directory = ByteBuffer.allocate(Math.toIntExact(directorySize)).order(ByteOrder.LITTLE_ENDIAN);
+        while (directory.hasRemaining()) {
+            if (channel.read(directory, directoryOffset + directory.position()) < 0) {
+                throw new EOFException("Unexpected end of " + path);
+            }
+        }
+        directory.flip();
+        ImmutableList.Builder<RawZipEntry> entries = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            if (directory.remaining() < CENTRAL_HEADER_SIZE || directory.getInt() != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid central directory header " + i + ": " + path);
+            }
+            int versionMadeBy = directory.getShort() & 0xFFFF;
+            int versionNeeded = directory.getShort() & 0xFFFF;
+            int flags = directory.getShort() & 0xFFFF;
+            int method = directory.getShort() & 0xFFFF;
+            int time = directory.getShort() & 0xFFFF;
+            int date = directory.getShort() & 0xFFFF;
+            int crc = directory.getInt();
+            long compressedSize = directory.getInt() & 0xFFFFFFFFL;
+            long size = directory.getInt() & 0xFFFFFFFFL;
+            byte[] name = new byte[directory.getShort() & 0xFFFF];
+            byte[] extra = new byte[directory.getShort() & 0xFFFF];
+            byte[] comment = new byte[directory.getShort() & 0xFFFF];
+            directory.getShort(); // Disk number
+            int internalAttributes = directory.getShort() & 0xFFFF;
+            int externalAttributes = directory.getInt();
+            long localHeaderOffset = directory.getInt() & 0xFFFFFFFFL;
+            if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                throw new IOException("Zip64 files aren't supported: " + path);
+            }
+            if (directory.remaining() < name.length + extra.length + comment.length) {
+                throw new IOException("Invalid central directory header " + i + ": " + path);
+            }
+            directory.get(name).get(extra).get(comment);
+            entries.add(new RawZipEntry(
+                    name,
+                    versionMadeBy,
+                    versionNeeded,
+                    flags,
+                    method,
+                    time,
+                    date,
+                    crc,
+                    compressedSize,
+                    size,
+                    internalAttributes,
+                    externalAttributes,
+                    localHeaderOffset,
+                    extra,
+                    comment
+            ));
+        }
+        return entries.build();
+    }
+}
@@ -0,0 +1,167 @@
+package net.techcable.srglib.bytecode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * Writes zip files from already compressed entries.
+ * <p>
+ * Entries are always written with their sizes in the local header, without any data descriptors.
+ * Zip64 isn't supported, so the output must have less than 65535 entries and be smaller than 4 GB.
+ * </p>
+ */
+/* package */ final class RawZipWriter implements Closeable {
+    private static final long MAX_OFFSET = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private final Path path;
+    private final FileChannel channel;
+    private final List<RawZipEntry> entries = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private long position;
+    private boolean closed;
+
+    private RawZipWriter(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Write the specified entry with the specified compressed data.
+     *
+     * @param entry the entry to write
+     * @param data the compressed data of the entry
+     * @throws IOException if an error occurs writing the entry
+     */
+    /* package */ void write(RawZipEntry entry, ByteBuffer data) throws IOException {
+        checkArgument(data.remaining() == entry.getCompressedSize(), "Expected %s bytes of data for %s, but got %s", entry.getCompressedSize(), entry, data.remaining());
+        writeFully(localHeader(entry), data);
+    }
+
+    /**
+     * Write the specified entry, transferring its compressed data from the source file.
+     *
+     * @param entry the entry to write
+     * @param source the file containing the entry
+     * @throws IOException if an error occurs copying the entry
+     */
+    /* package */ void transfer(RawZipEntry entry, RawZipFile source) throws IOException {
+        writeFully(localHeader(entry));
+        source.transferRaw(entry, channel);
+        position += entry.getCompressedSize();
+    }
+
+    private ByteBuffer localHeader(RawZipEntry entry) throws IOException {
+        if (entries.size() >= MAX_ENTRIES) throw new IOException("Too many entries for a zip file without zip64: " + path);
+        if (position > MAX_OFFSET) throw new IOException("Zip file is too large without zip64: " + path);
+        entries.add(entry);
+        offsets.add(position);
+        byte[] name = entry.getRawName();
+        ByteBuffer header = ByteBuffer.allocate(RawZipFile.LOCAL_HEADER_SIZE + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(RawZipFile.LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) entry.getVersionNeeded());
+        header.putShort((short) (entry.getFlags() & ~RawZipEntry.DATA_DESCRIPTOR_FLAG));
+        header.putShort((short) entry.getMethod());
+        header.putShort((short) entry.getTime());
+        header.putShort((short) entry.getDate());
+        header.putInt(entry.getCrc());
+        header.putInt((int) entry.getCompressedSize());
+        header.putInt((int) entry.getSize());
+        header.putShort((short) name.length);
+        header.putShort((short) 0); // Extra fields are only kept in the central directory
+        header.put(name);
+        header.flip();
+        return header;
+    }
+
+    private void writeFully(ByteBuffer... buffers) throws IOException {
+        int offset = 0;
+        while (offset < buffers.length) {
+            if (!buffers[offset].hasRemaining()) {
+                offset++;
+            } else {
+                position += channel.write(buffers, offset, buffers.length - offset);
+            }
+        }
+    }
+
+    /**
+     * Write the central directory and close the file.
+     *
+     * @throws IOException if an error occurs writing the central directory
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            long directoryOffset = position;
+            if (directoryOffset > MAX_OFFSET) throw new IOException("Zip file is too large without zip64: " + path);
+            int directorySize = 0;
+            for (RawZipEntry entry : entries) {
+                directorySize += RawZipFile.CENTRAL_HEADER_SIZE + entry.getRawName().length + entry.getExtra().length + entry.getComment().length;
+            }
+            ByteBuffer directory = ByteBuffer.allocate(directorySize + RawZipFile.END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < entries.size(); i++) {
+                RawZipEntry entry = entries.get(i);
+                directory.putInt(RawZipFile.CENTRAL_HEADER_SIGNATURE);
+                directory.putShort((short) entry.getVersionMadeBy());
+                directory.putShort((short) entry.getVersionNeeded());
+                directory.putShort((short) (entry.getFlags() & ~RawZipEntry.DATA_DESCRIPTOR_FLAG));
+                directory.putShort((short) entry.getMethod());
+                directory.putShort((short) entry.getTime());
+                directory.putShort((short) entry.getDate());
+                directory.putInt(entry.getCrc());
+                directory.putInt((int) entry.getCompressedSize());
+                directory.putInt((int) entry.getSize());
+                directory.putShort((short) entry.getRawName().length);
+                directory.putShort((short) entry.getExtra().length);
+                directory.putShort((short) entry.getComment().length);
+                directory.putShort((short) 0); // Disk number
+                directory.putShort((short) entry.getInternalAttributes());
+                directory.putInt(entry.getExternalAttributes());
+                directory.putInt((int) (long) offsets.get(i));
+                directory.put(entry.getRawName());
+                directory.put(entry.getExtra());
+                directory.put(entry.getComment());
+            }
+            directory.putInt(RawZipFile.END_SIGNATURE);
+            directory.putShort((short) 0); // Disk number
+            directory.putShort((short) 0); // Disk with the central directory
+            directory.putShort((short) entries.size());
+            directory.putShort((short) entries.size());
+            directory.putInt(directorySize);
+            directory.putInt((int) directoryOffset);
+            directory.putShort((short) 0); // Comment length
+            directory.flip();
+            writeFully(directory);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Create a new zip file at the specified path, replacing any existing file.
+     *
+     * @param path the path to write to
+     * @return the writer
+     * @throws IOException if an error occurs opening the file
+     */
+    /* package */ static RawZipWriter create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        );
+        return new RawZipWriter(path, channel);
+    }
+}
@@ -0,0 +1,209 @@
+package net.techcable.srglib.bytecode;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Remaps the class names in a generic signature.
+ * <p>
+ * Signatures are parsed by recursive descent directly over the string, without building any tree.
+ * Nothing is copied until the first class name actually changes, and then the result is built in a single buffer.
+ * Unchanged signatures are returned as-is, though each class name is still extracted as a string for the remapping function,
+ * along with the binary name of each inner class.
+ * </p>
+ * <p>
+ * Class, method and field signatures are all supported.
+ * Inner classes of generic classes like {@code Lcom/Outer<TT;>.Inner;} are remapped
+ * through their binary name, {@code com/Outer$Inner}.
+ * </p>
+ */
+/* package */ final class SignatureRemapper {
+    private final String signature;
+    private final UnaryOperator<String> classNames;
+    private int position;
+    /**
+     * The remapped signature, or null if nothing has changed yet.
+     */
+    private StringBuilder result;
+    /**
+     * The position in the original signature, up to which the result has been copied.
+     */
+    private int copied;
+
+    private SignatureRemapper(String signature, UnaryOperator<String> classNames) {
+        this.signature = signature;
+        this.classNames = classNames;
+    }
+
+    /**
+     * Remap the class names in the specified signature.
+     *
+     * @param signature the signature to remap
+     * @param classNames the function which remaps internal class names
+     * @return the remapped signature, which is the same instance if nothing changed
+     * @throws IllegalArgumentException if the signature is invalid
+     */
+    /* package */ static String remap(String signature, UnaryOperator<String> classNames) {
+        SignatureRemapper remapper = new SignatureRemapper(signature, classNames);
+        try {
+            remapper.parseSignature();
+        } catch (StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated signature: " + signature, e);
+        }
+        return remapper.finish();
+    }
+
+    private String finish() {
+        if (result == null) return signature;
+        result.append(signature, copied, signature.length());
+        return result.toString();
+    }
+
+    private void replace(int start, int end, String replacement) {
+        if (result == null) result = new StringBuilder(signature.length() + 16);
+        result.append(signature, copied, start).append(replacement);
+        copied = end;
+    }
+
+    private void parseSignature() {
+        if (peek() == '<') parseTypeParameters();
+        if (peek() == '(') {
+            // Method signature
+            position++;
+            while (peek() != ')') {
+                parseType();
+            }
+            position++;
+            if (peek() == 'V') {
+                position++;
+            } else {
+                parseType();
+            }
+            while (position < signature.length()) {
+                expect('^');
+                parseType();
+            }
+        } else {
+            // Either a field signature, or the superclass and interfaces of a class signature
+            while (position < signature.length()) {
+                parseType();
+            }
+        }
+    }
+
+    private void parseTypeParameters() {
+        expect('<');
+        while (peek() != '>') {
+            int nameEnd = signature.indexOf(':', position);
+            if (nameEnd <= position) throw new IllegalArgumentException("Invalid type parameter in signature: " + signature);
+            position = nameEnd;
+            // The class bound may be empty, but each interface bound needs a type
+            while (peek() == ':') {
+                position++;
+                char next = peek();
+                if (next != ':' && next != '>') parseType();
+            }
+        }
+        position++;
+    }
+
+    private void parseType() {
+        char c = signature.charAt(position);
+        switch (c) {
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+                position++;
+                break;
+            case '[':
+                position++;
+                parseType();
+                break;
+            case 'T':
+                position = indexOf(';', position) + 1;
+                break;
+            case 'L':
+                parseClassType();
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected " + c + " at " + position + " in signature: " + signature);
+        }
+    }
+
+    private void parseClassType() {
+        expect('L');
+        int start = position;
+        position = nameEnd(start);
+        String name = signature.substring(start, position);
+        String newName = classNames.apply(name);
+        if (!newName.equals(name)) replace(start, position, newName);
+        if (peek() == '<') parseTypeArguments();
+        while (peek() == '.') {
+            position++;
+            int innerStart = position;
+            position = nameEnd(innerStart);
+            String innerName = signature.substring(innerStart, position);
+            name = name + '$' + innerName;
+            String newOuterName = newName;
+            newName = classNames.apply(name);
+            // Prefer keeping the remapped outer class, but fall back to the simple name if the nesting changed
+            String newInnerName = newName.startsWith(newOuterName + '$')
+                    ? newName.substring(newOuterName.length() + 1)
+                    : newName.substring(newName.lastIndexOf('$') + 1);
+            if (!newInnerName.equals(innerName)) replace(innerStart, position, newInnerName);
+            if (peek() == '<') parseTypeArguments();
+        }
+        expect(';');
+    }
+
+    private void parseTypeArguments() {
+        expect('<');
+        while (peek() != '>') {
+            switch (peek()) {
+                case '*':
+                    position++;
+                    break;
+                case '+':
+                case '-':
+                    // Skip the wildcard's variance, then parse its bound
+                    position++;
+                    parseType();
+                    break;
+                default:
+                    parseType();
+                    break;
+            }
+        }
+        position++;
+    }
+
+    private int nameEnd(int start) {
+        for (int i = start; i < signature.length(); i++) {
+            char c = signature.charAt(i);
+            if (c == ';' || c == '<' || c == '.') return i;
+        }
+        throw new IllegalArgumentException("Unterminated class name in signature: " + signature);
+    }
+
+    private int indexOf(char c, int start) {
+        int index = signature.indexOf(c, start);
+        if (index < 0) throw new IllegalArgumentException("Expected " + c + " after " + start + " in signature: " + signature);
+        return index;
+    }
+
+    private char peek() {
+        return signature.charAt(position);
+    }
+
+    private void expect(char expected) {
+        char c = signature.charAt(position);
+        if (c != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " but got " + c + " at " + position + " in signature: " + signature);
+        }
+        position++;
+    }
+}
@@ -0,0 +1,40 @@
+package net.techcable.srglib.bytecode;
+
+import java.util.Set;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import static java.util.Objects.*;
+
+/* package */ final class SimpleClassHierarchy implements ClassHierarchy {
+    private final ImmutableMap<String, ClassInfo> classes;
+
+    private SimpleClassHierarchy(ImmutableMap<String, ClassInfo> classes) {
+        this.classes = requireNonNull(classes, "Null classes");
+    }
+
+    @Nullable
+    @Override
+    public ClassInfo getInfo(String internalName) {
+        return classes.get(requireNonNull(internalName, "Null name"));
+    }
+
+    @Override
+    public Set<String> classNames() {
+        return classes.keySet();
+    }
+
+    @Override
+    public String toString() {
+        return "ClassHierarchy(" + classes.size() + " classes)";
+    }
+
+    /* package */ static SimpleClassHierarchy create(Iterable<ClassInfo> classes) {
+        ImmutableMap.Builder<String, ClassInfo> builder = ImmutableMap.builder();
+        for (ClassInfo info : classes) {
+            builder.put(info.getName(), info);
+        }
+        return new SimpleClassHierarchy(builder.build());
+    }
+}
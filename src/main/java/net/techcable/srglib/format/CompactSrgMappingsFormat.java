@@ -1,10 +1,12 @@
 package net.techcable.srglib.format;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
 import javax.annotation.Nonnull;
 
 import com.google.common.collect.ImmutableBiMap;
@@ -16,8 +18,12 @@ import net.techcable.srglib.MethodData;
 import net.techcable.srglib.MethodSignature;
 import net.techcable.srglib.mappings.ImmutableMappings;
 import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsMetrics;
+import net.techcable.srglib.mappings.MappingsMetrics.EntryKind;
+import net.techcable.srglib.mappings.MappingsMetrics.Phase;
+import net.techcable.srglib.mappings.MutableMappings;
 
-/* package */ class CompactSrgMappingsFormat implements MappingsFormat {
+/* package */ class CompactSrgMappingsFormat extends LineMappingsFormat {
     public static final CompactSrgMappingsFormat INSTANCE = new CompactSrgMappingsFormat();
 
     @Override
@@ -26,47 +32,38 @@ import net.techcable.srglib.mappings.Mappings;
     }
 
     @Override
-    public void write(Mappings mappings, Appendable output) throws IOException {
-        try {
-            mappings.forEachClass((original, renamed) -> {
-                try {
-                    output.append(original.getInternalName());
-                    output.append(' ');
-                    output.append(renamed.getInternalName());
-                    output.append('\n');
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-            });
-            mappings.forEachField((original, renamed) -> {
-                try {
-                    output.append(original.getDeclaringType().getInternalName());
-                    output.append(' ');
-                    output.append(original.getName());
-                    output.append(' ');
-                    output.append(renamed.getName());
-                    output.append('\n');
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-            });
-            mappings.forEachMethod((original, renamed) -> {
-                try {
-                    output.append(original.getDeclaringType().getInternalName());
-                    output.append(' ');
-                    output.append(original.getName());
-                    output.append(' ');
-                    output.append(original.getSignature().getDescriptor());
-                    output.append(' ');
-                    output.append(renamed.getName());
-                    output.append('\n');
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-            });
-        } catch (UncheckedIOException e) {
-            throw e.getCause();
-        }
+    public void parseLine(String line, MutableMappings target) {
+        SrgLineProcessor.parseLine(line, target::putClass, target::putField, target::putMethod);
+    }
+
+    @Override
+    /* package */ void writeClass(JavaType original, JavaType renamed, Appendable output) throws IOException {
+        output.append(original.getInternalName());
+        output.append(' ');
+        output.append(renamed.getInternalName());
+        output.append('\n');
+    }
+
+    @Override
+    /* package */ void writeField(FieldData original, FieldData renamed, Appendable output) throws IOException {
+        output.append(original.getDeclaringType().getInternalName());
+        output.append(' ');
+        output.append(original.getName());
+        output.append(' ');
+        output.append(renamed.getName());
+        output.append('\n');
+    }
+
+    @Override
+    /* package */ void writeMethod(MethodData original, MethodData renamed, Appendable output) throws IOException {
+        output.append(original.getDeclaringType().getInternalName());
+        output.append(' ');
+        output.append(original.getName());
+        output.append(' ');
+        output.append(original.getSignature().getDescriptor());
+        output.append(' ');
+        output.append(renamed.getName());
+        output.append('\n');
     }
 
     /* package */ static class SrgLineProcessor implements LineProcessor<Mappings> {
@@ -82,47 +79,78 @@ import net.techcable.srglib.mappings.Mappings;
         }
 
         public void parseLine(@Nonnull String line) {
+            parseLine(line, types::put, fields::put, methods::put);
+        }
+
+        /* package */ static void parseLine(
+                @Nonnull String line,
+                BiConsumer<JavaType, JavaType> types,
+                BiConsumer<FieldData, String> fields,
+                BiConsumer<MethodData, String> methods
+        ) {
+            MappingsMetrics metrics = MappingsMetrics.current();
+            long time = metrics != null ? System.nanoTime() : 0;
             line = line.trim(); // Strip whitespace
             if (line.startsWith("#") || line.isEmpty()) return;
             String[] args = line.split(" ");
+            if (metrics != null) time = metrics.lap(Phase.TOKENIZE, time);
             String originalName, newName;
             JavaType originalDeclaringType;
+            EntryKind kind;
             switch (args.length) {
                 case 2:
                     JavaType originalType = JavaType.fromInternalName(args[0]);
                     JavaType renamedType = JavaType.fromInternalName(args[1]);
-                    types.put(originalType, renamedType);
+                    types.accept(originalType, renamedType);
+                    kind = EntryKind.CLASS;
                     break;
                 case 3:
                     originalDeclaringType = JavaType.fromInternalName(args[0]);
                     originalName = args[1];
                     newName = args[2];
-                    fields.put(FieldData.create(originalDeclaringType, originalName), newName);
+                    fields.accept(FieldData.create(originalDeclaringType, originalName), newName);
+                    kind = EntryKind.FIELD;
                     break;
                 case 4:
+                    MethodSignature signature = MethodSignature.fromDescriptor(args[2]);
+                    if (metrics != null) time = metrics.lap(Phase.DESCRIPTOR_PARSE, time);
                     originalDeclaringType = JavaType.fromInternalName(args[0]);
                     originalName = args[1];
-                    MethodSignature signature = MethodSignature.fromDescriptor(args[2]);
                     newName = args[3];
-                    methods.put(MethodData.create(originalDeclaringType, originalName, signature), newName);
+                    methods.accept(MethodData.create(originalDeclaringType, originalName, signature), newName);
+                    kind = EntryKind.METHOD;
                     break;
                 default:
                     throw new IllegalArgumentException("Invalid line: " + line);
             }
+            if (metrics != null) {
+                metrics.lap(Phase.VALIDATE, time);
+                metrics.recordEntry(kind);
+            }
         }
 
         @Override
         public Mappings getResult() {
+            MappingsMetrics metrics = MappingsMetrics.current();
+            long start = metrics != null ? System.nanoTime() : 0;
             ImmutableBiMap<JavaType, JavaType> types = ImmutableBiMap.copyOf(this.types);
             ImmutableBiMap.Builder<MethodData, MethodData> methods = ImmutableBiMap.builder();
             ImmutableBiMap.Builder<FieldData, FieldData> fields = ImmutableBiMap.builder();
-            this.methods.forEach((originalData, newName) -> methods.put(originalData, originalData
-                    .mapTypes(original -> types.getOrDefault(original, original))
-                    .withName(newName)));
+            UnaryOperator<JavaType> remapper = original -> original.mapClass(type -> types.getOrDefault(type, type));
+            // The parsed signatures are interned, so each distinct signature only needs to be remapped once
+            Map<MethodSignature, MethodSignature> signatures = new IdentityHashMap<>();
+            this.methods.forEach((originalData, newName) -> methods.put(originalData, MethodData.create(
+                    remapper.apply(originalData.getDeclaringType()),
+                    newName,
+                    signatures.computeIfAbsent(originalData.getSignature(), signature -> signature.mapTypes(remapper))
+            )));
             this.fields.forEach((originalData, newName) -> fields.put(originalData, originalData
-                    .mapTypes(original -> types.getOrDefault(original, original))
+                    .mapTypes(remapper)
                     .withName(newName)));
-            return ImmutableMappings.create(types, methods.build(), fields.build());
+            ImmutableBiMap<MethodData, MethodData> builtMethods = methods.build();
+            ImmutableBiMap<FieldData, FieldData> builtFields = fields.build();
+            if (metrics != null) metrics.lap(Phase.BIMAP_BUILD, start);
+            return ImmutableMappings.create(types, builtMethods, builtFields);
         }
     }
 }
@@ -0,0 +1,114 @@
+package net.techcable.srglib.format;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.google.common.base.Charsets;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.Exceptions;
+
+/**
+ * A format which writes each entry as its own line, with all the classes first, then the fields, then the methods.
+ */
+/* package */ abstract class LineMappingsFormat implements MappingsFormat {
+    /**
+     * The number of entries rendered by each parallel task.
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    /* package */ abstract void writeClass(JavaType original, JavaType renamed, Appendable output) throws IOException;
+
+    /* package */ abstract void writeField(FieldData original, FieldData renamed, Appendable output) throws IOException;
+
+    /* package */ abstract void writeMethod(MethodData original, MethodData renamed, Appendable output) throws IOException;
+
+    @Override
+    public void write(Mappings mappings, Appendable output) throws IOException {
+        try {
+            mappings.forEachClass(Exceptions.sneakyThrowing((original, renamed) -> writeClass(original, renamed, output)));
+            mappings.forEachField(Exceptions.sneakyThrowing((original, renamed) -> writeField(original, renamed, output)));
+            mappings.forEachMethod(Exceptions.sneakyThrowing((original, renamed) -> writeMethod(original, renamed, output)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each section is split into contiguous chunks, which are rendered in parallel into their own buffers,
+     * then all the buffers are written with a single gathering write.
+     * Since the chunks preserve the order of the entries,
+     * the output is identical to {@link #write(Mappings, Appendable)}.
+     * </p>
+     */
+    @Override
+    public void write(Mappings mappings, GatheringByteChannel output) throws IOException {
+        List<Supplier<ByteBuffer>> chunks = new ArrayList<>();
+        List<JavaType> originalClasses = new ArrayList<>(), renamedClasses = new ArrayList<>();
+        mappings.forEachClass((original, renamed) -> {
+            originalClasses.add(original);
+            renamedClasses.add(renamed);
+        });
+        addChunks(chunks, originalClasses, renamedClasses, this::writeClass);
+        List<FieldData> originalFields = new ArrayList<>(), renamedFields = new ArrayList<>();
+        mappings.forEachField((original, renamed) -> {
+            originalFields.add(original);
+            renamedFields.add(renamed);
+        });
+        addChunks(chunks, originalFields, renamedFields, this::writeField);
+        List<MethodData> originalMethods = new ArrayList<>(), renamedMethods = new ArrayList<>();
+        mappings.forEachMethod((original, renamed) -> {
+            originalMethods.add(original);
+            renamedMethods.add(renamed);
+        });
+        addChunks(chunks, originalMethods, renamedMethods, this::writeMethod);
+        ByteBuffer[] buffers = chunks.parallelStream()
+                .map(Supplier::get)
+                .toArray(ByteBuffer[]::new);
+        writeFully(buffers, output);
+    }
+
+    /* package */ static void writeFully(ByteBuffer[] buffers, GatheringByteChannel output) throws IOException {
+        int offset = 0;
+        while (offset < buffers.length) {
+            if (!buffers[offset].hasRemaining()) {
+                offset++; // Skip the buffers we've finished
+            } else {
+                output.write(buffers, offset, buffers.length - offset);
+            }
+        }
+    }
+
+    private static <K, V> void addChunks(List<Supplier<ByteBuffer>> chunks, List<K> originals, List<V> renamed, EntryWriter<K, V> writer) {
+        for (int start = 0; start < originals.size(); start += CHUNK_SIZE) {
+            int chunkStart = start, chunkEnd = Math.min(originals.size(), start + CHUNK_SIZE);
+            chunks.add(() -> {
+                StringBuilder result = new StringBuilder((chunkEnd - chunkStart) * 64);
+                try {
+                    for (int i = chunkStart; i < chunkEnd; i++) {
+                        writer.write(originals.get(i), renamed.get(i), result);
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError("StringBuilder threw IOException", e);
+                }
+                return Charsets.UTF_8.encode(CharBuffer.wrap(result));
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryWriter<K, V> {
+        void write(K original, V renamed, Appendable output) throws IOException;
+    }
+}
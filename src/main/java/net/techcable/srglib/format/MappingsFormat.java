@@ -11,6 +11,9 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -23,7 +26,10 @@ import com.google.common.io.CharStreams;
 import com.google.common.io.LineProcessor;
 import com.google.common.io.LineReader;
 
+import net.techcable.srglib.mappings.ImmutableMappings;
 import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsMetrics;
+import net.techcable.srglib.mappings.MutableMappings;
 import net.techcable.srglib.utils.Exceptions;
 
 import static net.techcable.srglib.utils.Exceptions.*;
@@ -36,15 +42,20 @@ public interface MappingsFormat {
     MappingsFormat COMPACT_SEARGE_FORMAT = CompactSrgMappingsFormat.INSTANCE;
 
     default Mappings parse(Readable readable) throws IOException {
+        MappingsMetrics metrics = MappingsMetrics.current();
+        long start = metrics != null ? System.nanoTime() : 0;
         LineReader lineReader = new LineReader(readable);
         LineProcessor<Mappings> lineProcessor = createLineProcessor();
         String line;
         while ((line = lineReader.readLine()) != null) {
+            if (metrics != null) metrics.recordLine(line);
             if (!lineProcessor.processLine(line)) {
                 break;
             }
         }
-        return lineProcessor.getResult();
+        Mappings result = lineProcessor.getResult();
+        if (metrics != null) metrics.recordOperation(MappingsMetrics.Operation.PARSE, System.nanoTime() - start);
+        return result;
     }
 
     default Mappings parseFile(File file) throws IOException {
@@ -63,15 +74,66 @@ public interface MappingsFormat {
     }
 
     default Mappings parseLines(Iterator<String> lines) {
+        MappingsMetrics metrics = MappingsMetrics.current();
+        long start = metrics != null ? System.nanoTime() : 0;
         LineProcessor<Mappings> lineProcessor = createLineProcessor();
-        lines.forEachRemaining(Exceptions.sneakyThrowing(lineProcessor::processLine));
-        return lineProcessor.getResult();
+        lines.forEachRemaining(Exceptions.sneakyThrowing(line -> {
+            if (metrics != null) metrics.recordLine(line);
+            lineProcessor.processLine(line);
+        }));
+        Mappings result = lineProcessor.getResult();
+        if (metrics != null) metrics.recordOperation(MappingsMetrics.Operation.PARSE, System.nanoTime() - start);
+        return result;
     }
 
     LineProcessor<Mappings> createLineProcessor();
 
+    /**
+     * Parse a single line of this format, adding the entry it declares to the specified mappings.
+     * <p>
+     * Comments and blank lines are ignored.
+     * Unlike {@link #parseLines(Iterable)}, renamed signatures aren't checked against the target,
+     * since a single line doesn't carry enough context to do so.
+     * </p>
+     *
+     * @param line the line to parse
+     * @param target the mappings to add the entry to
+     * @throws IllegalArgumentException if the line is invalid
+     */
+    void parseLine(String line, MutableMappings target);
+
     void write(Mappings mappings, Appendable output) throws IOException;
 
+    /**
+     * Write the mappings to the specified channel, encoded as UTF-8.
+     * <p>
+     * The output is the same as {@link #write(Mappings, Appendable)},
+     * but formats may render it in parallel, which helps with very large mappings.
+     * Combined with {@link ImmutableMappings#sorted()}, this gives reproducible output.
+     * </p>
+     *
+     * @param mappings the mappings to write
+     * @param output the channel to write to
+     * @throws IOException if an error occurs writing the output
+     */
+    default void write(Mappings mappings, GatheringByteChannel output) throws IOException {
+        StringBuilder result = new StringBuilder();
+        write(mappings, result);
+        LineMappingsFormat.writeFully(new ByteBuffer[] {Charsets.UTF_8.encode(CharBuffer.wrap(result))}, output);
+    }
+
+    /**
+     * Write the mappings in their canonical order, so the output doesn't depend on the order of the entries.
+     *
+     * @param mappings the mappings to write
+     * @param output where to write the mappings
+     * @throws IOException if an error occurs writing the output
+     * @see ImmutableMappings#sorted()
+     */
+    default void writeSorted(Mappings mappings, Appendable output) throws IOException {
+        write(mappings.snapshot().sorted(), output);
+    }
+
     default void writeToFile(Mappings mappings, File file) throws IOException {
         try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8))) {
             write(mappings, out);
@@ -0,0 +1,207 @@
+package net.techcable.srglib.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsMetrics;
+import net.techcable.srglib.mappings.MutableMappings;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static java.util.Objects.*;
+
+/**
+ * Watches a mappings file, incrementally applying any edits to an in-memory copy of the mappings.
+ * <p>
+ * Instead of reparsing the whole file whenever it changes, the watcher compares the new lines against the old ones,
+ * and only parses the lines that were actually added or removed.
+ * After each reload a new immutable snapshot is atomically published, which is available through {@link #current()}.
+ * </p>
+ * <p>
+ * Reloading isn't free for small edits, though.
+ * The whole file is still read and every line is hashed to compare it against the previous contents,
+ * so each reload is linear in the size of the file, but with a much smaller constant than parsing it.
+ * Publishing the snapshot only remaps the changed members, unless a class was changed,
+ * since renaming a class can change the signature of any member, so all the members are remapped again.
+ * </p>
+ * <p>
+ * Changes are only picked up when the watcher is polled, so callers are expected to poll from a thread of their own.
+ * If the file is deleted, the current mappings are kept until it's created again.
+ * </p>
+ */
+public final class MappingsWatcher implements Closeable {
+    private final MappingsFormat format;
+    private final Path file;
+    private final WatchService watchService;
+    private final MutableMappings mappings = MutableMappings.create();
+    private final Set<String> lines = new HashSet<>();
+    private final List<Consumer<? super ImmutableMappings>> listeners = new CopyOnWriteArrayList<>();
+    private volatile ImmutableMappings current = Mappings.empty();
+
+    private MappingsWatcher(MappingsFormat format, Path file, WatchService watchService) {
+        this.format = requireNonNull(format, "Null format");
+        this.file = requireNonNull(file, "Null file");
+        this.watchService = requireNonNull(watchService, "Null watch service");
+    }
+
+    /**
+     * Return the most recently published snapshot of the mappings.
+     *
+     * @return the current mappings
+     */
+    public ImmutableMappings current() {
+        return current;
+    }
+
+    /**
+     * Register a listener, which is notified with the new snapshot whenever the mappings are reloaded.
+     * <p>
+     * Listeners are invoked on the thread that polled the watcher.
+     * </p>
+     *
+     * @param listener the listener to notify
+     */
+    public void addListener(Consumer<? super ImmutableMappings> listener) {
+        listeners.add(requireNonNull(listener, "Null listener"));
+    }
+
+    /**
+     * Apply any pending changes to the file, without blocking.
+     *
+     * @return if the mappings changed
+     * @throws IOException if the file couldn't be read
+     * @throws IllegalArgumentException if the new contents of the file are invalid
+     */
+    public boolean poll() throws IOException {
+        return handle(watchService.poll());
+    }
+
+    /**
+     * Wait for the file to change, then apply the changes.
+     *
+     * @param timeout how long to wait for changes
+     * @param unit the unit of the timeout
+     * @return if the mappings changed
+     * @throws IOException if the file couldn't be read
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalArgumentException if the new contents of the file are invalid
+     */
+    public boolean poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        return handle(watchService.poll(timeout, unit));
+    }
+
+    private boolean handle(@Nullable WatchKey key) throws IOException {
+        if (key == null) return false;
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || file.getFileName().equals(event.context())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        // Editors often replace the file by deleting it first, so wait for it to come back
+        return relevant && Files.exists(file) && reload();
+    }
+
+    /**
+     * Reread the file, applying only the lines that changed since the last reload.
+     * <p>
+     * If the new contents are invalid, nothing is applied and the current snapshot is kept.
+     * </p>
+     * <p>
+     * When {@link MappingsMetrics} are installed, every reload is recorded as a parse of all the lines in the file,
+     * even though only the changed ones are parsed.
+     * </p>
+     *
+     * @return if the mappings changed
+     * @throws IOException if the file couldn't be read
+     * @throws IllegalArgumentException if the new contents of the file are invalid
+     */
+    public synchronized boolean reload() throws IOException {
+        MappingsMetrics metrics = MappingsMetrics.current();
+        long start = metrics != null ? System.nanoTime() : 0;
+        Set<String> updatedLines = new HashSet<>();
+        for (String line : Files.readAllLines(file, Charsets.UTF_8)) {
+            if (metrics != null) metrics.recordLine(line);
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                updatedLines.add(line);
+            }
+        }
+        // Parse both sides of the delta before touching anything, so an invalid edit leaves us untouched
+        MutableMappings removed = MutableMappings.create();
+        MutableMappings added = MutableMappings.create();
+        boolean changed = false;
+        for (String line : lines) {
+            if (!updatedLines.contains(line)) {
+                format.parseLine(line, removed);
+                changed = true;
+            }
+        }
+        for (String line : updatedLines) {
+            if (!lines.contains(line)) {
+                format.parseLine(line, added);
+                changed = true;
+            }
+        }
+        if (metrics != null) metrics.recordOperation(MappingsMetrics.Operation.PARSE, System.nanoTime() - start);
+        if (!changed) return false;
+        // Remove first, since an edited line shows up as both a removal and an addition of the same entry
+        removed.classes().forEach(mappings::removeClass);
+        removed.methods().forEach(mappings::removeMethod);
+        removed.fields().forEach(mappings::removeField);
+        added.forEachClass(mappings::putClass);
+        added.forEachMethod((original, renamed) -> mappings.putMethod(original, renamed.getName()));
+        added.forEachField((original, renamed) -> mappings.putField(original, renamed.getName()));
+        lines.clear();
+        lines.addAll(updatedLines);
+        ImmutableMappings snapshot = mappings.snapshot();
+        this.current = snapshot;
+        listeners.forEach(listener -> listener.accept(snapshot));
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Start watching the specified mappings file, loading its current contents.
+     *
+     * @param format the format of the file
+     * @param file the file to watch
+     * @return a watcher for the file
+     * @throws IOException if the file couldn't be read or watched
+     * @throws IllegalArgumentException if the file is invalid
+     */
+    public static MappingsWatcher watch(MappingsFormat format, File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath();
+        WatchService watchService = path.getFileSystem().newWatchService();
+        try {
+            path.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            MappingsWatcher watcher = new MappingsWatcher(format, path, watchService);
+            watcher.reload();
+            return watcher;
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+}
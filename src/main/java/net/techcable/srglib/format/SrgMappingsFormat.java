@@ -1,7 +1,6 @@
 package net.techcable.srglib.format;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import javax.annotation.Nonnull;
 
 import com.google.common.io.LineProcessor;
@@ -11,12 +10,14 @@ import net.techcable.srglib.JavaType;
 import net.techcable.srglib.MethodData;
 import net.techcable.srglib.MethodSignature;
 import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsMetrics;
+import net.techcable.srglib.mappings.MappingsMetrics.EntryKind;
+import net.techcable.srglib.mappings.MappingsMetrics.Phase;
 import net.techcable.srglib.mappings.MutableMappings;
-import net.techcable.srglib.utils.Exceptions;
 
 import static com.google.common.base.Preconditions.*;
 
-/* package */ class SrgMappingsFormat implements MappingsFormat {
+/* package */ class SrgMappingsFormat extends LineMappingsFormat {
     public static final SrgMappingsFormat INSTANCE = new SrgMappingsFormat();
 
     private SrgMappingsFormat() {
@@ -28,36 +29,39 @@ import static com.google.common.base.Preconditions.*;
     }
 
     @Override
-    public void write(Mappings mappings, Appendable output) throws IOException {
-        try {
-            mappings.forEachClass(Exceptions.sneakyThrowing((original, renamed) -> {
-                output.append("CL: ");
-                output.append(original.getInternalName());
-                output.append(' ');
-                output.append(renamed.getInternalName());
-                output.append('\n');
-            }));
-            mappings.forEachField(Exceptions.sneakyThrowing((original, renamed) -> {
-                output.append("FD: ");
-                output.append(original.getInternalName());
-                output.append(' ');
-                output.append(renamed.getInternalName());
-                output.append('\n');
-            }));
-            mappings.forEachMethod(Exceptions.sneakyThrowing((original, renamed) -> {
-                output.append("MD: ");
-                output.append(original.getInternalName());
-                output.append(' ');
-                output.append(original.getSignature().getDescriptor());
-                output.append(' ');
-                output.append(renamed.getInternalName());
-                output.append(' ');
-                output.append(renamed.getSignature().getDescriptor());
-                output.append('\n');
-            }));
-        } catch (UncheckedIOException e) {
-            throw e.getCause();
-        }
+    public void parseLine(String line, MutableMappings target) {
+        SrgLineProcessor.parseLine(line, target, false);
+    }
+
+    @Override
+    /* package */ void writeClass(JavaType original, JavaType renamed, Appendable output) throws IOException {
+        output.append("CL: ");
+        output.append(original.getInternalName());
+        output.append(' ');
+        output.append(renamed.getInternalName());
+        output.append('\n');
+    }
+
+    @Override
+    /* package */ void writeField(FieldData original, FieldData renamed, Appendable output) throws IOException {
+        output.append("FD: ");
+        output.append(original.getInternalName());
+        output.append(' ');
+        output.append(renamed.getInternalName());
+        output.append('\n');
+    }
+
+    @Override
+    /* package */ void writeMethod(MethodData original, MethodData renamed, Appendable output) throws IOException {
+        output.append("MD: ");
+        output.append(original.getInternalName());
+        output.append(' ');
+        output.append(original.getSignature().getDescriptor());
+        output.append(' ');
+        output.append(renamed.getInternalName());
+        output.append(' ');
+        output.append(renamed.getSignature().getDescriptor());
+        output.append('\n');
     }
 
     /* package */ static class SrgLineProcessor implements LineProcessor<Mappings> {
@@ -70,11 +74,18 @@ import static com.google.common.base.Preconditions.*;
         }
 
         public void parseLine(@Nonnull String line) {
+            parseLine(line, result, true);
+        }
+
+        /* package */ static void parseLine(@Nonnull String line, MutableMappings result, boolean checkSignatures) {
+            MappingsMetrics metrics = MappingsMetrics.current();
+            long time = metrics != null ? System.nanoTime() : 0;
             line = line.trim(); // Strip whitespace
             if (line.startsWith("#") || line.isEmpty()) return;
             checkArgument(line.length() >= 4, "Invalid line: %s", line);
             String id = line.substring(0, 2);
             String[] args = line.substring(4).split(" ");
+            if (metrics != null) time = metrics.lap(Phase.TOKENIZE, time);
             final String originalInternalName, renamedInternalName;
             switch (id) {
                 case "MD":
@@ -83,9 +94,18 @@ import static com.google.common.base.Preconditions.*;
                     MethodSignature originalSignature = MethodSignature.fromDescriptor(args[1]);
                     renamedInternalName = args[2];
                     MethodSignature renamedSignature = MethodSignature.fromDescriptor(args[3]);
+                    if (metrics != null) time = metrics.lap(Phase.DESCRIPTOR_PARSE, time);
                     MethodData originalMethodData = MethodData.fromInternalName(originalInternalName, originalSignature);
                     MethodData renamedMethodData = MethodData.fromInternalName(renamedInternalName, renamedSignature);
-                    result.putMethod(originalMethodData, renamedMethodData);
+                    if (checkSignatures) {
+                        result.putMethod(originalMethodData, renamedMethodData);
+                    } else {
+                        result.putMethod(originalMethodData, renamedMethodData.getName());
+                    }
+                    if (metrics != null) {
+                        metrics.lap(Phase.VALIDATE, time);
+                        metrics.recordEntry(EntryKind.METHOD);
+                    }
                     return;
                 case "FD":
                     checkArgument(args.length == 2, "Invalid line: %s", line);
@@ -93,7 +113,15 @@ import static com.google.common.base.Preconditions.*;
                     renamedInternalName = args[1];
                     FieldData originalFieldData = FieldData.fromInternalName(originalInternalName);
                     FieldData renamedFieldData = FieldData.fromInternalName(renamedInternalName);
-                    result.putField(originalFieldData, renamedFieldData);
+                    if (checkSignatures) {
+                        result.putField(originalFieldData, renamedFieldData);
+                    } else {
+                        result.putField(originalFieldData, renamedFieldData.getName());
+                    }
+                    if (metrics != null) {
+                        metrics.lap(Phase.VALIDATE, time);
+                        metrics.recordEntry(EntryKind.FIELD);
+                    }
                     return;
                 case "CL":
                     checkArgument(args.length == 2, "Invalid line: %s", line);
@@ -102,6 +130,10 @@ import static com.google.common.base.Preconditions.*;
                     JavaType originalType = JavaType.fromInternalName(originalInternalName);
                     JavaType renamedType = JavaType.fromInternalName(renamedInternalName);
                     result.putClass(originalType, renamedType);
+                    if (metrics != null) {
+                        metrics.lap(Phase.VALIDATE, time);
+                        metrics.recordEntry(EntryKind.CLASS);
+                    }
                     return;
                 case "PK":
                     return; // Ignore packages, because they are stupid
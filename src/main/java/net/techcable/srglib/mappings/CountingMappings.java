@@ -0,0 +1,135 @@
+package net.techcable.srglib.mappings;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.LookupStatistics.Outcome;
+import net.techcable.srglib.mappings.MappingsMetrics.EntryKind;
+
+import static java.util.Objects.*;
+
+/**
+ * Mappings which count how their lookups are resolved, delegating everything else.
+ * <p>
+ * Only the {@code getNew} lookups are counted,
+ * so the delegate's own fast paths for remapping names and descriptors are kept.
+ * </p>
+ */
+/* package */ final class CountingMappings implements Mappings {
+    private final Mappings delegate;
+    private final LookupStatistics statistics;
+
+    /* package */ CountingMappings(Mappings delegate, LookupStatistics statistics) {
+        this.delegate = requireNonNull(delegate, "Null delegate");
+        this.statistics = requireNonNull(statistics, "Null statistics");
+    }
+
+    private Outcome outcome(boolean explicit, Object original, Object result) {
+        if (explicit) {
+            return Outcome.HIT;
+        } else if (result.equals(original)) {
+            return Outcome.MISS;
+        } else {
+            return Outcome.FALLBACK;
+        }
+    }
+
+    @Override
+    public JavaType getNewClass(JavaType original) {
+        JavaType result = delegate.getNewClass(original);
+        statistics.record(EntryKind.CLASS, outcome(delegate.contains(original), original, result));
+        return result;
+    }
+
+    @Override
+    public MethodData getNewMethod(MethodData original) {
+        MethodData result = delegate.getNewMethod(original);
+        statistics.record(EntryKind.METHOD, outcome(delegate.contains(original), original, result));
+        return result;
+    }
+
+    @Override
+    public FieldData getNewField(FieldData original) {
+        FieldData result = delegate.getNewField(original);
+        statistics.record(EntryKind.FIELD, outcome(delegate.contains(original), original, result));
+        return result;
+    }
+
+    @Override
+    public String remapDescriptor(String descriptor) {
+        return delegate.remapDescriptor(descriptor);
+    }
+
+    @Override
+    public String remapMethodDescriptor(String descriptor) {
+        return delegate.remapMethodDescriptor(descriptor);
+    }
+
+    @Override
+    public String remapClassName(String internalName) {
+        return delegate.remapClassName(internalName);
+    }
+
+    @Override
+    public ImmutableMappings snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public Mappings inverted() {
+        return delegate.inverted();
+    }
+
+    @Override
+    public Set<JavaType> classes() {
+        return delegate.classes();
+    }
+
+    @Override
+    public Set<MethodData> methods() {
+        return delegate.methods();
+    }
+
+    @Override
+    public Set<FieldData> fields() {
+        return delegate.fields();
+    }
+
+    @Override
+    public boolean contains(JavaType type) {
+        return delegate.contains(type);
+    }
+
+    @Override
+    public boolean contains(MethodData methodData) {
+        return delegate.contains(methodData);
+    }
+
+    @Override
+    public boolean contains(FieldData fieldData) {
+        return delegate.contains(fieldData);
+    }
+
+    @Override
+    public void forEachClass(BiConsumer<JavaType, JavaType> action) {
+        delegate.forEachClass(action);
+    }
+
+    @Override
+    public void forEachMethod(BiConsumer<MethodData, MethodData> action) {
+        delegate.forEachMethod(action);
+    }
+
+    @Override
+    public void forEachField(BiConsumer<FieldData, FieldData> action) {
+        delegate.forEachField(action);
+    }
+
+    @Override
+    public String toString() {
+        return "CountingMappings(" + delegate + ")";
+    }
+}
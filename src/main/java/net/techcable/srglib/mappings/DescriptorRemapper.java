@@ -0,0 +1,107 @@
+package net.techcable.srglib.mappings;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Remaps the class names in descriptors by scanning the string directly.
+ * <p>
+ * No types or signatures are ever created, and the result is only copied into a new buffer
+ * once the first class name changes, so unchanged descriptors are returned as-is.
+ * </p>
+ */
+/* package */ final class DescriptorRemapper {
+    private DescriptorRemapper() {}
+
+    /**
+     * Remap the class names in the specified field descriptor.
+     *
+     * @param descriptor the descriptor to remap
+     * @param classNames the function which remaps internal class names
+     * @return the remapped descriptor
+     * @throws IllegalArgumentException if the descriptor isn't a valid field descriptor
+     */
+    /* package */ static String remapDescriptor(String descriptor, UnaryOperator<String> classNames) {
+        return remapAll(descriptor, false, classNames);
+    }
+
+    /**
+     * Remap the class names in the specified method descriptor.
+     *
+     * @param descriptor the descriptor to remap
+     * @param classNames the function which remaps internal class names
+     * @return the remapped descriptor
+     * @throws IllegalArgumentException if the descriptor isn't a valid method descriptor
+     */
+    /* package */ static String remapMethodDescriptor(String descriptor, UnaryOperator<String> classNames) {
+        return remapAll(descriptor, true, classNames);
+    }
+
+    private static String remapAll(String descriptor, boolean method, UnaryOperator<String> classNames) {
+        StringBuilder result = null;
+        int copied = 0;
+        int position = 0;
+        int length = descriptor.length();
+        boolean inParameters = false, sawReturnType = false;
+        if (method) {
+            if (length == 0 || descriptor.charAt(0) != '(') throw invalidDescriptor(descriptor);
+            position = 1;
+            inParameters = true;
+        }
+        while (position < length) {
+            char c = descriptor.charAt(position);
+            if (inParameters && c == ')') {
+                inParameters = false;
+                position++;
+                continue;
+            } else if (sawReturnType) {
+                throw invalidDescriptor(descriptor); // Trailing data after the type
+            }
+            // Skip the array dimensions, then handle the element type
+            while (c == '[') {
+                if (++position >= length) throw invalidDescriptor(descriptor);
+                c = descriptor.charAt(position);
+            }
+            switch (c) {
+                case 'B':
+                case 'C':
+                case 'D':
+                case 'F':
+                case 'I':
+                case 'J':
+                case 'S':
+                case 'Z':
+                    position++;
+                    break;
+                case 'V':
+                    // Void is only allowed as a return type
+                    if (inParameters || !method || descriptor.charAt(position - 1) == '[') throw invalidDescriptor(descriptor);
+                    position++;
+                    break;
+                case 'L': {
+                    int nameStart = position + 1;
+                    int nameEnd = descriptor.indexOf(';', nameStart);
+                    if (nameEnd <= nameStart) throw invalidDescriptor(descriptor);
+                    String name = descriptor.substring(nameStart, nameEnd);
+                    String newName = classNames.apply(name);
+                    if (!newName.equals(name)) {
+                        if (result == null) result = new StringBuilder(length + 16);
+                        result.append(descriptor, copied, nameStart).append(newName);
+                        copied = nameEnd;
+                    }
+                    position = nameEnd + 1;
+                    break;
+                }
+                default:
+                    throw invalidDescriptor(descriptor);
+            }
+            if (!inParameters) sawReturnType = true;
+        }
+        if (inParameters || !sawReturnType) throw invalidDescriptor(descriptor);
+        if (result == null) return descriptor;
+        return result.append(descriptor, copied, length).toString();
+    }
+
+    private static IllegalArgumentException invalidDescriptor(String descriptor) {
+        return new IllegalArgumentException("Invalid descriptor: " + descriptor);
+    }
+}
@@ -1,17 +1,27 @@
 package net.techcable.srglib.mappings;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import net.techcable.srglib.FieldData;
 import net.techcable.srglib.JavaType;
 import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
 import net.techcable.srglib.SrgLib;
 import net.techcable.srglib.utils.ImmutableMaps;
 
@@ -40,6 +50,76 @@ public final class ImmutableMappings implements Mappings {
         return classes.getOrDefault(requireNonNull(original), original);
     }
 
+    @Nullable
+    private ImmutableMap<String, String> internalClassNames;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The class names are looked up directly by their internal name, without creating a {@link JavaType}.
+     * </p>
+     */
+    @Override
+    public String remapClassName(String internalName) {
+        ImmutableMap<String, String> internalClassNames = this.internalClassNames;
+        if (internalClassNames == null) {
+            ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+            classes.forEach((original, renamed) -> builder.put(original.getInternalName(), renamed.getInternalName()));
+            this.internalClassNames = internalClassNames = builder.build();
+        }
+        return internalClassNames.getOrDefault(requireNonNull(internalName, "Null name"), internalName);
+    }
+
+    @Nullable
+    private volatile DescriptorCache descriptorCache;
+
+    private DescriptorCache descriptorCache() {
+        DescriptorCache descriptorCache = this.descriptorCache;
+        return descriptorCache != null ? descriptorCache : (this.descriptorCache = new DescriptorCache());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Since the same descriptors repeat across many classes,
+     * the results are kept in a bounded cache for these mappings.
+     * </p>
+     */
+    @Override
+    public String remapDescriptor(String descriptor) {
+        Cache<String, String> cache = descriptorCache().fieldDescriptors;
+        String result = cache.getIfPresent(requireNonNull(descriptor, "Null descriptor"));
+        if (result == null) {
+            result = DescriptorRemapper.remapDescriptor(descriptor, this::remapClassName);
+            cache.put(descriptor, result);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Since the same descriptors repeat across many classes,
+     * the results are kept in a bounded cache for these mappings.
+     * </p>
+     */
+    @Override
+    public String remapMethodDescriptor(String descriptor) {
+        Cache<String, String> cache = descriptorCache().methodDescriptors;
+        String result = cache.getIfPresent(requireNonNull(descriptor, "Null descriptor"));
+        if (result == null) {
+            result = DescriptorRemapper.remapMethodDescriptor(descriptor, this::remapClassName);
+            cache.put(descriptor, result);
+        }
+        return result;
+    }
+
+    private static final class DescriptorCache {
+        private static final int MAXIMUM_SIZE = 65536;
+        private final Cache<String, String> fieldDescriptors = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build();
+        private final Cache<String, String> methodDescriptors = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build();
+    }
+
     @Override
     public MethodData getNewMethod(MethodData original) {
         MethodData result = methods.get(requireNonNull(original));
@@ -94,6 +174,66 @@ public final class ImmutableMappings implements Mappings {
         return inverted;
     }
 
+    @Nullable
+    private ImmutableMappings sorted;
+
+    /**
+     * Return a copy of these mappings, whose entries iterate in a canonical order.
+     * <p>
+     * Classes are ordered by their original internal name,
+     * and members are ordered by their original internal name, then by their descriptor.
+     * Since the order doesn't depend on the order the entries were added in,
+     * writing the sorted mappings always gives the same output for the same mappings.
+     * </p>
+     *
+     * @return the sorted mappings
+     */
+    public ImmutableMappings sorted() {
+        ImmutableMappings sorted = this.sorted;
+        if (sorted == null) {
+            sorted = new ImmutableMappings(
+                    sortByKey(classes, JavaType::getInternalName),
+                    sortByKey(methods, method -> method.getInternalName() + " " + method.getSignature().getDescriptor()),
+                    sortByKey(fields, FieldData::getInternalName)
+            );
+            sorted.sorted = sorted;
+            this.sorted = sorted;
+        }
+        return sorted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> ImmutableBiMap<K, V> sortByKey(ImmutableBiMap<K, V> map, Function<K, String> keyRenderer) {
+        ImmutableList<Map.Entry<K, V>> entries = map.entrySet().asList();
+        // Render all the keys up front (in parallel), so the sort only has to compare strings
+        SortEntry<K, V>[] sortEntries = (SortEntry<K, V>[]) new SortEntry<?, ?>[entries.size()];
+        IntStream.range(0, sortEntries.length).parallel().forEach(index -> {
+            Map.Entry<K, V> entry = entries.get(index);
+            sortEntries[index] = new SortEntry<>(keyRenderer.apply(entry.getKey()), entry);
+        });
+        Arrays.parallelSort(sortEntries);
+        ImmutableBiMap.Builder<K, V> result = ImmutableBiMap.builder();
+        for (SortEntry<K, V> sortEntry : sortEntries) {
+            result.put(sortEntry.entry);
+        }
+        return result.build();
+    }
+
+    private static final class SortEntry<K, V> implements Comparable<SortEntry<K, V>> {
+        private final String key;
+        private final Map.Entry<K, V> entry;
+
+        private SortEntry(String key, Map.Entry<K, V> entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(SortEntry<K, V> other) {
+            return key.compareTo(other.key);
+        }
+    }
+
     public static ImmutableMappings copyOf(
             Map<JavaType, JavaType> originalClasses,
             Map<MethodData, String> methodNames,
@@ -103,10 +243,15 @@ public final class ImmutableMappings implements Mappings {
         // No consistency check needed since we're building type-information from scratch
         ImmutableBiMap.Builder<MethodData, MethodData> methods = ImmutableBiMap.builder();
         ImmutableBiMap.Builder<FieldData, FieldData> fields = ImmutableBiMap.builder();
+        UnaryOperator<JavaType> remapper = oldType -> oldType.mapClass(oldClass -> classes.getOrDefault(oldClass, oldClass));
+        // Parsed signatures are interned, so each distinct signature only needs to be remapped once
+        Map<MethodSignature, MethodSignature> signatures = new IdentityHashMap<>();
         methodNames.forEach((originalData, newName) -> {
-            MethodData newData = originalData
-                    .mapTypes((oldType) -> oldType.mapClass(oldClass -> classes.getOrDefault(oldClass, oldClass)))
-                    .withName(newName);
+            MethodData newData = MethodData.create(
+                    remapper.apply(originalData.getDeclaringType()),
+                    newName,
+                    signatures.computeIfAbsent(originalData.getSignature(), signature -> signature.mapTypes(remapper))
+            );
             methods.put(originalData, newData);
         });
         fieldNames.forEach((originalData, newName) -> {
@@ -141,11 +286,81 @@ public final class ImmutableMappings implements Mappings {
             ImmutableBiMap<MethodData, MethodData> methods,
             ImmutableBiMap<FieldData, FieldData> fields
     ) {
+        MappingsMetrics metrics = MappingsMetrics.current();
+        long start = metrics != null ? System.nanoTime() : 0;
         ImmutableMappings result = new ImmutableMappings(classes, methods, fields);
         SrgLib.checkConsistency(result);
+        if (metrics != null) {
+            long elapsed = System.nanoTime() - start;
+            metrics.recordPhase(MappingsMetrics.Phase.VALIDATE, elapsed);
+            metrics.recordOperation(MappingsMetrics.Operation.CREATE, elapsed);
+        }
         return result;
     }
 
+    /**
+     * Build the specified bimaps and create mappings from them, reporting the time spent building to the metrics.
+     */
+    /* package */ static ImmutableMappings build(
+            @Nullable MappingsMetrics metrics,
+            ImmutableBiMap.Builder<JavaType, JavaType> classes,
+            ImmutableBiMap.Builder<MethodData, MethodData> methods,
+            ImmutableBiMap.Builder<FieldData, FieldData> fields
+    ) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        ImmutableBiMap<JavaType, JavaType> builtClasses = classes.build();
+        ImmutableBiMap<MethodData, MethodData> builtMethods = methods.build();
+        ImmutableBiMap<FieldData, FieldData> builtFields = fields.build();
+        if (metrics != null) metrics.lap(MappingsMetrics.Phase.BIMAP_BUILD, start);
+        return create(builtClasses, builtMethods, builtFields);
+    }
+
+    /**
+     * Return a copy of these mappings with the specified members updated from the new names, reusing all the others.
+     * <p>
+     * The classes must be unchanged, so the remapped signatures of the other members are still correct.
+     * Members missing from the new names are removed.
+     * Changed members keep their positions in the iteration order, and new members are added at the end.
+     * </p>
+     */
+    /* package */ ImmutableMappings withChangedMembers(
+            Set<MethodData> changedMethods,
+            Map<MethodData, String> methodNames,
+            Set<FieldData> changedFields,
+            Map<FieldData, String> fieldNames
+    ) {
+        if (changedMethods.isEmpty() && changedFields.isEmpty()) return this;
+        return new ImmutableMappings(
+                classes,
+                replaceEntries(methods, changedMethods, methodNames, (original, newName) -> original.mapTypes(this::getNewType).withName(newName)),
+                replaceEntries(fields, changedFields, fieldNames, (original, newName) -> original.mapTypes(this::getNewType).withName(newName))
+        );
+    }
+
+    private static <T> ImmutableBiMap<T, T> replaceEntries(
+            ImmutableBiMap<T, T> entries,
+            Set<T> changed,
+            Map<T, String> newNames,
+            BiFunction<T, String, T> remapper
+    ) {
+        if (changed.isEmpty()) return entries;
+        // Replace the changed entries in place, so editing an entry doesn't move it in the output
+        ImmutableBiMap.Builder<T, T> builder = ImmutableBiMap.builder();
+        entries.forEach((original, renamed) -> {
+            if (changed.contains(original)) {
+                String newName = newNames.get(original);
+                if (newName != null) builder.put(original, remapper.apply(original, newName));
+            } else {
+                builder.put(original, renamed);
+            }
+        });
+        for (T original : changed) {
+            String newName = newNames.get(original);
+            if (newName != null && !entries.containsKey(original)) builder.put(original, remapper.apply(original, newName));
+        }
+        return builder.build();
+    }
+
     public static ImmutableMappings copyOf(Mappings other) {
         if (other instanceof ImmutableMappings) {
             return (ImmutableMappings) other;
@@ -0,0 +1,92 @@
+package net.techcable.srglib.mappings;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.MoreObjects;
+
+import net.techcable.srglib.mappings.MappingsMetrics.EntryKind;
+
+import static java.util.Objects.*;
+
+/**
+ * Counts how the lookups of {@link Mappings#createCountingMappings(Mappings, LookupStatistics) counting mappings} are resolved.
+ * <p>
+ * Lookups which find an explicit entry are hits, while lookups without one either fall back to remapping the types,
+ * or miss entirely when the result is the same as the original.
+ * Many fallbacks suggest that precomputing entries would pay off.
+ * </p>
+ * <p>
+ * The counters are striped, so statistics can be shared between threads without contention.
+ * </p>
+ */
+public final class LookupStatistics {
+    private static final int OUTCOMES = Outcome.values().length;
+    private final LongAdder[] counters;
+
+    private LookupStatistics() {
+        counters = new LongAdder[EntryKind.values().length * OUTCOMES];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    public static LookupStatistics create() {
+        return new LookupStatistics();
+    }
+
+    /* package */ void record(EntryKind kind, Outcome outcome) {
+        counters[kind.ordinal() * OUTCOMES + outcome.ordinal()].increment();
+    }
+
+    public long getCount(EntryKind kind, Outcome outcome) {
+        requireNonNull(kind, "Null kind");
+        requireNonNull(outcome, "Null outcome");
+        return counters[kind.ordinal() * OUTCOMES + outcome.ordinal()].sum();
+    }
+
+    public long getTotal(EntryKind kind) {
+        long total = 0;
+        for (Outcome outcome : Outcome.values()) {
+            total += getCount(kind, outcome);
+        }
+        return total;
+    }
+
+    /**
+     * Reset all the counters back to zero.
+     * <p>
+     * Lookups made concurrently with the reset may or may not be counted.
+     * </p>
+     */
+    public void reset() {
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        MoreObjects.ToStringHelper helper = MoreObjects.toStringHelper(this);
+        for (EntryKind kind : EntryKind.values()) {
+            for (Outcome outcome : Outcome.values()) {
+                helper.add(kind.name().toLowerCase() + "." + outcome.name().toLowerCase(), getCount(kind, outcome));
+            }
+        }
+        return helper.toString();
+    }
+
+    public enum Outcome {
+        /**
+         * The lookup found an explicit entry.
+         */
+        HIT,
+        /**
+         * The lookup found no entry, but the types were remapped.
+         */
+        FALLBACK,
+        /**
+         * The lookup found no entry, and the original was returned unchanged.
+         */
+        MISS
+    }
+}
@@ -61,7 +61,56 @@ public interface Mappings {
      * @return the new type
      */
     default JavaType getNewType(JavaType original) {
-        return requireNonNull(original, "Null type").mapClass(this::getNewClass);
+        switch (requireNonNull(original, "Null type").getSort()) {
+            case REFERENCE_TYPE:
+                // Avoid allocating a method reference for the common case
+                return getNewClass(original);
+            case PRIMITIVE_TYPE:
+                return original;
+            default:
+                return original.mapClass(this::getNewClass);
+        }
+    }
+
+    /**
+     * Remap the class names in the specified field descriptor.
+     * <p>
+     * The descriptor is scanned directly, without creating a {@link JavaType},
+     * and is returned as-is if none of its classes are renamed.
+     * </p>
+     *
+     * @param descriptor the original field descriptor
+     * @return the remapped descriptor
+     * @throws IllegalArgumentException if the descriptor is invalid
+     */
+    default String remapDescriptor(String descriptor) {
+        return DescriptorRemapper.remapDescriptor(descriptor, this::remapClassName);
+    }
+
+    /**
+     * Remap the class names in the specified method descriptor.
+     * <p>
+     * The descriptor is scanned directly, without creating a {@link net.techcable.srglib.MethodSignature},
+     * and is returned as-is if none of its classes are renamed.
+     * </p>
+     *
+     * @param descriptor the original method descriptor
+     * @return the remapped descriptor
+     * @throws IllegalArgumentException if the descriptor is invalid
+     */
+    default String remapMethodDescriptor(String descriptor) {
+        return DescriptorRemapper.remapMethodDescriptor(descriptor, this::remapClassName);
+    }
+
+    /**
+     * Remap the specified internal class name.
+     *
+     * @param internalName the original internal name of the class
+     * @return the new internal name of the class
+     * @throws IllegalArgumentException if the name isn't a valid class name
+     */
+    default String remapClassName(String internalName) {
+        return getNewClass(JavaType.fromInternalName(internalName)).getInternalName();
     }
 
     /**
@@ -166,6 +215,8 @@ public interface Mappings {
      * @return the transformed data
      */
     default Mappings transform(Mappings original) {
+        MappingsMetrics metrics = MappingsMetrics.current();
+        long start = metrics != null ? System.nanoTime() : 0;
         ImmutableBiMap.Builder<JavaType, JavaType> types = ImmutableBiMap.builder();
         ImmutableBiMap.Builder<MethodData, MethodData> methods = ImmutableBiMap.builder();
         ImmutableBiMap.Builder<FieldData, FieldData> fields = ImmutableBiMap.builder();
@@ -181,7 +232,9 @@ public interface Mappings {
             FieldData newFieldData = this.getNewField(originalFieldData);
             fields.put(originalFieldData, newFieldData);
         });
-        return ImmutableMappings.create(types.build(), methods.build(), fields.build());
+        ImmutableMappings result = ImmutableMappings.build(metrics, types, methods, fields);
+        if (metrics != null) metrics.recordOperation(MappingsMetrics.Operation.TRANSFORM, System.nanoTime() - start);
+        return result;
     }
 
     /**
@@ -208,6 +261,8 @@ public interface Mappings {
      * @param mappings the mappings to chain together
      */
     static Mappings chain(ImmutableList<? extends Mappings> mappings) {
+        MappingsMetrics metrics = MappingsMetrics.current();
+        long start = metrics != null ? System.nanoTime() : 0;
         ImmutableMappings chained = empty();
         for (int i = 0; i < mappings.size(); i++) {
             Mappings mapping = mappings.get(i);
@@ -247,8 +302,9 @@ public interface Mappings {
                 renamed = mapping.getNewMethod(renamed);
                 methods.put(original, renamed);
             });
-            chained = ImmutableMappings.create(classes.build(), methods.build(), fields.build());
+            chained = ImmutableMappings.build(metrics, classes, methods, fields);
         }
+        if (metrics != null) metrics.recordOperation(MappingsMetrics.Operation.CHAIN, System.nanoTime() - start);
         return chained;
     }
 
@@ -302,4 +358,20 @@ public interface Mappings {
             }
         }, null, null);
     }
+
+    /**
+     * Wrap the specified mappings, counting how each lookup is resolved into the specified statistics.
+     * <p>
+     * This shows how often lookups hit an explicit entry, fall back to remapping the types, or miss entirely.
+     * The counters are cheap, but the wrapper still adds a check for an explicit entry to every lookup,
+     * so it's best kept out of production remapping unless the statistics are needed.
+     * </p>
+     *
+     * @param mappings the mappings to count the lookups of
+     * @param statistics the statistics to count into
+     * @return mappings which count their lookups
+     */
+    static Mappings createCountingMappings(Mappings mappings, LookupStatistics statistics) {
+        return new CountingMappings(mappings, statistics);
+    }
 }
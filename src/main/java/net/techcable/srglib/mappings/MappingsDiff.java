@@ -0,0 +1,585 @@
+package net.techcable.srglib.mappings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.LineReader;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.utils.Exceptions;
+import net.techcable.srglib.utils.ImmutableLists;
+
+import static com.google.common.base.Preconditions.*;
+import static java.util.Objects.*;
+
+/**
+ * The differences between two sets of mappings, which can be serialized and applied as a patch.
+ * <p>
+ * Entries are keyed by their original data, so a diff describes which originals were added, removed or renamed.
+ * Since the renamed types of methods and fields are always derived from the class mappings,
+ * only the new names of members are stored.
+ * </p>
+ * <p>
+ * The serialized form is line based, similar to the compact srg format.
+ * Each line starts with '+' for an added entry, '*' for a renamed entry, or '-' for a removed entry,
+ * followed by a space and the entry itself.
+ * Removed entries omit the new name.
+ * </p>
+ */
+public final class MappingsDiff {
+    private static final MappingsDiff EMPTY = new MappingsDiff(
+            ImmutableMap.of(), ImmutableMap.of(), ImmutableSet.of(),
+            ImmutableMap.of(), ImmutableMap.of(), ImmutableSet.of(),
+            ImmutableMap.of(), ImmutableMap.of(), ImmutableSet.of()
+    );
+    private final ImmutableMap<JavaType, JavaType> addedClasses, renamedClasses;
+    private final ImmutableSet<JavaType> removedClasses;
+    private final ImmutableMap<MethodData, String> addedMethods, renamedMethods;
+    private final ImmutableSet<MethodData> removedMethods;
+    private final ImmutableMap<FieldData, String> addedFields, renamedFields;
+    private final ImmutableSet<FieldData> removedFields;
+
+    private MappingsDiff(
+            ImmutableMap<JavaType, JavaType> addedClasses,
+            ImmutableMap<JavaType, JavaType> renamedClasses,
+            ImmutableSet<JavaType> removedClasses,
+            ImmutableMap<MethodData, String> addedMethods,
+            ImmutableMap<MethodData, String> renamedMethods,
+            ImmutableSet<MethodData> removedMethods,
+            ImmutableMap<FieldData, String> addedFields,
+            ImmutableMap<FieldData, String> renamedFields,
+            ImmutableSet<FieldData> removedFields
+    ) {
+        this.addedClasses = requireNonNull(addedClasses);
+        this.renamedClasses = requireNonNull(renamedClasses);
+        this.removedClasses = requireNonNull(removedClasses);
+        this.addedMethods = requireNonNull(addedMethods);
+        this.renamedMethods = requireNonNull(renamedMethods);
+        this.removedMethods = requireNonNull(removedMethods);
+        this.addedFields = requireNonNull(addedFields);
+        this.renamedFields = requireNonNull(renamedFields);
+        this.removedFields = requireNonNull(removedFields);
+    }
+
+    /**
+     * Return the classes that are only present in the new mappings, and their new names.
+     *
+     * @return the added classes
+     */
+    public ImmutableMap<JavaType, JavaType> getAddedClasses() {
+        return addedClasses;
+    }
+
+    /**
+     * Return the classes that are present in both mappings, but have different new names.
+     *
+     * @return the renamed classes, and their names in the new mappings
+     */
+    public ImmutableMap<JavaType, JavaType> getRenamedClasses() {
+        return renamedClasses;
+    }
+
+    /**
+     * Return the classes that are only present in the old mappings.
+     *
+     * @return the removed classes
+     */
+    public ImmutableSet<JavaType> getRemovedClasses() {
+        return removedClasses;
+    }
+
+    /**
+     * Return the methods that are only present in the new mappings, and their new names.
+     *
+     * @return the added methods
+     */
+    public ImmutableMap<MethodData, String> getAddedMethods() {
+        return addedMethods;
+    }
+
+    /**
+     * Return the methods that are present in both mappings, but have different new names.
+     *
+     * @return the renamed methods, and their names in the new mappings
+     */
+    public ImmutableMap<MethodData, String> getRenamedMethods() {
+        return renamedMethods;
+    }
+
+    /**
+     * Return the methods that are only present in the old mappings.
+     *
+     * @return the removed methods
+     */
+    public ImmutableSet<MethodData> getRemovedMethods() {
+        return removedMethods;
+    }
+
+    /**
+     * Return the fields that are only present in the new mappings, and their new names.
+     *
+     * @return the added fields
+     */
+    public ImmutableMap<FieldData, String> getAddedFields() {
+        return addedFields;
+    }
+
+    /**
+     * Return the fields that are present in both mappings, but have different new names.
+     *
+     * @return the renamed fields, and their names in the new mappings
+     */
+    public ImmutableMap<FieldData, String> getRenamedFields() {
+        return renamedFields;
+    }
+
+    /**
+     * Return the fields that are only present in the old mappings.
+     *
+     * @return the removed fields
+     */
+    public ImmutableSet<FieldData> getRemovedFields() {
+        return removedFields;
+    }
+
+    /**
+     * Return if there are no differences.
+     *
+     * @return if this diff is empty
+     */
+    public boolean isEmpty() {
+        return addedClasses.isEmpty() && renamedClasses.isEmpty() && removedClasses.isEmpty()
+                && addedMethods.isEmpty() && renamedMethods.isEmpty() && removedMethods.isEmpty()
+                && addedFields.isEmpty() && renamedFields.isEmpty() && removedFields.isEmpty();
+    }
+
+    /**
+     * Return the number of changed entries.
+     *
+     * @return the number of changes
+     */
+    public int size() {
+        return addedClasses.size() + renamedClasses.size() + removedClasses.size()
+                + addedMethods.size() + renamedMethods.size() + removedMethods.size()
+                + addedFields.size() + renamedFields.size() + removedFields.size();
+    }
+
+    /**
+     * Serialize this diff in the patch format.
+     *
+     * @param output where to write the patch
+     * @throws IOException if an error occurs writing the output
+     */
+    public void write(Appendable output) throws IOException {
+        try {
+            removedClasses.forEach(Exceptions.sneakyThrowing(original -> {
+                output.append("- ").append(original.getInternalName()).append('\n');
+            }));
+            renamedClasses.forEach(Exceptions.sneakyThrowing((original, renamed) -> writeClass('*', original, renamed, output)));
+            addedClasses.forEach(Exceptions.sneakyThrowing((original, renamed) -> writeClass('+', original, renamed, output)));
+            removedFields.forEach(Exceptions.sneakyThrowing(original -> {
+                output.append("- ");
+                writeField(original, output);
+                output.append('\n');
+            }));
+            renamedFields.forEach(Exceptions.sneakyThrowing((original, newName) -> writeField('*', original, newName, output)));
+            addedFields.forEach(Exceptions.sneakyThrowing((original, newName) -> writeField('+', original, newName, output)));
+            removedMethods.forEach(Exceptions.sneakyThrowing(original -> {
+                output.append("- ");
+                writeMethod(original, output);
+                output.append('\n');
+            }));
+            renamedMethods.forEach(Exceptions.sneakyThrowing((original, newName) -> writeMethod('*', original, newName, output)));
+            addedMethods.forEach(Exceptions.sneakyThrowing((original, newName) -> writeMethod('+', original, newName, output)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeClass(char kind, JavaType original, JavaType renamed, Appendable output) throws IOException {
+        output.append(kind).append(' ');
+        output.append(original.getInternalName());
+        output.append(' ');
+        output.append(renamed.getInternalName());
+        output.append('\n');
+    }
+
+    private static void writeField(FieldData original, Appendable output) throws IOException {
+        output.append(original.getDeclaringType().getInternalName());
+        output.append(' ');
+        output.append(original.getName());
+    }
+
+    private static void writeField(char kind, FieldData original, String newName, Appendable output) throws IOException {
+        output.append(kind).append(' ');
+        writeField(original, output);
+        output.append(' ');
+        output.append(newName);
+        output.append('\n');
+    }
+
+    private static void writeMethod(MethodData original, Appendable output) throws IOException {
+        output.append(original.getDeclaringType().getInternalName());
+        output.append(' ');
+        output.append(original.getName());
+        output.append(' ');
+        output.append(original.getSignature().getDescriptor());
+    }
+
+    private static void writeMethod(char kind, MethodData original, String newName, Appendable output) throws IOException {
+        output.append(kind).append(' ');
+        writeMethod(original, output);
+        output.append(' ');
+        output.append(newName);
+        output.append('\n');
+    }
+
+    /**
+     * Serialize this diff into a list of patch lines.
+     *
+     * @return the lines of the patch
+     */
+    public List<String> toLines() {
+        StringBuilder result = new StringBuilder();
+        Exceptions.sneakyThrowing(() -> write(result)).run();
+        List<String> lines = new ArrayList<>(size());
+        int start = 0, end;
+        while ((end = result.indexOf("\n", start)) >= 0) {
+            lines.add(result.substring(start, end));
+            start = end + 1;
+        }
+        return lines;
+    }
+
+    /**
+     * Return an empty diff, which changes nothing.
+     *
+     * @return an empty diff
+     */
+    public static MappingsDiff empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parse a patch from the specified text.
+     *
+     * @param readable the text to parse
+     * @return the parsed patch
+     * @throws IOException if an error occurs reading the text
+     * @throws IllegalArgumentException if the patch is invalid
+     */
+    public static MappingsDiff parse(Readable readable) throws IOException {
+        LineReader lineReader = new LineReader(readable);
+        Parser parser = new Parser();
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+        return parser.build();
+    }
+
+    /**
+     * Parse a patch from the specified lines.
+     *
+     * @param lines the lines of the patch
+     * @return the parsed patch
+     * @throws IllegalArgumentException if the patch is invalid
+     */
+    public static MappingsDiff parseLines(Iterable<String> lines) {
+        Parser parser = new Parser();
+        lines.forEach(parser::parseLine);
+        return parser.build();
+    }
+
+    /**
+     * Parse a patch from the specified lines.
+     *
+     * @param lines the lines of the patch
+     * @return the parsed patch
+     * @throws IllegalArgumentException if the patch is invalid
+     */
+    public static MappingsDiff parseLines(String... lines) {
+        return parseLines(Arrays.asList(lines));
+    }
+
+    private static class Parser {
+        private final ImmutableMap.Builder<JavaType, JavaType> addedClasses = ImmutableMap.builder(), renamedClasses = ImmutableMap.builder();
+        private final ImmutableSet.Builder<JavaType> removedClasses = ImmutableSet.builder();
+        private final ImmutableMap.Builder<MethodData, String> addedMethods = ImmutableMap.builder(), renamedMethods = ImmutableMap.builder();
+        private final ImmutableSet.Builder<MethodData> removedMethods = ImmutableSet.builder();
+        private final ImmutableMap.Builder<FieldData, String> addedFields = ImmutableMap.builder(), renamedFields = ImmutableMap.builder();
+        private final ImmutableSet.Builder<FieldData> removedFields = ImmutableSet.builder();
+
+        private void parseLine(String line) {
+            line = line.trim();
+            if (line.startsWith("#") || line.isEmpty()) return;
+            checkArgument(line.length() > 2 && line.charAt(1) == ' ', "Invalid line: %s", line);
+            char kind = line.charAt(0);
+            String[] args = line.substring(2).split(" ");
+            switch (kind) {
+                case '-':
+                    switch (args.length) {
+                        case 1:
+                            removedClasses.add(JavaType.fromInternalName(args[0]));
+                            return;
+                        case 2:
+                            removedFields.add(FieldData.create(JavaType.fromInternalName(args[0]), args[1]));
+                            return;
+                        case 3:
+                            removedMethods.add(MethodData.create(
+                                    JavaType.fromInternalName(args[0]),
+                                    args[1],
+                                    MethodSignature.fromDescriptor(args[2])
+                            ));
+                            return;
+                    }
+                    break;
+                case '+':
+                case '*':
+                    boolean added = kind == '+';
+                    switch (args.length) {
+                        case 2:
+                            (added ? addedClasses : renamedClasses).put(
+                                    JavaType.fromInternalName(args[0]),
+                                    JavaType.fromInternalName(args[1])
+                            );
+                            return;
+                        case 3:
+                            (added ? addedFields : renamedFields).put(
+                                    FieldData.create(JavaType.fromInternalName(args[0]), args[1]),
+                                    args[2]
+                            );
+                            return;
+                        case 4:
+                            (added ? addedMethods : renamedMethods).put(
+                                    MethodData.create(
+                                            JavaType.fromInternalName(args[0]),
+                                            args[1],
+                                            MethodSignature.fromDescriptor(args[2])
+                                    ),
+                                    args[3]
+                            );
+                            return;
+                    }
+                    break;
+            }
+            throw new IllegalArgumentException("Invalid line: " + line);
+        }
+
+        private MappingsDiff build() {
+            return new MappingsDiff(
+                    addedClasses.build(), renamedClasses.build(), removedClasses.build(),
+                    addedMethods.build(), renamedMethods.build(), removedMethods.build(),
+                    addedFields.build(), renamedFields.build(), removedFields.build()
+            );
+        }
+    }
+
+    /**
+     * Compute the differences between the old and new mappings.
+     * <p>
+     * Large mappings are split into contiguous partitions, and each partition is compared in parallel.
+     * The partitions are joined back in order,
+     * so the order of the result only depends on the iteration order of the inputs.
+     * </p>
+     *
+     * @param oldMappings the old mappings
+     * @param newMappings the new mappings
+     * @return the differences between the two
+     */
+    public static MappingsDiff compute(Mappings oldMappings, Mappings newMappings) {
+        ImmutableMappings first = oldMappings.snapshot();
+        ImmutableMappings second = newMappings.snapshot();
+        Delta<JavaType, JavaType> classes = Delta.compute(
+                first.classes(), first::getNewClass,
+                second.classes(), second::getNewClass
+        );
+        Delta<MethodData, String> methods = Delta.compute(
+                first.methods(), original -> first.getNewMethod(original).getName(),
+                second.methods(), original -> second.getNewMethod(original).getName()
+        );
+        Delta<FieldData, String> fields = Delta.compute(
+                first.fields(), original -> first.getNewField(original).getName(),
+                second.fields(), original -> second.getNewField(original).getName()
+        );
+        return new MappingsDiff(
+                classes.added.build(), classes.renamed.build(), classes.removed.build(),
+                methods.added.build(), methods.renamed.build(), methods.removed.build(),
+                fields.added.build(), fields.renamed.build(), fields.removed.build()
+        );
+    }
+
+    /**
+     * Apply the patch to the specified mappings.
+     *
+     * @param mappings the mappings to patch
+     * @param patch the patch to apply
+     * @return the patched mappings
+     * @throws IllegalArgumentException if the patch doesn't apply to the mappings
+     */
+    public static ImmutableMappings apply(ImmutableMappings mappings, MappingsDiff patch) {
+        if (patch.isEmpty()) return mappings;
+        Map<JavaType, JavaType> classes = new LinkedHashMap<>();
+        Map<MethodData, String> methodNames = new LinkedHashMap<>();
+        Map<FieldData, String> fieldNames = new LinkedHashMap<>();
+        mappings.forEachClass(classes::put);
+        mappings.forEachMethod((original, renamed) -> methodNames.put(original, renamed.getName()));
+        mappings.forEachField((original, renamed) -> fieldNames.put(original, renamed.getName()));
+        applyChanges(classes, patch.removedClasses, patch.renamedClasses, patch.addedClasses);
+        applyChanges(methodNames, patch.removedMethods, patch.renamedMethods, patch.addedMethods);
+        applyChanges(fieldNames, patch.removedFields, patch.renamedFields, patch.addedFields);
+        return ImmutableMappings.copyOf(classes, methodNames, fieldNames);
+    }
+
+    private static <K, V> void applyChanges(Map<K, V> target, Set<K> removed, Map<K, V> renamed, Map<K, V> added) {
+        for (K original : removed) {
+            checkArgument(target.remove(original) != null, "Can't remove missing entry: %s", original);
+        }
+        renamed.forEach((original, value) -> checkArgument(
+                target.replace(original, value) != null,
+                "Can't rename missing entry: %s",
+                original
+        ));
+        added.forEach((original, value) -> checkArgument(
+                target.putIfAbsent(original, value) == null,
+                "Can't add existing entry: %s",
+                original
+        ));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = addedClasses.hashCode();
+        result = 31 * result + renamedClasses.hashCode();
+        result = 31 * result + removedClasses.hashCode();
+        result = 31 * result + addedMethods.hashCode();
+        result = 31 * result + renamedMethods.hashCode();
+        result = 31 * result + removedMethods.hashCode();
+        result = 31 * result + addedFields.hashCode();
+        result = 31 * result + renamedFields.hashCode();
+        result = 31 * result + removedFields.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || obj.getClass() != MappingsDiff.class) return false;
+        MappingsDiff other = (MappingsDiff) obj;
+        return addedClasses.equals(other.addedClasses)
+                && renamedClasses.equals(other.renamedClasses)
+                && removedClasses.equals(other.removedClasses)
+                && addedMethods.equals(other.addedMethods)
+                && renamedMethods.equals(other.renamedMethods)
+                && removedMethods.equals(other.removedMethods)
+                && addedFields.equals(other.addedFields)
+                && renamedFields.equals(other.renamedFields)
+                && removedFields.equals(other.removedFields);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(MappingsDiff.class)
+                .add("addedClasses", addedClasses)
+                .add("renamedClasses", renamedClasses)
+                .add("removedClasses", removedClasses)
+                .add("addedMethods", addedMethods)
+                .add("renamedMethods", renamedMethods)
+                .add("removedMethods", removedMethods)
+                .add("addedFields", addedFields)
+                .add("renamedFields", renamedFields)
+                .add("removedFields", removedFields)
+                .toString();
+    }
+
+    /**
+     * The changes to one kind of entry, computed over contiguous partitions of the keys.
+     */
+    private static class Delta<K, V> {
+        /**
+         * Below this many keys, splitting the work isn't worth it.
+         */
+        private static final int PARALLEL_THRESHOLD = 4096;
+        private static final int PARTITIONS = 64;
+        private final ImmutableMap.Builder<K, V> added = ImmutableMap.builder();
+        private final ImmutableMap.Builder<K, V> renamed = ImmutableMap.builder();
+        private final ImmutableSet.Builder<K> removed = ImmutableSet.builder();
+
+        private static <K, V> Delta<K, V> compute(
+                Set<K> oldKeys,
+                Function<K, V> oldValues,
+                Set<K> newKeys,
+                Function<K, V> newValues
+        ) {
+            Delta<K, V> result = new Delta<>();
+            if (oldKeys.size() + newKeys.size() < PARALLEL_THRESHOLD) {
+                result.compute(oldKeys, oldKeys, oldValues, newKeys, newKeys, newValues);
+                return result;
+            }
+            List<K> oldList = ImmutableList.copyOf(oldKeys), newList = ImmutableList.copyOf(newKeys);
+            ImmutableList<Delta<K, V>> partitions = IntStream.range(0, PARTITIONS)
+                    .parallel()
+                    .mapToObj(index -> {
+                        Delta<K, V> partition = new Delta<>();
+                        partition.compute(
+                                slice(oldList, index), oldKeys, oldValues,
+                                slice(newList, index), newKeys, newValues
+                        );
+                        return partition;
+                    })
+                    .collect(ImmutableLists.collector());
+            // Join the partitions in order, so the result matches comparing them one by one
+            for (Delta<K, V> partition : partitions) {
+                result.added.putAll(partition.added.build());
+                result.renamed.putAll(partition.renamed.build());
+                result.removed.addAll(partition.removed.build());
+            }
+            return result;
+        }
+
+        private static <K> List<K> slice(List<K> keys, int index) {
+            long size = keys.size();
+            return keys.subList((int) (size * index / PARTITIONS), (int) (size * (index + 1) / PARTITIONS));
+        }
+
+        private void compute(
+                Iterable<K> oldKeys,
+                Set<K> allOldKeys,
+                Function<K, V> oldValues,
+                Iterable<K> newKeys,
+                Set<K> allNewKeys,
+                Function<K, V> newValues
+        ) {
+            for (K key : oldKeys) {
+                if (allNewKeys.contains(key)) {
+                    V newValue = newValues.apply(key);
+                    if (!newValue.equals(oldValues.apply(key))) {
+                        renamed.put(key, newValue);
+                    }
+                } else {
+                    removed.add(key);
+                }
+            }
+            for (K key : newKeys) {
+                if (!allOldKeys.contains(key)) {
+                    added.put(key, newValues.apply(key));
+                }
+            }
+        }
+    }
+}
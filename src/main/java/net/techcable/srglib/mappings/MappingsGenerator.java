@@ -0,0 +1,379 @@
+package net.techcable.srglib.mappings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.PrimitiveType;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * Generates realistic synthetic mappings, for benchmarks and scaling tests.
+ * <p>
+ * The original names look like obfuscated names, like {@code abc} and {@code abc$a},
+ * and the renamed classes are spread over a tree of packages, with srg-style member names like {@code func_1234_a}.
+ * A few classes declare most of the members, like in real programs.
+ * Descriptors follow a realistic distribution, where most methods have few parameters,
+ * {@code int} and {@code boolean} are the most common primitives,
+ * and some types are arrays or come from the JDK.
+ * </p>
+ * <p>
+ * The same seed and settings always generate the same mappings.
+ * Generators are immutable, and configured with the {@code with} methods.
+ * </p>
+ */
+public final class MappingsGenerator {
+    private static final int DEFAULT_CLASS_COUNT = 1000;
+    private static final int DEFAULT_MEMBER_COUNT = 20_000;
+    private static final double DEFAULT_CHURN = 0.05;
+    private static final double INNER_CLASS_CHANCE = 0.15;
+    private static final double FIELD_CHANCE = 0.35;
+    private static final int CLASSES_PER_PACKAGE = 40;
+    private static final String ROOT_PACKAGE = "net/techcable/generated";
+    private static final int MAX_PACKAGE_DEPTH = 4;
+    private static final ImmutableSet<String> KEYWORDS = ImmutableSet.of(
+            "do", "if", "for", "int", "new", "try", "byte", "case", "char", "else", "enum", "goto",
+            "long", "null", "this", "true", "void"
+    );
+    private static final String[] PACKAGE_WORDS = {
+            "block", "client", "command", "data", "entity", "gen", "inventory", "item",
+            "network", "render", "server", "sound", "stats", "util", "world"
+    };
+    private static final String[] CLASS_WORDS = {
+            "Biome", "Block", "Buffer", "Cache", "Chunk", "Client", "Command", "Config", "Data", "Entity",
+            "Event", "Handler", "Inventory", "Item", "Manager", "Model", "Network", "Packet", "Path", "Player",
+            "Recipe", "Registry", "Render", "Server", "Sound", "State", "Structure", "Texture", "Util", "World"
+    };
+    private static final JavaType[] JDK_TYPES = {
+            JavaType.fromInternalName("java/lang/String"),
+            JavaType.fromInternalName("java/lang/Object"),
+            JavaType.fromInternalName("java/util/List"),
+            JavaType.fromInternalName("java/util/Map"),
+            JavaType.fromInternalName("java/util/Set"),
+            JavaType.fromInternalName("java/util/UUID"),
+            JavaType.fromInternalName("java/util/Random"),
+            JavaType.fromInternalName("java/lang/Class")
+    };
+    private static final JavaType[] PRIMITIVES = {
+            PrimitiveType.INT, PrimitiveType.BOOLEAN, PrimitiveType.LONG, PrimitiveType.FLOAT,
+            PrimitiveType.DOUBLE, PrimitiveType.CHAR, PrimitiveType.BYTE, PrimitiveType.SHORT
+    };
+    private static final double[] PRIMITIVE_WEIGHTS = { 40, 20, 10, 10, 8, 5, 4, 3 };
+    private static final double[] PARAMETER_COUNT_WEIGHTS = { 30, 30, 20, 10, 5, 2, 1.5, 1, 0.5 };
+    private final long seed;
+    private final int classCount;
+    private final int memberCount;
+    private final double churn;
+
+    private MappingsGenerator(long seed, int classCount, int memberCount, double churn) {
+        checkArgument(classCount > 0, "Invalid class count: %s", classCount);
+        checkArgument(memberCount >= 0, "Invalid member count: %s", memberCount);
+        checkArgument(churn >= 0 && churn <= 1, "Invalid churn: %s", churn);
+        this.seed = seed;
+        this.classCount = classCount;
+        this.memberCount = memberCount;
+        this.churn = churn;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public double getChurn() {
+        return churn;
+    }
+
+    /**
+     * Return a generator which generates the specified number of classes.
+     *
+     * @param classCount the number of classes
+     * @return a generator with the class count
+     * @throws IllegalArgumentException if the class count isn't positive
+     */
+    public MappingsGenerator withClassCount(int classCount) {
+        return new MappingsGenerator(seed, classCount, memberCount, churn);
+    }
+
+    /**
+     * Return a generator which generates the specified total number of fields and methods.
+     *
+     * @param memberCount the number of members
+     * @return a generator with the member count
+     * @throws IllegalArgumentException if the member count is negative
+     */
+    public MappingsGenerator withMemberCount(int memberCount) {
+        return new MappingsGenerator(seed, classCount, memberCount, churn);
+    }
+
+    /**
+     * Return a generator which renames the specified fraction of names between each version of a chain.
+     *
+     * @param churn the fraction of names to rename, between zero and one
+     * @return a generator with the churn
+     * @throws IllegalArgumentException if the churn isn't between zero and one
+     */
+    public MappingsGenerator withChurn(double churn) {
+        return new MappingsGenerator(seed, classCount, memberCount, churn);
+    }
+
+    /**
+     * Generate mappings from obfuscated names to deobfuscated names.
+     *
+     * @return the generated mappings
+     */
+    public ImmutableMappings generate() {
+        return generate(new Random(seed));
+    }
+
+    /**
+     * Generate a chain of mappings between successive versions of a program.
+     * <p>
+     * The first mappings are the same as {@link #generate()}.
+     * Each of the following mappings remaps the names of the previous version,
+     * renaming the configured fraction of the classes, fields and methods and keeping the rest.
+     * Renaming an outer class also renames its inner classes, like a real refactoring would.
+     * The result can be passed directly to {@link Mappings#chain(ImmutableList)}.
+     * </p>
+     *
+     * @param versions the number of mappings in the chain
+     * @return the chain of mappings
+     * @throws IllegalArgumentException if the number of versions isn't positive
+     */
+    public ImmutableList<ImmutableMappings> generateChain(int versions) {
+        checkArgument(versions > 0, "Invalid number of versions: %s", versions);
+        Random random = new Random(seed);
+        ImmutableList.Builder<ImmutableMappings> result = ImmutableList.builder();
+        ImmutableMappings previous = generate(random);
+        result.add(previous);
+        for (int version = 2; version <= versions; version++) {
+            previous = generateVersion(previous, version, random);
+            result.add(previous);
+        }
+        return result.build();
+    }
+
+    private ImmutableMappings generate(Random random) {
+        List<String> packages = generatePackages(random, (classCount + CLASSES_PER_PACKAGE - 1) / CLASSES_PER_PACKAGE);
+        JavaType[] originalTypes = new JavaType[classCount];
+        JavaType[] renamedTypes = new JavaType[classCount];
+        int[] innerClassCounts = new int[classCount];
+        Set<String> usedNames = new HashSet<>();
+        ImmutableBiMap.Builder<JavaType, JavaType> classes = ImmutableBiMap.builder();
+        int[] topLevelCount = new int[1];
+        for (int i = 0; i < classCount; i++) {
+            String original, renamed;
+            if (i > 0 && random.nextDouble() < INNER_CLASS_CHANCE) {
+                int outer = random.nextInt(i);
+                original = originalTypes[outer].getInternalName() + "$" + nextObfuscatedName(innerClassCounts, outer);
+                renamed = renamedTypes[outer].getInternalName() + "$" + className(random);
+            } else {
+                original = nextObfuscatedName(topLevelCount, 0);
+                renamed = packages.get(random.nextInt(packages.size())) + "/" + className(random);
+            }
+            // Make the renamed name unique by adding a number
+            String uniqueName = renamed;
+            for (int suffix = 2; !usedNames.add(uniqueName); suffix++) {
+                uniqueName = renamed + suffix;
+            }
+            originalTypes[i] = JavaType.fromInternalName(original);
+            renamedTypes[i] = JavaType.fromInternalName(uniqueName);
+            classes.put(originalTypes[i], renamedTypes[i]);
+        }
+        Map<JavaType, JavaType> classMap = new HashMap<>();
+        for (int i = 0; i < classCount; i++) {
+            classMap.put(originalTypes[i], renamedTypes[i]);
+        }
+        ImmutableBiMap.Builder<MethodData, MethodData> methods = ImmutableBiMap.builder();
+        ImmutableBiMap.Builder<FieldData, FieldData> fields = ImmutableBiMap.builder();
+        int[] fieldCounts = new int[classCount];
+        int[] methodCounts = new int[classCount];
+        for (int id = 0; id < memberCount; id++) {
+            // Squaring skews the members towards the first classes, so a few classes are much larger than the rest
+            double position = random.nextDouble();
+            int owner = (int) (position * position * classCount);
+            if (random.nextDouble() < FIELD_CHANCE) {
+                String name = nextObfuscatedName(fieldCounts, owner);
+                fields.put(
+                        FieldData.create(originalTypes[owner], name),
+                        FieldData.create(renamedTypes[owner], "field_" + id + "_" + name)
+                );
+            } else {
+                String name = nextObfuscatedName(methodCounts, owner);
+                MethodSignature signature = generateSignature(random, originalTypes);
+                MethodSignature renamedSignature = signature.mapTypes(type -> type.mapClass(c -> classMap.getOrDefault(c, c)));
+                methods.put(
+                        MethodData.create(originalTypes[owner], name, signature),
+                        MethodData.create(renamedTypes[owner], "func_" + id + "_" + name, renamedSignature)
+                );
+            }
+        }
+        return ImmutableMappings.create(classes.build(), methods.build(), fields.build());
+    }
+
+    private ImmutableMappings generateVersion(ImmutableMappings previous, int version, Random random) {
+        // Sorting puts outer classes before their inner classes, so inner classes can follow their renamed outer class
+        List<JavaType> types = new ArrayList<>();
+        previous.forEachClass((original, renamed) -> types.add(renamed));
+        types.sort((first, second) -> first.getInternalName().compareTo(second.getInternalName()));
+        String suffix = "_v" + version;
+        Map<JavaType, JavaType> classMap = new HashMap<>();
+        ImmutableBiMap.Builder<JavaType, JavaType> classes = ImmutableBiMap.builder();
+        for (JavaType type : types) {
+            String name = type.getInternalName();
+            int innerStart = name.lastIndexOf('$');
+            String prefix;
+            if (innerStart >= 0) {
+                JavaType outer = JavaType.fromInternalName(name.substring(0, innerStart));
+                prefix = classMap.getOrDefault(outer, outer).getInternalName() + "$";
+            } else {
+                prefix = name.substring(0, name.lastIndexOf('/') + 1);
+            }
+            String simpleName = name.substring(Math.max(innerStart, name.lastIndexOf('/')) + 1);
+            if (random.nextDouble() < churn) simpleName += suffix;
+            JavaType renamed = JavaType.fromInternalName(prefix + simpleName);
+            classMap.put(type, renamed);
+            classes.put(type, renamed);
+        }
+        ImmutableBiMap.Builder<MethodData, MethodData> methods = ImmutableBiMap.builder();
+        previous.forEachMethod((original, method) -> {
+            String name = random.nextDouble() < churn ? method.getName() + suffix : method.getName();
+            methods.put(method, MethodData.create(
+                    classMap.get(method.getDeclaringType()),
+                    name,
+                    method.getSignature().mapTypes(type -> type.mapClass(c -> classMap.getOrDefault(c, c)))
+            ));
+        });
+        ImmutableBiMap.Builder<FieldData, FieldData> fields = ImmutableBiMap.builder();
+        previous.forEachField((original, field) -> {
+            String name = random.nextDouble() < churn ? field.getName() + suffix : field.getName();
+            fields.put(field, FieldData.create(classMap.get(field.getDeclaringType()), name));
+        });
+        return ImmutableMappings.create(classes.build(), methods.build(), fields.build());
+    }
+
+    private static List<String> generatePackages(Random random, int count) {
+        List<String> packages = new ArrayList<>(count);
+        Set<String> usedPackages = new HashSet<>();
+        while (packages.size() < count) {
+            // Nest packages inside existing ones, to build a tree a few levels deep
+            String parent = packages.isEmpty() || random.nextInt(3) == 0 ? ROOT_PACKAGE : packages.get(random.nextInt(packages.size()));
+            if (parent.length() - parent.replace("/", "").length() >= MAX_PACKAGE_DEPTH + 2) parent = ROOT_PACKAGE;
+            String name = parent + "/" + PACKAGE_WORDS[random.nextInt(PACKAGE_WORDS.length)];
+            if (usedPackages.add(name)) packages.add(name);
+        }
+        return packages;
+    }
+
+    private static MethodSignature generateSignature(Random random, JavaType[] classes) {
+        int parameterCount = pick(random, PARAMETER_COUNT_WEIGHTS);
+        ImmutableList.Builder<JavaType> parameterTypes = ImmutableList.builder();
+        for (int i = 0; i < parameterCount; i++) {
+            parameterTypes.add(generateType(random, classes));
+        }
+        JavaType returnType = random.nextDouble() < 0.4 ? PrimitiveType.VOID : generateType(random, classes);
+        return MethodSignature.create(parameterTypes.build(), returnType);
+    }
+
+    private static JavaType generateType(Random random, JavaType[] classes) {
+        double kind = random.nextDouble();
+        JavaType type;
+        if (kind < 0.45) {
+            type = PRIMITIVES[pick(random, PRIMITIVE_WEIGHTS)];
+        } else if (kind < 0.65) {
+            type = JDK_TYPES[random.nextInt(JDK_TYPES.length)];
+        } else {
+            type = classes[random.nextInt(classes.length)];
+        }
+        double arrays = random.nextDouble();
+        if (arrays < 0.01) {
+            return JavaType.createArray(2, type);
+        } else if (arrays < 0.1) {
+            return JavaType.createArray(1, type);
+        } else {
+            return type;
+        }
+    }
+
+    private static String className(Random random) {
+        StringBuilder result = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            result.append(CLASS_WORDS[random.nextInt(CLASS_WORDS.length)]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Pick a random index, where each index is chosen in proportion to its weight.
+     */
+    private static int pick(Random random, double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double value = random.nextDouble() * total;
+        for (int i = 0; i < weights.length - 1; i++) {
+            value -= weights[i];
+            if (value < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Return the next obfuscated name, like {@code a}, {@code z}, {@code aa}, skipping the short keywords.
+     *
+     * @param counters the counters of the names which were already used
+     * @param index the index of the counter to use
+     * @return the next obfuscated name
+     */
+    private static String nextObfuscatedName(int[] counters, int index) {
+        String name;
+        do {
+            name = obfuscatedName(counters[index]++);
+        } while (KEYWORDS.contains(name));
+        return name;
+    }
+
+    private static String obfuscatedName(int index) {
+        StringBuilder result = new StringBuilder();
+        do {
+            result.append((char) ('a' + index % 26));
+            index = index / 26 - 1;
+        } while (index >= 0);
+        return result.reverse().toString();
+    }
+
+    /**
+     * Create a generator with the specified seed and the default settings.
+     * <p>
+     * By default 1000 classes and 20,000 members are generated, and 5% of the names change between versions.
+     * </p>
+     *
+     * @param seed the seed of the random names and types
+     * @return a new generator
+     */
+    public static MappingsGenerator create(long seed) {
+        return new MappingsGenerator(seed, DEFAULT_CLASS_COUNT, DEFAULT_MEMBER_COUNT, DEFAULT_CHURN);
+    }
+}
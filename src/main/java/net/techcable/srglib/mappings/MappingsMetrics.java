@@ -0,0 +1,232 @@
+package net.techcable.srglib.mappings;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.format.MappingsFormat;
+
+import static java.util.Objects.*;
+
+/**
+ * Statistics about parsing and building mappings.
+ * <p>
+ * While metrics are {@link #install(MappingsMetrics) installed}, {@link MappingsFormat#parse(Readable)},
+ * {@link Mappings#chain(ImmutableList)}, {@link Mappings#transform(Mappings)} and {@link ImmutableMappings#create}
+ * report what they do into them, so a slow load can be diagnosed without attaching a profiler.
+ * When no metrics are installed, the only overhead is checking for them.
+ * </p>
+ * <p>
+ * Operations can nest, so the time spent parsing compact srg includes the time spent creating the result.
+ * Metrics are thread-safe, and may be updated by multiple threads at once.
+ * </p>
+ */
+public final class MappingsMetrics {
+    @Nullable
+    private static volatile MappingsMetrics installed;
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder[] entries = createAdders(EntryKind.values().length);
+    private final LongAdder[] phaseNanos = createAdders(Phase.values().length);
+    private final LongAdder[] operationCounts = createAdders(Operation.values().length);
+    private final LongAdder[] operationNanos = createAdders(Operation.values().length);
+
+    private MappingsMetrics() {
+    }
+
+    public static MappingsMetrics create() {
+        return new MappingsMetrics();
+    }
+
+    /**
+     * Install the specified metrics globally, replacing any previously installed metrics.
+     *
+     * @param metrics the metrics to report into, or null to stop reporting
+     */
+    public static void install(@Nullable MappingsMetrics metrics) {
+        installed = metrics;
+    }
+
+    /**
+     * Return the globally installed metrics.
+     *
+     * @return the installed metrics, or null if none are installed
+     */
+    @Nullable
+    public static MappingsMetrics current() {
+        return installed;
+    }
+
+    /**
+     * Record that the specified line was read.
+     * <p>
+     * The bytes read are counted as the length of the line in UTF-8, plus a single byte for the line terminator.
+     * </p>
+     *
+     * @param line the line that was read
+     */
+    public void recordLine(String line) {
+        lines.increment();
+        bytesRead.add(utf8Length(line) + 1);
+    }
+
+    public void recordEntry(EntryKind kind) {
+        entries[kind.ordinal()].increment();
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    /**
+     * Record the time since the specified start of the phase, returning the current time.
+     * <p>
+     * This makes it easy to time a sequence of phases with a single call to {@link System#nanoTime()} for each.
+     * </p>
+     *
+     * @param phase the phase which just finished
+     * @param start the value of {@link System#nanoTime()} when the phase started
+     * @return the current value of {@link System#nanoTime()}, when the next phase starts
+     */
+    public long lap(Phase phase, long start) {
+        long now = System.nanoTime();
+        recordPhase(phase, now - start);
+        return now;
+    }
+
+    public void recordOperation(Operation operation, long nanos) {
+        operationCounts[operation.ordinal()].increment();
+        operationNanos[operation.ordinal()].add(nanos);
+    }
+
+    public long getLines() {
+        return lines.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getEntries(EntryKind kind) {
+        return entries[requireNonNull(kind, "Null kind").ordinal()].sum();
+    }
+
+    public long getTime(Phase phase, TimeUnit unit) {
+        return unit.convert(phaseNanos[requireNonNull(phase, "Null phase").ordinal()].sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getCount(Operation operation) {
+        return operationCounts[requireNonNull(operation, "Null operation").ordinal()].sum();
+    }
+
+    public long getTime(Operation operation, TimeUnit unit) {
+        return unit.convert(operationNanos[requireNonNull(operation, "Null operation").ordinal()].sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Return the number of lines parsed per second, over all the time spent parsing.
+     *
+     * @return the lines parsed per second, or zero if nothing has been parsed
+     */
+    public double getLinesPerSecond() {
+        long nanos = operationNanos[Operation.PARSE.ordinal()].sum();
+        return nanos > 0 ? getLines() / (nanos / 1e9) : 0;
+    }
+
+    /**
+     * Reset all the metrics back to zero.
+     * <p>
+     * Metrics recorded concurrently with the reset may or may not be kept.
+     * </p>
+     */
+    public void reset() {
+        lines.reset();
+        bytesRead.reset();
+        for (LongAdder[] adders : new LongAdder[][] { entries, phaseNanos, operationCounts, operationNanos }) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        MoreObjects.ToStringHelper helper = MoreObjects.toStringHelper(this)
+                .add("lines", getLines())
+                .add("bytesRead", getBytesRead())
+                .add("linesPerSecond", (long) getLinesPerSecond());
+        for (EntryKind kind : EntryKind.values()) {
+            helper.add(kind.name().toLowerCase() + "Entries", getEntries(kind));
+        }
+        for (Phase phase : Phase.values()) {
+            helper.add(phase.name().toLowerCase() + "Millis", getTime(phase, TimeUnit.MILLISECONDS));
+        }
+        for (Operation operation : Operation.values()) {
+            String name = operation.name().toLowerCase();
+            helper.add(name + "Count", getCount(operation));
+            helper.add(name + "Millis", getTime(operation, TimeUnit.MILLISECONDS));
+        }
+        return helper.toString();
+    }
+
+    private static LongAdder[] createAdders(int size) {
+        LongAdder[] result = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+
+    private static int utf8Length(String s) {
+        int length = s.length();
+        int result = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x800) {
+                // Each half of a surrogate pair counts for two of the four bytes
+                result += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                result += 1;
+            }
+        }
+        return result;
+    }
+
+    public enum EntryKind {
+        CLASS,
+        FIELD,
+        METHOD
+    }
+
+    /**
+     * The phases of parsing and building mappings.
+     */
+    public enum Phase {
+        /**
+         * Splitting lines into their parts.
+         */
+        TOKENIZE,
+        /**
+         * Parsing method descriptors.
+         */
+        DESCRIPTOR_PARSE,
+        /**
+         * Validating names and checking the consistency of mappings.
+         */
+        VALIDATE,
+        /**
+         * Building the bimaps of immutable mappings.
+         */
+        BIMAP_BUILD
+    }
+
+    public enum Operation {
+        PARSE,
+        CHAIN,
+        TRANSFORM,
+        CREATE
+    }
+}
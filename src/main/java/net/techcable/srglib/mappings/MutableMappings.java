@@ -12,6 +12,10 @@ import static com.google.common.base.Preconditions.*;
 
 /**
  * Mappings that can be modified
+ * <p>
+ * The sets returned by {@link #classes()}, {@link #methods()} and {@link #fields()} are unmodifiable views,
+ * so the mappings can only be changed through the methods of this interface.
+ * </p>
  */
 public interface MutableMappings extends Mappings {
 
@@ -82,6 +86,27 @@ public interface MutableMappings extends Mappings {
      */
     void putField(FieldData original, String newName);
 
+    /**
+     * Remove the class's mapping, so it keeps its original name.
+     *
+     * @param original the original class
+     */
+    void removeClass(JavaType original);
+
+    /**
+     * Remove the method's mapping, so it keeps its original name.
+     *
+     * @param original the original method data
+     */
+    void removeMethod(MethodData original);
+
+    /**
+     * Remove the field's mapping, so it keeps its original name.
+     *
+     * @param original the original field data
+     */
+    void removeField(FieldData original);
+
     /**
      * Return an inverted copy of the mappings, switching the original and renamed.
      * <p>
@@ -93,6 +118,18 @@ public interface MutableMappings extends Mappings {
     @Override
     Mappings inverted();
 
+    /**
+     * Return a live inverted view of the mappings, switching the original and renamed.
+     * <p>
+     * Unlike {@link #inverted()}, changes in this mapping are reflected in the resulting view,
+     * which is maintained as the mappings are modified, so reverse lookups stay cheap.
+     * Looking up a member which several originals were renamed to throws an {@link IllegalStateException}.
+     * </p>
+     *
+     * @return an inverted view
+     */
+    Mappings invertedView();
+
     /**
      * Create a new mutable mappings object, with no contents.
      *
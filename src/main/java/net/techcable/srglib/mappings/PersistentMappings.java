@@ -0,0 +1,295 @@
+package net.techcable.srglib.mappings;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.utils.PersistentHashMap;
+
+import static com.google.common.base.Preconditions.*;
+import static java.util.Objects.*;
+
+/**
+ * Immutable mappings which are updated by creating new versions, sharing almost all their structure with the previous one.
+ * <p>
+ * Unlike {@link ImmutableMappings}, which can only be built all at once,
+ * changing a single entry only copies a handful of small arrays, no matter how large the mappings are.
+ * This makes it cheap to keep an immutable version after every edit, for example to support undo.
+ * </p>
+ * <p>
+ * Like {@link MutableMappings}, only the new names of members are stored,
+ * and their signatures are remapped through the classes on lookup.
+ * Mapping an entry to itself removes it.
+ * </p>
+ */
+public final class PersistentMappings implements Mappings {
+    private static final PersistentMappings EMPTY = new PersistentMappings(
+            PersistentHashMap.empty(),
+            PersistentHashMap.empty(),
+            PersistentHashMap.empty(),
+            PersistentHashMap.empty()
+    );
+    private final PersistentHashMap<JavaType, JavaType> classes;
+    /**
+     * The original classes by their new names, so two classes can't be renamed to the same name.
+     */
+    private final PersistentHashMap<JavaType, JavaType> renamedClasses;
+    private final PersistentHashMap<MethodData, String> methodNames;
+    private final PersistentHashMap<FieldData, String> fieldNames;
+
+    private PersistentMappings(
+            PersistentHashMap<JavaType, JavaType> classes,
+            PersistentHashMap<JavaType, JavaType> renamedClasses,
+            PersistentHashMap<MethodData, String> methodNames,
+            PersistentHashMap<FieldData, String> fieldNames
+    ) {
+        this.classes = classes;
+        this.renamedClasses = renamedClasses;
+        this.methodNames = methodNames;
+        this.fieldNames = fieldNames;
+    }
+
+    public static PersistentMappings empty() {
+        return EMPTY;
+    }
+
+    public static PersistentMappings copyOf(Mappings mappings) {
+        if (mappings instanceof PersistentMappings) {
+            return (PersistentMappings) mappings;
+        }
+        return EMPTY.withAll(mappings);
+    }
+
+    private PersistentMappings withClasses(
+            PersistentHashMap<JavaType, JavaType> classes,
+            PersistentHashMap<JavaType, JavaType> renamedClasses
+    ) {
+        if (classes == this.classes) return this;
+        return new PersistentMappings(classes, renamedClasses, methodNames, fieldNames);
+    }
+
+    private PersistentMappings withMethodNames(PersistentHashMap<MethodData, String> methodNames) {
+        if (methodNames == this.methodNames) return this;
+        return new PersistentMappings(classes, renamedClasses, methodNames, fieldNames);
+    }
+
+    private PersistentMappings withFieldNames(PersistentHashMap<FieldData, String> fieldNames) {
+        if (fieldNames == this.fieldNames) return this;
+        return new PersistentMappings(classes, renamedClasses, methodNames, fieldNames);
+    }
+
+    /**
+     * Return a version of these mappings which renames the specified class.
+     *
+     * @param original the original class
+     * @param renamed the new class
+     * @return the new version
+     * @throws IllegalArgumentException if the types aren't reference types, or another class is already renamed to the same name
+     */
+    public PersistentMappings with(JavaType original, JavaType renamed) {
+        checkArgument(original.isReferenceType(), "Original type isn't a reference type: %s", original);
+        checkArgument(renamed.isReferenceType(), "Renamed type isn't a reference type: %s", renamed);
+        if (original.equals(renamed)) return without(original);
+        JavaType existingOriginal = renamedClasses.get(renamed);
+        checkArgument(
+                existingOriginal == null || existingOriginal.equals(original),
+                "%s is already renamed to %s",
+                existingOriginal,
+                renamed
+        );
+        JavaType existingRenamed = classes.get(original);
+        PersistentHashMap<JavaType, JavaType> renamedClasses = this.renamedClasses;
+        if (existingRenamed != null) {
+            renamedClasses = renamedClasses.without(existingRenamed);
+        }
+        return withClasses(classes.with(original, renamed), renamedClasses.with(renamed, original));
+    }
+
+    /**
+     * Return a version of these mappings which renames the specified method.
+     *
+     * @param original the original method
+     * @param newName the new name of the method
+     * @return the new version
+     */
+    public PersistentMappings with(MethodData original, String newName) {
+        requireNonNull(original, "Null original");
+        if (original.getName().equals(requireNonNull(newName, "Null newName"))) return without(original);
+        return withMethodNames(methodNames.with(original, newName));
+    }
+
+    /**
+     * Return a version of these mappings which renames the specified method, ensuring the signatures match.
+     *
+     * @param original the original method
+     * @param renamed the renamed method
+     * @return the new version
+     * @throws IllegalArgumentException if the renamed types don't match the remapped original types
+     */
+    public PersistentMappings with(MethodData original, MethodData renamed) {
+        checkArgument(
+                original.mapTypes(this::getNewType).hasSameTypes(renamed),
+                "Remapped method data types (%s) don't correspond to original types (%s)",
+                renamed,
+                original
+        );
+        return with(original, renamed.getName());
+    }
+
+    /**
+     * Return a version of these mappings which renames the specified field.
+     *
+     * @param original the original field
+     * @param newName the new name of the field
+     * @return the new version
+     */
+    public PersistentMappings with(FieldData original, String newName) {
+        requireNonNull(original, "Null original");
+        if (original.getName().equals(requireNonNull(newName, "Null newName"))) return without(original);
+        return withFieldNames(fieldNames.with(original, newName));
+    }
+
+    /**
+     * Return a version of these mappings which renames the specified field, ensuring the types match.
+     *
+     * @param original the original field
+     * @param renamed the renamed field
+     * @return the new version
+     * @throws IllegalArgumentException if the renamed type doesn't match the remapped original type
+     */
+    public PersistentMappings with(FieldData original, FieldData renamed) {
+        checkArgument(
+                original.mapTypes(this::getNewType).hasSameTypes(renamed),
+                "Remapped field data types (%s) don't correspond to original types (%s)",
+                renamed,
+                original
+        );
+        return with(original, renamed.getName());
+    }
+
+    public PersistentMappings without(JavaType original) {
+        JavaType existingRenamed = classes.get(requireNonNull(original, "Null original"));
+        if (existingRenamed == null) return this;
+        return withClasses(classes.without(original), renamedClasses.without(existingRenamed));
+    }
+
+    public PersistentMappings without(MethodData original) {
+        return withMethodNames(methodNames.without(requireNonNull(original, "Null original")));
+    }
+
+    public PersistentMappings without(FieldData original) {
+        return withFieldNames(fieldNames.without(requireNonNull(original, "Null original")));
+    }
+
+    /**
+     * Return a version of these mappings with all the entries of the specified mappings,
+     * replacing any existing entries for the same originals.
+     *
+     * @param other the mappings to add
+     * @return the new version
+     * @throws IllegalArgumentException if a class would be renamed to the same name as another
+     */
+    public PersistentMappings withAll(Mappings other) {
+        PersistentMappings result = this;
+        for (JavaType original : other.classes()) {
+            result = result.with(original, other.getNewClass(original));
+        }
+        for (MethodData original : other.methods()) {
+            result = result.with(original, other.getNewMethod(original).getName());
+        }
+        for (FieldData original : other.fields()) {
+            result = result.with(original, other.getNewField(original).getName());
+        }
+        return result;
+    }
+
+    @Override
+    public JavaType getNewClass(JavaType original) {
+        checkArgument(original.isReferenceType(), "Type isn't a reference type: %s", original);
+        return classes.getOrDefault(original, original);
+    }
+
+    @Override
+    public MethodData getNewMethod(MethodData original) {
+        String newName = methodNames.getOrDefault(original, original.getName());
+        return original.mapTypes(this::getNewType).withName(newName);
+    }
+
+    @Override
+    public FieldData getNewField(FieldData original) {
+        String newName = fieldNames.getOrDefault(original, original.getName());
+        return original.mapTypes(this::getNewType).withName(newName);
+    }
+
+    @Nullable
+    private ImmutableMappings snapshot;
+
+    @Override
+    public ImmutableMappings snapshot() {
+        ImmutableMappings snapshot = this.snapshot;
+        if (snapshot == null) {
+            this.snapshot = snapshot = ImmutableMappings.copyOf(classes, methodNames, fieldNames);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public Set<JavaType> classes() {
+        return classes.keySet();
+    }
+
+    @Override
+    public Set<MethodData> methods() {
+        return methodNames.keySet();
+    }
+
+    @Override
+    public Set<FieldData> fields() {
+        return fieldNames.keySet();
+    }
+
+    @Override
+    public void forEachClass(BiConsumer<JavaType, JavaType> action) {
+        classes.forEach(action);
+    }
+
+    @Override
+    public void forEachMethod(BiConsumer<MethodData, MethodData> action) {
+        methodNames.forEach((original, newName) -> action.accept(original, original.mapTypes(this::getNewType).withName(newName)));
+    }
+
+    @Override
+    public void forEachField(BiConsumer<FieldData, FieldData> action) {
+        fieldNames.forEach((original, newName) -> action.accept(original, original.mapTypes(this::getNewType).withName(newName)));
+    }
+
+    @Override
+    public boolean equals(Object otherObj) {
+        if (this == otherObj) return true;
+        if (otherObj == null) return false;
+        if (otherObj.getClass() == PersistentMappings.class) {
+            PersistentMappings other = (PersistentMappings) otherObj;
+            return classes.equals(other.classes) && methodNames.equals(other.methodNames) && fieldNames.equals(other.fieldNames);
+        } else if (otherObj instanceof Mappings) {
+            return this.snapshot().equals(((Mappings) otherObj).snapshot());
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int result = classes.hashCode();
+        result = 31 * result + methodNames.hashCode();
+        result = 31 * result + fieldNames.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
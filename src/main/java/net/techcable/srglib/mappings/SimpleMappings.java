@@ -1,10 +1,18 @@
 package net.techcable.srglib.mappings;
 
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.BiMap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.SetMultimap;
 
 import net.techcable.srglib.FieldData;
 import net.techcable.srglib.JavaType;
@@ -17,6 +25,32 @@ import static java.util.Objects.*;
     private final BiMap<JavaType, JavaType> classes;
     private final Map<MethodData, String> methodNames;
     private final Map<FieldData, String> fieldNames;
+    /**
+     * Incremented on every write, so the snapshot knows whether it's still current.
+     */
+    private int version;
+    @Nullable
+    private ImmutableMappings snapshot;
+    private int snapshotVersion;
+    /*
+     * The changes since the last snapshot, so the next one only needs to rebuild the changed members.
+     * Changing a class can change the signature of any member, so it always needs a full rebuild.
+     */
+    private boolean classesChanged;
+    private final Set<MethodData> changedMethods = new HashSet<>();
+    private final Set<FieldData> changedFields = new HashSet<>();
+    /*
+     * The original members by their new names, in terms of the original classes,
+     * so the inverse can find them without depending on the class mappings.
+     * They're only maintained once the inverted view has been requested.
+     * Several originals can share the same new name until they're fixed, so each key maps to a set.
+     */
+    @Nullable
+    private SetMultimap<MethodData, MethodData> originalMethods;
+    @Nullable
+    private SetMultimap<FieldData, FieldData> originalFields;
+    @Nullable
+    private InvertedView invertedView;
 
     /* package */ SimpleMappings(
             BiMap<JavaType, JavaType> classes,
@@ -33,20 +67,80 @@ import static java.util.Objects.*;
         checkArgument(original.isReferenceType(), "Original type isn't a reference type: %s", original);
         checkArgument(renamed.isReferenceType(), "Renamed type isn't a reference type: %s", renamed);
         if (original.equals(renamed)) {
-            classes.remove(original);
-        } else {
-            classes.put(original, renamed);
+            removeClass(original);
+        } else if (!renamed.equals(classes.put(original, renamed))) {
+            classChanged();
         }
     }
 
     @Override
     public void putMethod(MethodData original, String newName) {
-        methodNames.put(checkNotNull(original, "Null original"), checkNotNull(newName, "Null newName"));
+        String oldName = methodNames.put(checkNotNull(original, "Null original"), checkNotNull(newName, "Null newName"));
+        if (!newName.equals(oldName)) {
+            methodChanged(original, oldName, newName);
+        }
     }
 
     @Override
     public void putField(FieldData original, String newName) {
-        fieldNames.put(checkNotNull(original, "Null original"), checkNotNull(newName, "Null newName"));
+        String oldName = fieldNames.put(checkNotNull(original, "Null original"), checkNotNull(newName, "Null newName"));
+        if (!newName.equals(oldName)) {
+            fieldChanged(original, oldName, newName);
+        }
+    }
+
+    @Override
+    public void removeClass(JavaType original) {
+        if (classes.remove(checkNotNull(original, "Null original")) != null) {
+            classChanged();
+        }
+    }
+
+    @Override
+    public void removeMethod(MethodData original) {
+        String oldName = methodNames.remove(checkNotNull(original, "Null original"));
+        if (oldName != null) {
+            methodChanged(original, oldName, null);
+        }
+    }
+
+    @Override
+    public void removeField(FieldData original) {
+        String oldName = fieldNames.remove(checkNotNull(original, "Null original"));
+        if (oldName != null) {
+            fieldChanged(original, oldName, null);
+        }
+    }
+
+    private void classChanged() {
+        version++;
+        if (snapshot != null && !classesChanged) {
+            classesChanged = true;
+            changedMethods.clear();
+            changedFields.clear();
+        }
+    }
+
+    private void methodChanged(MethodData original, @Nullable String oldName, @Nullable String newName) {
+        version++;
+        if (snapshot != null && !classesChanged) {
+            changedMethods.add(original);
+        }
+        if (originalMethods != null) {
+            if (oldName != null) originalMethods.remove(original.withName(oldName), original);
+            if (newName != null) originalMethods.put(original.withName(newName), original);
+        }
+    }
+
+    private void fieldChanged(FieldData original, @Nullable String oldName, @Nullable String newName) {
+        version++;
+        if (snapshot != null && !classesChanged) {
+            changedFields.add(original);
+        }
+        if (originalFields != null) {
+            if (oldName != null) originalFields.remove(original.withName(oldName), original);
+            if (newName != null) originalFields.put(original.withName(newName), original);
+        }
     }
 
     @Override
@@ -64,38 +158,85 @@ import static java.util.Objects.*;
     @Override
     public FieldData getNewField(FieldData original) {
         String newName = fieldNames.getOrDefault(original, original.getName());
-        return FieldData.create(getNewType(original.getDeclaringType()), newName);
+        return original.mapTypes(this::getNewType).withName(newName);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The snapshot is reused until the mappings are next modified.
+     * If only members were changed since the last snapshot, the unchanged members are reused instead of remapped.
+     * </p>
+     */
     @Override
     public ImmutableMappings snapshot() {
-        return ImmutableMappings.copyOf(
-                this.classes,
-                this.methodNames,
-                this.fieldNames
-        );
+        ImmutableMappings snapshot = this.snapshot;
+        if (snapshot != null && snapshotVersion == version) return snapshot;
+        if (snapshot == null || classesChanged) {
+            snapshot = ImmutableMappings.copyOf(
+                    this.classes,
+                    this.methodNames,
+                    this.fieldNames
+            );
+        } else {
+            snapshot = snapshot.withChangedMembers(changedMethods, methodNames, changedFields, fieldNames);
+        }
+        this.snapshot = snapshot;
+        this.snapshotVersion = version;
+        this.classesChanged = false;
+        changedMethods.clear();
+        changedFields.clear();
+        return snapshot;
     }
 
     @Override
     public Set<JavaType> classes() {
-        return classes.keySet();
+        return Collections.unmodifiableSet(classes.keySet());
     }
 
     @Override
     public Set<MethodData> methods() {
-        return methodNames.keySet();
+        return Collections.unmodifiableSet(methodNames.keySet());
     }
 
     @Override
     public Set<FieldData> fields() {
-        return fieldNames.keySet();
+        return Collections.unmodifiableSet(fieldNames.keySet());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The inverse of the current snapshot is reused, so this is free until the mappings are next modified.
+     * </p>
+     */
     @Override
     public Mappings inverted() {
         return snapshot().inverted();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The first call indexes the members by their new names, which is kept up to date by every later write,
+     * so reverse lookups only cost a hash lookup.
+     * </p>
+     */
+    @Override
+    public Mappings invertedView() {
+        InvertedView invertedView = this.invertedView;
+        if (invertedView == null) {
+            SetMultimap<MethodData, MethodData> originalMethods = HashMultimap.create(methodNames.size(), 1);
+            methodNames.forEach((original, newName) -> originalMethods.put(original.withName(newName), original));
+            SetMultimap<FieldData, FieldData> originalFields = HashMultimap.create(fieldNames.size(), 1);
+            fieldNames.forEach((original, newName) -> originalFields.put(original.withName(newName), original));
+            this.originalMethods = originalMethods;
+            this.originalFields = originalFields;
+            this.invertedView = invertedView = new InvertedView(originalMethods, originalFields);
+        }
+        return invertedView;
+    }
+
     @Override
     public void forEachClass(BiConsumer<JavaType, JavaType> action) {
         classes.forEach(action);
@@ -143,4 +284,148 @@ import static java.util.Objects.*;
     public String toString() {
         return snapshot().toString();
     }
+
+    /**
+     * A live view of the inverse, switching the original and renamed.
+     * <p>
+     * The renamed members are converted back to the original classes,
+     * then looked up in the index of the original members by their new names.
+     * </p>
+     */
+    private final class InvertedView implements Mappings {
+        private final SetMultimap<MethodData, MethodData> originalMethods;
+        private final SetMultimap<FieldData, FieldData> originalFields;
+
+        /* package */ InvertedView(SetMultimap<MethodData, MethodData> originalMethods, SetMultimap<FieldData, FieldData> originalFields) {
+            this.originalMethods = originalMethods;
+            this.originalFields = originalFields;
+        }
+
+        @Override
+        public JavaType getNewClass(JavaType renamed) {
+            checkArgument(renamed.isReferenceType(), "Type isn't a reference type: %s", renamed);
+            return classes.inverse().getOrDefault(renamed, renamed);
+        }
+
+        @Override
+        public MethodData getNewMethod(MethodData renamed) {
+            MethodData unmapped = renamed.mapTypes(this::getNewType);
+            return findOriginal(originalMethods, unmapped);
+        }
+
+        @Override
+        public FieldData getNewField(FieldData renamed) {
+            FieldData unmapped = renamed.mapTypes(this::getNewType);
+            return findOriginal(originalFields, unmapped);
+        }
+
+        /**
+         * Find the original member which was renamed to the specified member, expressed in terms of the original classes.
+         *
+         * @throws IllegalStateException if several members were renamed to the same member
+         */
+        private <T> T findOriginal(SetMultimap<T, T> originals, T unmapped) {
+            Set<T> candidates = originals.get(unmapped);
+            switch (candidates.size()) {
+                case 0:
+                    return unmapped;
+                case 1:
+                    return candidates.iterator().next();
+                default:
+                    throw new IllegalStateException("Multiple members renamed to " + unmapped + ": " + candidates);
+            }
+        }
+
+        @Override
+        public ImmutableMappings snapshot() {
+            return SimpleMappings.this.snapshot().inverted();
+        }
+
+        @Override
+        public Mappings inverted() {
+            return SimpleMappings.this;
+        }
+
+        @Override
+        public Set<JavaType> classes() {
+            return Collections.unmodifiableSet(classes.values());
+        }
+
+        @Override
+        public Set<MethodData> methods() {
+            return new AbstractSet<MethodData>() {
+                @Override
+                public Iterator<MethodData> iterator() {
+                    return Iterators.unmodifiableIterator(Iterators.transform(
+                            methodNames.entrySet().iterator(),
+                            entry -> entry.getKey().mapTypes(SimpleMappings.this::getNewType).withName(entry.getValue())
+                    ));
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return obj instanceof MethodData && originalMethods.containsKey(((MethodData) obj).mapTypes(InvertedView.this::getNewType));
+                }
+
+                @Override
+                public int size() {
+                    return methodNames.size();
+                }
+            };
+        }
+
+        @Override
+        public Set<FieldData> fields() {
+            return new AbstractSet<FieldData>() {
+                @Override
+                public Iterator<FieldData> iterator() {
+                    return Iterators.unmodifiableIterator(Iterators.transform(
+                            fieldNames.entrySet().iterator(),
+                            entry -> entry.getKey().mapTypes(SimpleMappings.this::getNewType).withName(entry.getValue())
+                    ));
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return obj instanceof FieldData && originalFields.containsKey(((FieldData) obj).mapTypes(InvertedView.this::getNewType));
+                }
+
+                @Override
+                public int size() {
+                    return fieldNames.size();
+                }
+            };
+        }
+
+        @Override
+        public void forEachClass(BiConsumer<JavaType, JavaType> action) {
+            classes.forEach((original, renamed) -> action.accept(renamed, original));
+        }
+
+        @Override
+        public void forEachMethod(BiConsumer<MethodData, MethodData> action) {
+            SimpleMappings.this.forEachMethod((original, renamed) -> action.accept(renamed, original));
+        }
+
+        @Override
+        public void forEachField(BiConsumer<FieldData, FieldData> action) {
+            SimpleMappings.this.forEachField((original, renamed) -> action.accept(renamed, original));
+        }
+
+        @Override
+        public boolean equals(Object otherObj) {
+            if (this == otherObj) return true;
+            return otherObj instanceof Mappings && this.snapshot().equals(((Mappings) otherObj).snapshot());
+        }
+
+        @Override
+        public int hashCode() {
+            return snapshot().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return snapshot().toString();
+        }
+    }
 }
@@ -0,0 +1,261 @@
+package net.techcable.srglib.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * Remaps access transformers and access wideners, one line at a time.
+ * <p>
+ * Access transformers use Forge's syntax, like {@code public-f net.example.Foo func_1234_a(I)V # comment},
+ * with dotted class names and optional {@code *} wildcards.
+ * Access wideners use Fabric's syntax, like {@code accessible method net/example/Foo a (I)V},
+ * and their namespace header can be rewritten too.
+ * </p>
+ * <p>
+ * Each line is tokenized once and only the class names, member names and descriptors are replaced,
+ * so the whitespace, comments and access modifiers are kept exactly as they were.
+ * Members are looked up by name and descriptor in indexes built from the mappings,
+ * and descriptors are remapped as strings, so no types or member data are created for each line.
+ * Remappers are immutable and thread-safe.
+ * </p>
+ */
+public final class AccessTransformerRemapper {
+    private static final int MAX_TOKENS = 6;
+    private final Mappings mappings;
+    /**
+     * The new names of the methods, keyed by their original class's internal name and then their original name and descriptor.
+     */
+    private final ImmutableMap<String, ImmutableMap<String, String>> methodNames;
+    /**
+     * The new names of the fields, keyed by their original class's internal name and then their original name.
+     */
+    private final ImmutableMap<String, ImmutableMap<String, String>> fieldNames;
+
+    private AccessTransformerRemapper(
+            Mappings mappings,
+            ImmutableMap<String, ImmutableMap<String, String>> methodNames,
+            ImmutableMap<String, ImmutableMap<String, String>> fieldNames
+    ) {
+        this.mappings = mappings;
+        this.methodNames = methodNames;
+        this.fieldNames = fieldNames;
+    }
+
+    /**
+     * Create a remapper for access transformers and wideners using the specified mappings.
+     *
+     * @param mappings the mappings to remap with
+     * @return an access transformer remapper
+     */
+    public static AccessTransformerRemapper create(Mappings mappings) {
+        ImmutableMappings snapshot = mappings.snapshot();
+        Map<String, ImmutableMap.Builder<String, String>> methodNames = new HashMap<>();
+        snapshot.forEachMethod((original, renamed) -> {
+            if (!original.getName().equals(renamed.getName())) {
+                methodNames.computeIfAbsent(original.getDeclaringType().getInternalName(), owner -> ImmutableMap.builder())
+                        .put(original.getName() + original.getSignature().getDescriptor(), renamed.getName());
+            }
+        });
+        Map<String, ImmutableMap.Builder<String, String>> fieldNames = new HashMap<>();
+        snapshot.forEachField((original, renamed) -> {
+            if (!original.getName().equals(renamed.getName())) {
+                fieldNames.computeIfAbsent(original.getDeclaringType().getInternalName(), owner -> ImmutableMap.builder())
+                        .put(original.getName(), renamed.getName());
+            }
+        });
+        return new AccessTransformerRemapper(snapshot, build(methodNames), build(fieldNames));
+    }
+
+    private static ImmutableMap<String, ImmutableMap<String, String>> build(Map<String, ImmutableMap.Builder<String, String>> builders) {
+        ImmutableMap.Builder<String, ImmutableMap<String, String>> result = ImmutableMap.builder();
+        builders.forEach((owner, names) -> result.put(owner, names.build()));
+        return result.build();
+    }
+
+    /**
+     * Remap all the lines of an access transformer from the specified reader, writing them to the specified writer.
+     * <p>
+     * Line terminators are preserved. Neither stream is closed.
+     * Lines of a mebibyte or longer are copied through unchanged, to keep memory bounded.
+     * </p>
+     *
+     * @param in the access transformer to remap
+     * @param out where to write the remapped access transformer
+     * @throws IOException if an error occurs reading or writing
+     * @throws IllegalArgumentException if a line is invalid
+     */
+    public void remapAccessTransformer(Reader in, Writer out) throws IOException {
+        LineStreams.transform(in, out, this::remapAccessTransformerLine);
+    }
+
+    /**
+     * Remap a single line of an access transformer.
+     *
+     * @param line the line to remap
+     * @return the remapped line
+     * @throws IllegalArgumentException if the line is invalid
+     */
+    public String remapAccessTransformerLine(String line) {
+        StringBuilder output = new StringBuilder(line.length() + 16);
+        remapAccessTransformerLine(line, output);
+        return output.toString();
+    }
+
+    private void remapAccessTransformerLine(CharSequence line, StringBuilder output) {
+        int[] tokens = new int[MAX_TOKENS * 2];
+        int count = tokenize(line, tokens);
+        if (count == 0) {
+            output.append(line);
+            return;
+        }
+        checkArgument(count == 2 || count == 3, "Invalid access transformer line: %s", line);
+        String[] replacements = new String[count];
+        String owner = token(line, tokens, 1).replace('.', '/');
+        replacements[1] = mappings.remapClassName(owner).replace('/', '.');
+        if (count == 3) {
+            String member = token(line, tokens, 2);
+            int descriptorStart = member.indexOf('(');
+            if (member.startsWith("*")) {
+                // Wildcards don't need remapping
+            } else if (descriptorStart < 0) {
+                replacements[2] = fieldName(owner, member);
+            } else {
+                String name = member.substring(0, descriptorStart);
+                String descriptor = member.substring(descriptorStart);
+                replacements[2] = methodName(owner, name, descriptor) + mappings.remapMethodDescriptor(descriptor);
+            }
+        }
+        replaceTokens(line, tokens, replacements, output);
+    }
+
+    /**
+     * Remap all the lines of an access widener from the specified reader, writing them to the specified writer.
+     * <p>
+     * Line terminators are preserved. Neither stream is closed.
+     * Lines of a mebibyte or longer are copied through unchanged, to keep memory bounded.
+     * </p>
+     *
+     * @param in the access widener to remap
+     * @param out where to write the remapped access widener
+     * @param namespace the new namespace for the header, or null to keep the original
+     * @throws IOException if an error occurs reading or writing
+     * @throws IllegalArgumentException if a line is invalid
+     */
+    public void remapAccessWidener(Reader in, Writer out, @Nullable String namespace) throws IOException {
+        LineStreams.transform(in, out, (line, output) -> remapAccessWidenerLine(line, namespace, output));
+    }
+
+    /**
+     * Remap a single line of an access widener.
+     *
+     * @param line the line to remap
+     * @param namespace the new namespace if this is the header, or null to keep the original
+     * @return the remapped line
+     * @throws IllegalArgumentException if the line is invalid
+     */
+    public String remapAccessWidenerLine(String line, @Nullable String namespace) {
+        StringBuilder output = new StringBuilder(line.length() + 16);
+        remapAccessWidenerLine(line, namespace, output);
+        return output.toString();
+    }
+
+    private void remapAccessWidenerLine(CharSequence line, @Nullable String namespace, StringBuilder output) {
+        int[] tokens = new int[MAX_TOKENS * 2];
+        int count = tokenize(line, tokens);
+        if (count == 0) {
+            output.append(line);
+            return;
+        }
+        String[] replacements = new String[count];
+        String kind = count >= 2 ? token(line, tokens, 1) : "";
+        if (token(line, tokens, 0).equals("accessWidener")) {
+            checkArgument(count == 3, "Invalid access widener header: %s", line);
+            replacements[2] = namespace;
+        } else if (kind.equals("class")) {
+            checkArgument(count == 3, "Invalid access widener line: %s", line);
+            replacements[2] = mappings.remapClassName(token(line, tokens, 2));
+        } else if (kind.equals("method") || kind.equals("field")) {
+            checkArgument(count == 5, "Invalid access widener line: %s", line);
+            String owner = token(line, tokens, 2);
+            String name = token(line, tokens, 3);
+            String descriptor = token(line, tokens, 4);
+            replacements[2] = mappings.remapClassName(owner);
+            if (kind.equals("method")) {
+                replacements[3] = methodName(owner, name, descriptor);
+                replacements[4] = mappings.remapMethodDescriptor(descriptor);
+            } else {
+                replacements[3] = fieldName(owner, name);
+                replacements[4] = mappings.remapDescriptor(descriptor);
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid access widener line: " + line);
+        }
+        replaceTokens(line, tokens, replacements, output);
+    }
+
+    private String methodName(String owner, String name, String descriptor) {
+        ImmutableMap<String, String> names = methodNames.get(owner);
+        return names != null ? names.getOrDefault(name + descriptor, name) : name;
+    }
+
+    private String fieldName(String owner, String name) {
+        ImmutableMap<String, String> names = fieldNames.get(owner);
+        return names != null ? names.getOrDefault(name, name) : name;
+    }
+
+    /**
+     * Find the whitespace-separated tokens before any comment, storing their start and end.
+     *
+     * @return the number of tokens
+     * @throws IllegalArgumentException if there are too many tokens
+     */
+    private static int tokenize(CharSequence line, int[] tokens) {
+        int length = line.length();
+        int count = 0;
+        int position = 0;
+        while (position < length) {
+            char c = line.charAt(position);
+            if (c == '#') break;
+            if (Character.isWhitespace(c)) {
+                position++;
+                continue;
+            }
+            checkArgument(count < MAX_TOKENS, "Too many tokens: %s", line);
+            int start = position;
+            while (position < length && !Character.isWhitespace(c = line.charAt(position)) && c != '#') position++;
+            tokens[count * 2] = start;
+            tokens[count * 2 + 1] = position;
+            count++;
+        }
+        return count;
+    }
+
+    private static String token(CharSequence line, int[] tokens, int index) {
+        return line.subSequence(tokens[index * 2], tokens[index * 2 + 1]).toString();
+    }
+
+    /**
+     * Append the line with the specified tokens replaced, keeping any null replacements as they were.
+     */
+    private static void replaceTokens(CharSequence line, int[] tokens, String[] replacements, StringBuilder output) {
+        int copied = 0;
+        for (int i = 0; i < replacements.length; i++) {
+            String replacement = replacements[i];
+            if (replacement == null) continue;
+            output.append(line, copied, tokens[i * 2]).append(replacement);
+            copied = tokens[i * 2 + 1];
+        }
+        output.append(line, copied, line.length());
+    }
+}
@@ -0,0 +1,92 @@
+package net.techcable.srglib.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import static java.util.Objects.*;
+
+/**
+ * Streams text through a line transformer, using fixed buffers.
+ * <p>
+ * Each line is passed with its terminator, so line endings are preserved.
+ * Lines longer than {@link #MAX_LINE_LENGTH} are copied through entirely unchanged,
+ * instead of being passed to the transformer, so memory use stays bounded.
+ * </p>
+ */
+/* package */ final class LineStreams {
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * Lines at least this long are written out unchanged up to and including their terminator, to keep memory bounded.
+     */
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    private LineStreams() {}
+
+    /**
+     * Transform all the lines from the specified reader, writing them to the specified writer.
+     * <p>
+     * Neither stream is closed.
+     * </p>
+     *
+     * @param in the text to transform
+     * @param out where to write the transformed text
+     * @param transformer the transformer, which appends each transformed line to the output
+     * @throws IOException if an error occurs reading or writing
+     */
+    /* package */ static void transform(Reader in, Writer out, LineTransformer transformer) throws IOException {
+        requireNonNull(in, "Null input");
+        requireNonNull(out, "Null output");
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder();
+        StringBuilder output = new StringBuilder(BUFFER_SIZE * 2);
+        // Set while copying the rest of an overlong line, which is never transformed
+        boolean overlong = false;
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    if (overlong) {
+                        output.append(buffer, lineStart, i + 1 - lineStart);
+                        overlong = false;
+                    } else {
+                        line.append(buffer, lineStart, i + 1 - lineStart);
+                        transformer.transform(line, output);
+                        line.setLength(0);
+                    }
+                    lineStart = i + 1;
+                    if (output.length() >= BUFFER_SIZE) flush(output, buffer, out);
+                }
+            }
+            if (overlong) {
+                output.append(buffer, lineStart, read - lineStart);
+                flush(output, buffer, out);
+            } else {
+                line.append(buffer, lineStart, read - lineStart);
+                if (line.length() >= MAX_LINE_LENGTH) {
+                    output.append(line);
+                    line.setLength(0);
+                    overlong = true;
+                    flush(output, buffer, out);
+                }
+            }
+        }
+        if (line.length() > 0) transformer.transform(line, output);
+        flush(output, buffer, out);
+    }
+
+    private static void flush(StringBuilder output, char[] buffer, Writer out) throws IOException {
+        for (int start = 0; start < output.length(); start += buffer.length) {
+            int end = Math.min(output.length(), start + buffer.length);
+            output.getChars(start, end, buffer, 0);
+            out.write(buffer, 0, end - start);
+        }
+        output.setLength(0);
+    }
+
+    @FunctionalInterface
+    /* package */ interface LineTransformer {
+        void transform(CharSequence line, StringBuilder output);
+    }
+}
@@ -0,0 +1,188 @@
+package net.techcable.srglib.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.Mappings;
+
+import static java.util.Objects.*;
+
+/**
+ * Remaps stack traces and logs, one line at a time.
+ * <p>
+ * Frames like {@code at a.b(SourceFile:12)} are recognized, including any module or class loader prefix,
+ * and both the class and the method are remapped.
+ * Stack traces don't include method descriptors, so methods are looked up by their class and name alone.
+ * If the overloads of a method were renamed differently, all of the possible names are shown,
+ * like {@code run|start}.
+ * Everything else in the log, like exception messages and {@code Caused by} lines,
+ * has its class names remapped by a {@link TextRemapper}.
+ * </p>
+ * <p>
+ * Logs are streamed through fixed buffers, so memory use only depends on the length of the longest line.
+ * Remappers are immutable and thread-safe.
+ * </p>
+ */
+public final class StackTraceRemapper {
+    private final TextRemapper textRemapper;
+    /**
+     * The new names of the methods, keyed by their original class's dotted name and then their original name.
+     */
+    private final ImmutableMap<String, ImmutableMap<String, String>> methodNames;
+
+    private StackTraceRemapper(TextRemapper textRemapper, ImmutableMap<String, ImmutableMap<String, String>> methodNames) {
+        this.textRemapper = textRemapper;
+        this.methodNames = methodNames;
+    }
+
+    /**
+     * Create a remapper which remaps stack traces using the specified mappings.
+     *
+     * @param mappings the mappings to remap with
+     * @return a stack trace remapper
+     */
+    public static StackTraceRemapper create(Mappings mappings) {
+        Map<String, Map<String, Set<String>>> newNames = new HashMap<>();
+        for (MethodData method : mappings.methods()) {
+            newNames.computeIfAbsent(method.getDeclaringType().getName(), owner -> new HashMap<>())
+                    .computeIfAbsent(method.getName(), name -> new TreeSet<>())
+                    .add(mappings.getNewMethod(method).getName());
+        }
+        ImmutableMap.Builder<String, ImmutableMap<String, String>> methodNames = ImmutableMap.builder();
+        newNames.forEach((owner, names) -> {
+            ImmutableMap.Builder<String, String> ownerNames = ImmutableMap.builder();
+            names.forEach((name, candidates) -> {
+                String newName = String.join("|", candidates);
+                if (!newName.equals(name)) ownerNames.put(name, newName);
+            });
+            ImmutableMap<String, String> builtNames = ownerNames.build();
+            if (!builtNames.isEmpty()) methodNames.put(owner, builtNames);
+        });
+        return new StackTraceRemapper(TextRemapper.create(mappings), methodNames.build());
+    }
+
+    /**
+     * Create a remapper which deobfuscates stack traces,
+     * given the mappings which were used to obfuscate the program.
+     *
+     * @param obfuscation the mappings from the deobfuscated names to the obfuscated names
+     * @return a stack trace deobfuscator
+     */
+    public static StackTraceRemapper deobfuscating(Mappings obfuscation) {
+        return create(obfuscation.inverted());
+    }
+
+    /**
+     * Remap all the lines from the specified reader, writing them to the specified writer.
+     * <p>
+     * Line terminators are preserved. Neither stream is closed.
+     * Lines of a mebibyte or longer are copied through unchanged, to keep memory bounded.
+     * </p>
+     *
+     * @param in the log to remap
+     * @param out where to write the remapped log
+     * @throws IOException if an error occurs reading or writing
+     */
+    public void remap(Reader in, Writer out) throws IOException {
+        LineStreams.transform(in, out, this::remapLine);
+    }
+
+    /**
+     * Remap a single line of a stack trace or log.
+     *
+     * @param line the line to remap
+     * @return the remapped line
+     */
+    public String remapLine(String line) {
+        StringBuilder output = new StringBuilder(line.length() + 16);
+        remapLine(line, output);
+        return output.toString();
+    }
+
+    /**
+     * Remap a single line of a stack trace or log, appending the result to the output.
+     *
+     * @param line the line to remap
+     * @param output the builder to append the remapped line to
+     */
+    public void remapLine(CharSequence line, StringBuilder output) {
+        requireNonNull(output, "Null output");
+        if (!remapFrame(line, output)) textRemapper.remap(line, output);
+    }
+
+    private boolean remapFrame(CharSequence line, StringBuilder output) {
+        int length = line.length();
+        int frameStart = 0;
+        while (frameStart < length && Character.isWhitespace(line.charAt(frameStart))) frameStart++;
+        if (frameStart + 3 > length
+                || line.charAt(frameStart) != 'a'
+                || line.charAt(frameStart + 1) != 't'
+                || line.charAt(frameStart + 2) != ' ') {
+            return false;
+        }
+        frameStart += 3;
+        int open = indexOf(line, '(', frameStart, length);
+        if (open < 0) return false;
+        int close = indexOf(line, ')', open, length);
+        if (close < 0) return false;
+        // Skip the module or class loader, like 'java.base/' or 'app//'
+        int ownerStart = lastIndexOf(line, '/', frameStart, open) + 1;
+        if (ownerStart == 0) ownerStart = frameStart;
+        int dot = lastIndexOf(line, '.', ownerStart, open);
+        if (dot <= ownerStart) return false;
+        String owner = line.subSequence(ownerStart, dot).toString();
+        String name = line.subSequence(dot + 1, open).toString();
+        String newOwner = textRemapper.remap(owner);
+        ImmutableMap<String, String> ownerNames = methodNames.get(owner);
+        String newName = ownerNames != null ? ownerNames.getOrDefault(name, name) : name;
+        output.append(line, 0, ownerStart).append(newOwner).append('.').append(newName).append('(');
+        remapSource(line, open + 1, close, owner, newOwner, output);
+        textRemapper.remap(line.subSequence(close, length), output);
+        return true;
+    }
+
+    /**
+     * Rename the source file if it's named after the original class, like {@code a.java} or {@code a.kt}.
+     */
+    private static void remapSource(CharSequence line, int start, int end, String owner, String newOwner, StringBuilder output) {
+        String simpleName = outerSimpleName(owner);
+        String newSimpleName = outerSimpleName(newOwner);
+        int nameEnd = start + simpleName.length();
+        if (!simpleName.equals(newSimpleName)
+                && nameEnd < end
+                && line.charAt(nameEnd) == '.'
+                && simpleName.contentEquals(line.subSequence(start, nameEnd))) {
+            output.append(newSimpleName);
+            start = nameEnd;
+        }
+        output.append(line, start, end);
+    }
+
+    private static String outerSimpleName(String className) {
+        int start = className.lastIndexOf('.') + 1;
+        int end = className.indexOf('$', start);
+        return className.substring(start, end >= 0 ? end : className.length());
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(CharSequence text, char c, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (text.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+}
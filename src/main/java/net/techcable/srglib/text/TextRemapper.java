@@ -0,0 +1,255 @@
+package net.techcable.srglib.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.mappings.Mappings;
+
+import static java.util.Objects.*;
+
+/**
+ * Remaps the class names that appear in arbitrary text, like configuration files or reflection strings.
+ * <p>
+ * Both the internal names and the dotted names of the renamed classes are compiled into a single trie,
+ * so a document is rewritten in one pass no matter how many classes are renamed.
+ * The transitions of the trie are kept in one open-addressing table, keyed by the node and the next character,
+ * so even huge mappings only take a few arrays.
+ * </p>
+ * <p>
+ * Names are only replaced when they're a whole identifier,
+ * so {@code a.b} won't be replaced inside {@code a.bc} or {@code x.a.b}.
+ * A name may be followed by {@code $} for an inner class or by {@code .} for a member,
+ * and internal names are also recognized inside descriptors like {@code (La/b;)V}.
+ * When several names match at the same position, the longest one wins,
+ * so explicitly mapped inner classes take precedence over their outer class.
+ * Since a class in the default package has no separate internal name,
+ * it's replaced with the dotted name, except inside descriptors.
+ * </p>
+ * <p>
+ * Remappers are immutable and thread-safe.
+ * </p>
+ */
+public final class TextRemapper {
+    private static final long EMPTY = -1;
+    /**
+     * The keys of the transition table, which combine the parent node and the next character.
+     */
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    /**
+     * The index of the replacement for each node, or -1 if no name ends at the node.
+     */
+    private final int[] nodeReplacements;
+    private final String[] replacements;
+    /**
+     * The replacements inside descriptors, which differ for classes in the default package.
+     */
+    private final String[] descriptorReplacements;
+
+    private TextRemapper(long[] transitionKeys, int[] transitionTargets, int[] nodeReplacements, String[] replacements, String[] descriptorReplacements) {
+        this.transitionKeys = transitionKeys;
+        this.transitionTargets = transitionTargets;
+        this.nodeReplacements = nodeReplacements;
+        this.replacements = replacements;
+        this.descriptorReplacements = descriptorReplacements;
+    }
+
+    /**
+     * Create a remapper for the class names in the specified mappings.
+     *
+     * @param mappings the mappings to remap the class names with
+     * @return a remapper for the class names
+     */
+    public static TextRemapper create(Mappings mappings) {
+        List<String> names = new ArrayList<>();
+        List<String> newNames = new ArrayList<>();
+        List<String> newDescriptorNames = new ArrayList<>();
+        int totalLength = 0;
+        for (JavaType type : mappings.classes()) {
+            JavaType newType = mappings.getNewClass(type);
+            if (newType.equals(type)) continue;
+            String internalName = type.getInternalName();
+            if (internalName.indexOf('/') >= 0) {
+                names.add(internalName);
+                newNames.add(newType.getInternalName());
+                newDescriptorNames.add(newType.getInternalName());
+                names.add(type.getName());
+                newNames.add(newType.getName());
+                newDescriptorNames.add(newType.getName());
+                totalLength += internalName.length() * 2;
+            } else {
+                // Both forms of a name in the default package are the same, so pick the form by context
+                names.add(internalName);
+                newNames.add(newType.getName());
+                newDescriptorNames.add(newType.getInternalName());
+                totalLength += internalName.length();
+            }
+        }
+        // There can be at most one node for each character, and the table is kept at most half full
+        int capacity = Integer.highestOneBit(Math.max(totalLength, 2) * 2) << 1;
+        long[] transitionKeys = new long[capacity];
+        Arrays.fill(transitionKeys, EMPTY);
+        int[] transitionTargets = new int[capacity];
+        int[] nodeReplacements = new int[totalLength + 1];
+        Arrays.fill(nodeReplacements, -1);
+        int nodeCount = 1;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            int node = 0;
+            for (int j = 0; j < name.length(); j++) {
+                long key = transitionKey(node, name.charAt(j));
+                int slot = slot(transitionKeys, key);
+                if (transitionKeys[slot] == EMPTY) {
+                    transitionKeys[slot] = key;
+                    transitionTargets[slot] = nodeCount++;
+                }
+                node = transitionTargets[slot];
+            }
+            nodeReplacements[node] = i;
+        }
+        return new TextRemapper(
+                transitionKeys,
+                transitionTargets,
+                Arrays.copyOf(nodeReplacements, nodeCount),
+                newNames.toArray(new String[newNames.size()]),
+                newDescriptorNames.toArray(new String[newDescriptorNames.size()])
+        );
+    }
+
+    /**
+     * Remap the class names in the specified text.
+     *
+     * @param text the text to remap
+     * @return the remapped text, which is the same instance if nothing changed
+     */
+    public String remap(String text) {
+        StringBuilder result = remapInto(text, null);
+        return result != null ? result.toString() : text;
+    }
+
+    /**
+     * Remap the class names in the specified text, appending the result to the output.
+     *
+     * @param text the text to remap
+     * @param output the builder to append the remapped text to
+     */
+    public void remap(CharSequence text, StringBuilder output) {
+        requireNonNull(output, "Null output");
+        if (remapInto(text, output) == null) output.append(text);
+    }
+
+    /**
+     * Remap the text into the specified output, which is only created once the first name is replaced.
+     *
+     * @return the output, or null if nothing was replaced
+     */
+    @Nullable
+    private StringBuilder remapInto(CharSequence text, @Nullable StringBuilder output) {
+        int length = text.length();
+        int copied = 0;
+        boolean changed = false;
+        char previous = 0;
+        for (int start = 0; start < length; start++) {
+            boolean boundary = start == 0 || isBoundary(previous);
+            if (boundary || (previous == 'L' && isDescriptorStart(text, start - 1))) {
+                long match = match(text, start, !boundary);
+                if (match >= 0) {
+                    int end = (int) (match >>> 32);
+                    if (output == null) output = new StringBuilder(length + 16);
+                    String[] replacements = boundary ? this.replacements : descriptorReplacements;
+                    output.append(text, copied, start).append(replacements[(int) match]);
+                    copied = end;
+                    changed = true;
+                    start = end - 1;
+                }
+            }
+            previous = text.charAt(start);
+        }
+        if (!changed) return null;
+        return output.append(text, copied, length);
+    }
+
+    /**
+     * Find the longest name starting at the specified position.
+     *
+     * @param descriptor if the name must be an internal name terminated by a semicolon
+     * @return the end of the name and the index of its replacement, or -1 if there's no match
+     */
+    private long match(CharSequence text, int start, boolean descriptor) {
+        int length = text.length();
+        int node = 0;
+        long result = -1;
+        for (int position = start; position < length; ) {
+            node = child(node, text.charAt(position++));
+            if (node < 0) break;
+            int replacement = nodeReplacements[node];
+            if (replacement >= 0) {
+                boolean valid;
+                if (descriptor) {
+                    valid = position < length && text.charAt(position) == ';';
+                } else {
+                    valid = position == length || isEnd(text.charAt(position));
+                }
+                if (valid) result = ((long) position << 32) | replacement;
+            }
+        }
+        return result;
+    }
+
+    private int child(int node, char c) {
+        int slot = slot(transitionKeys, transitionKey(node, c));
+        return transitionKeys[slot] != EMPTY ? transitionTargets[slot] : -1;
+    }
+
+    private static long transitionKey(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+
+    /**
+     * Find the slot containing the specified key, or the empty slot where it belongs.
+     */
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (true) {
+            long existing = keys[slot];
+            if (existing == key || existing == EMPTY) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Return if the {@code L} at the specified position starts a descriptor, rather than being part of a larger name.
+     * <p>
+     * Only the primitive types and array dimensions of earlier parameters may come between it and a boundary,
+     * like in {@code (I[JLa;)V}.
+     * </p>
+     */
+    private static boolean isDescriptorStart(CharSequence text, int position) {
+        int index = position - 1;
+        while (index >= 0 && "BCDFIJSZ[".indexOf(text.charAt(index)) >= 0) {
+            index--;
+        }
+        return index < 0 || isBoundary(text.charAt(index));
+    }
+
+    /**
+     * Return if a name may start after the specified character, without being part of a larger name.
+     */
+    private static boolean isBoundary(char c) {
+        return !Character.isJavaIdentifierPart(c) && c != '.' && c != '/';
+    }
+
+    /**
+     * Return if a name may end before the specified character.
+     * <p>
+     * Inner classes and members may follow the name, but it can't be part of a package.
+     * </p>
+     */
+    private static boolean isEnd(char c) {
+        return c == '$' || c == '.' || (!Character.isJavaIdentifierPart(c) && c != '/');
+    }
+}
@@ -5,6 +5,7 @@ import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collector;
 
 import com.google.common.collect.ImmutableList;
@@ -68,6 +69,39 @@ public final class ImmutableLists {
         return (ImmutableList<U>) ImmutableList.copyOf(result);
     }
 
+    /**
+     * Transform the elements of the list, returning the original list if none of them changed.
+     * <p>
+     * Nothing is allocated until the first element that changes,
+     * which makes this much cheaper when the elements usually stay the same.
+     * </p>
+     *
+     * @param original the list to transform
+     * @param transformer the function to transform the elements with
+     * @return the transformed list, or the original if no element changed
+     */
+    public static <T> ImmutableList<T> transformIfChanged(ImmutableList<T> original, UnaryOperator<T> transformer) {
+        int size = requireNonNull(original, "Null original list").size();
+        for (int i = 0; i < size; i++) {
+            T originalElement = original.get(i);
+            T newElement = transformer.apply(originalElement);
+            checkNotNull(newElement, "Transformer produced null value for input: %s", originalElement);
+            if (!newElement.equals(originalElement)) {
+                Object[] result = original.toArray();
+                result[i] = newElement;
+                for (int j = i + 1; j < size; j++) {
+                    originalElement = original.get(j);
+                    newElement = transformer.apply(originalElement);
+                    checkNotNull(newElement, "Transformer produced null value for input: %s", originalElement);
+                    result[j] = newElement;
+                }
+                @SuppressWarnings("unchecked")
+                ImmutableList<T> transformed = (ImmutableList<T>) ImmutableList.copyOf(result);
+                return transformed;
+            }
+        }
+        return original;
+    }
 
     public static <T> String joinToString(ImmutableList<T> list, Function<T, String> asString, String delimiter) {
         return joinToString(list, asString, delimiter, "", "");
@@ -42,7 +42,7 @@ public final class ImmutableMaps {
         int prefixLength = requireNonNull(prefix, "Null prefix").length();
         int suffixLength = requireNonNull(suffix, "Null suffix").length();
         String[] strings = new String[size];
-        int neededChars = prefixLength + suffixLength + (size - 1) * delimiterLength;
+        int neededChars = prefixLength + suffixLength + (Math.max(0, size - 1)) * delimiterLength;
         int index = 0;
         for (Map.Entry<K, V> entry : map.entrySet()) {
             K key = entry.getKey();
@@ -0,0 +1,380 @@
+package net.techcable.srglib.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+import static java.util.Objects.*;
+
+/**
+ * An immutable map which is updated by creating new versions, sharing almost all their structure with the original.
+ * <p>
+ * The entries are kept in a hash array mapped trie, where each level of the trie is indexed by five bits of the hash.
+ * Adding or removing an entry only copies the nodes on the path to it, which is at most seven nodes deep,
+ * so each new version only costs a few small arrays no matter how large the map is.
+ * </p>
+ * <p>
+ * Null keys and values aren't permitted, and the mutating methods of {@link Map} are unsupported.
+ * </p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * The deepest the trie can be, with seven levels of bitmap nodes for the 32 bits of hash and one of collision nodes.
+     */
+    private static final int MAX_DEPTH = 8;
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K, V>) map;
+        }
+        return PersistentHashMap.<K, V>empty().withAll(map);
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16); // Spread the high bits, since the top levels only use the low bits
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return (V) root.get(requireNonNull(key, "Null key"), hash(key), 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Return a version of this map with the specified entry, replacing any existing value for the key.
+     *
+     * @param key the key to add
+     * @param value the value to associate with the key
+     * @return the new version, or this map if it already has the entry
+     */
+    public PersistentHashMap<K, V> with(K key, V value) {
+        requireNonNull(key, "Null key");
+        requireNonNull(value, "Null value");
+        int hash = hash(key);
+        Object existing = root.get(key, hash, 0);
+        if (value.equals(existing)) return this;
+        return new PersistentHashMap<>(root.with(key, hash, value, 0), existing == null ? size + 1 : size);
+    }
+
+    /**
+     * Return a version of this map without the specified key.
+     *
+     * @param key the key to remove
+     * @return the new version, or this map if it doesn't have the key
+     */
+    public PersistentHashMap<K, V> without(Object key) {
+        requireNonNull(key, "Null key");
+        int hash = hash(key);
+        if (root.get(key, hash, 0) == null) return this;
+        Node newRoot = root.without(key, hash, 0);
+        return new PersistentHashMap<>(newRoot != null ? newRoot : BitmapNode.EMPTY, size - 1);
+    }
+
+    /**
+     * Return a version of this map with all the entries of the specified map.
+     *
+     * @param map the entries to add
+     * @return the new version
+     */
+    public PersistentHashMap<K, V> withAll(Map<? extends K, ? extends V> map) {
+        PersistentHashMap<K, V> result = this;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        requireNonNull(action, "Null action");
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private abstract static class Node {
+        /**
+         * The entries of this node as alternating keys and values.
+         * In bitmap nodes, a null key means the value is a child node.
+         */
+        /* package */ final Object[] array;
+
+        /* package */ Node(Object[] array) {
+            this.array = array;
+        }
+
+        @Nullable
+        /* package */ abstract Object get(Object key, int hash, int shift);
+
+        /* package */ abstract Node with(Object key, int hash, Object value, int shift);
+
+        /**
+         * Remove the key from this node, which must contain it.
+         *
+         * @return the new node, or null if it would be empty
+         */
+        @Nullable
+        /* package */ abstract Node without(Object key, int hash, int shift);
+
+        /* package */ void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                Object key = array[i];
+                if (key != null) {
+                    action.accept(key, array[i + 1]);
+                } else {
+                    ((Node) array[i + 1]).forEach(action);
+                }
+            }
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+        /* package */ static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        /**
+         * The bits of the hash fragments which have an entry in this node.
+         */
+        private final int bitmap;
+
+        /* package */ BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        @Nullable
+        /* package */ Object get(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return null;
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object existingKey = array[index];
+            if (existingKey == null) {
+                return ((Node) array[index + 1]).get(key, hash, shift + BITS);
+            } else {
+                return key.equals(existingKey) ? array[index + 1] : null;
+            }
+        }
+
+        @Override
+        /* package */ Node with(Object key, int hash, Object value, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object existingKey = array[index];
+            Object existingValue = array[index + 1];
+            Object[] newArray = array.clone();
+            if (existingKey == null) {
+                newArray[index + 1] = ((Node) existingValue).with(key, hash, value, shift + BITS);
+            } else if (key.equals(existingKey)) {
+                newArray[index + 1] = value;
+            } else {
+                // Push both entries down into a new child node
+                newArray[index] = null;
+                newArray[index + 1] = createNode(existingKey, existingValue, key, hash, value, shift + BITS);
+            }
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private static Node createNode(Object firstKey, Object firstValue, Object secondKey, int secondHash, Object secondValue, int shift) {
+            int firstHash = hash(firstKey);
+            if (firstHash == secondHash) {
+                return new CollisionNode(firstHash, new Object[] {firstKey, firstValue, secondKey, secondValue});
+            } else {
+                return EMPTY.with(firstKey, firstHash, firstValue, shift).with(secondKey, secondHash, secondValue, shift);
+            }
+        }
+
+        @Override
+        @Nullable
+        /* package */ Node without(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if (array[index] == null) {
+                Node newChild = ((Node) array[index + 1]).without(key, hash, shift + BITS);
+                if (newChild != null) {
+                    Object[] newArray = array.clone();
+                    if (newChild.array.length == 2 && newChild.array[0] != null) {
+                        // Pull a single remaining entry back up, so the trie doesn't keep needless levels
+                        newArray[index] = newChild.array[0];
+                        newArray[index + 1] = newChild.array[1];
+                    } else {
+                        newArray[index + 1] = newChild;
+                    }
+                    return new BitmapNode(bitmap, newArray);
+                }
+            }
+            if (bitmap == bit) return null;
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+    }
+
+    /**
+     * A node for keys whose hashes are entirely equal, which are just searched linearly.
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        /* package */ CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        @Nullable
+        /* package */ Object get(Object key, int hash, int shift) {
+            if (hash != this.hash) return null;
+            int index = indexOf(key);
+            return index >= 0 ? array[index + 1] : null;
+        }
+
+        @Override
+        /* package */ Node with(Object key, int hash, Object value, int shift) {
+            if (hash != this.hash) {
+                // Nest this node in a bitmap node, which can tell the hashes apart
+                BitmapNode parent = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] {null, this});
+                return parent.with(key, hash, value, shift);
+            }
+            int index = indexOf(key);
+            Object[] newArray;
+            if (index >= 0) {
+                newArray = array.clone();
+            } else {
+                index = array.length;
+                newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, array.length);
+                newArray[index] = key;
+            }
+            newArray[index + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        @Nullable
+        /* package */ Node without(Object key, int hash, int shift) {
+            if (array.length == 2) return null;
+            int index = indexOf(key);
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(hash, newArray);
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        private final int[] indexes = new int[MAX_DEPTH];
+        private int depth;
+        @Nullable
+        private Entry<K, V> next;
+
+        /* package */ EntryIterator(Node root) {
+            push(root);
+            advance();
+        }
+
+        private void push(Node node) {
+            arrays[depth] = node.array;
+            indexes[depth] = 0;
+            depth++;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth > 0) {
+                Object[] array = arrays[depth - 1];
+                int index = indexes[depth - 1];
+                if (index >= array.length) {
+                    arrays[--depth] = null;
+                    continue;
+                }
+                indexes[depth - 1] = index + 2;
+                if (array[index] == null) {
+                    push((Node) array[index + 1]);
+                } else {
+                    next = new SimpleImmutableEntry<>((K) array[index], (V) array[index + 1]);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            Entry<K, V> result = next;
+            if (result == null) throw new NoSuchElementException();
+            advance();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package net.techcable.srglib;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.text.AccessTransformerRemapper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AccessTransformerRemapperTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: a net/techcable/Main",
+            "CL: b net/techcable/Counter",
+            "FD: a/a net/techcable/Main/counter",
+            "MD: a/a (Lb;)V net/techcable/Main/start (Lnet/techcable/Counter;)V",
+            "MD: a/a ()V net/techcable/Main/run ()V"
+    );
+    private static final AccessTransformerRemapper REMAPPER = AccessTransformerRemapper.create(MAPPINGS);
+
+    @Test
+    public void testAccessTransformer() {
+        assertEquals("public net.techcable.Main # Main", REMAPPER.remapAccessTransformerLine("public a # Main"));
+        assertEquals("public-f net.techcable.Main counter", REMAPPER.remapAccessTransformerLine("public-f a a"));
+        assertEquals("public\tnet.techcable.Main\tstart(Lnet/techcable/Counter;)V", REMAPPER.remapAccessTransformerLine("public\ta\ta(Lb;)V"));
+        assertEquals("protected net.techcable.Main <init>(Lnet/techcable/Counter;)V", REMAPPER.remapAccessTransformerLine("protected a <init>(Lb;)V"));
+        assertEquals("public net.techcable.Main *()", REMAPPER.remapAccessTransformerLine("public a *()"));
+        assertEquals("# Just a comment", REMAPPER.remapAccessTransformerLine("# Just a comment"));
+    }
+
+    @Test
+    public void testAccessWidener() throws IOException {
+        String widener = "accessWidener\tv1\tofficial\n"
+                + "accessible class b\n"
+                + "accessible method a a ()V # run\r\n"
+                + "\n"
+                + "mutable field a a Lb;";
+        StringWriter out = new StringWriter();
+        REMAPPER.remapAccessWidener(new StringReader(widener), out, "named");
+        assertEquals(
+                "accessWidener\tv1\tnamed\n"
+                        + "accessible class net/techcable/Counter\n"
+                        + "accessible method net/techcable/Main run ()V # run\r\n"
+                        + "\n"
+                        + "mutable field net/techcable/Main counter Lnet/techcable/Counter;",
+                out.toString()
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalid() {
+        REMAPPER.remapAccessWidenerLine("accessible method a a", null);
+    }
+}
@@ -0,0 +1,123 @@
+package net.techcable.srglib;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bytes allocated by hot paths stay within their budgets.
+ * <p>
+ * Allocations are counted by the JVM for the current thread, so unlike timings they aren't affected by other load.
+ * Each operation is run a few times first, so the budgets apply to code which has been warmed up.
+ * </p>
+ * <p>
+ * The budgets were measured with compact strings, which store one byte per char.
+ * Java 8 always stores two, so the budgets of operations which mostly allocate strings are scaled up there.
+ * Running with {@code -XX:-CompactStrings} grew the parse allocations by about 17%.
+ * </p>
+ * <p>
+ * The budgets also rely on escape analysis removing short-lived objects,
+ * so they don't hold in the interpreter, with C1 alone, or under coverage agents.
+ * The checks only run when the {@code srglib.allocationBudgets} system property is set,
+ * like {@code mvn test -Dsrglib.allocationBudgets=true}.
+ * </p>
+ */
+public class AllocationBudgetTest {
+    private static final int ROUNDS = 10;
+    private static final double STRING_SCALE = System.getProperty("java.specification.version").startsWith("1.") ? 1.25 : 1;
+    private static final MappingsGenerator GENERATOR = MappingsGenerator.create(42)
+            .withClassCount(200)
+            .withMemberCount(4000);
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    @BeforeClass
+    public static void checkSupported() {
+        Assume.assumeTrue(Boolean.getBoolean("srglib.allocationBudgets"));
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void testParseLine() {
+        ImmutableMappings mappings = GENERATOR.generate();
+        List<String> lines = MappingsFormat.SEARGE_FORMAT.toLines(mappings);
+        double bytesPerLine = measure(lines.size(), () -> MappingsFormat.SEARGE_FORMAT.parseLines(lines));
+        assertWithinBudget("parsed srg line", 2600 * STRING_SCALE, bytesPerLine);
+    }
+
+    @Test
+    public void testGetNewMethod() {
+        ImmutableMappings mappings = GENERATOR.generate();
+        MethodData[] methods = mappings.methods().toArray(new MethodData[0]);
+        double bytesPerLookup = measure(methods.length, () -> {
+            for (MethodData method : methods) {
+                assertNotNull(mappings.getNewMethod(method));
+            }
+        });
+        // Less than a single object, so this only allows for a rare allocation escape analysis didn't remove
+        assertWithinBudget("getNewMethod", 8, bytesPerLookup);
+        // Methods which aren't mapped and whose types aren't renamed are returned as-is
+        JavaType unmappedType = JavaType.fromInternalName("net/techcable/Unmapped");
+        MethodData[] unmapped = mappings.methods().stream()
+                .map(method -> method.mapTypes(type -> type.mapClass(oldClass -> unmappedType)))
+                .toArray(MethodData[]::new);
+        double bytesPerMiss = measure(unmapped.length, () -> {
+            for (MethodData method : unmapped) {
+                assertSame(method, mappings.getNewMethod(method));
+            }
+        });
+        assertWithinBudget("unmapped getNewMethod", 32, bytesPerMiss);
+    }
+
+    @Test
+    public void testChain() {
+        ImmutableList<ImmutableMappings> versions = GENERATOR.generateChain(2);
+        ImmutableMappings first = versions.get(0);
+        int entries = first.classes().size() + first.methods().size() + first.fields().size();
+        double bytesPerEntry = measure(entries, () -> Mappings.chain(versions));
+        assertWithinBudget("chained entry", 1000, bytesPerEntry);
+    }
+
+    /**
+     * Measure the bytes allocated by each operation, taking the lowest of several rounds.
+     *
+     * @param operations the number of operations each round performs
+     * @param round the round to run
+     * @return the bytes allocated per operation
+     */
+    private static double measure(int operations, Runnable round) {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run();
+        }
+        long lowest = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            round.run();
+            lowest = Math.min(lowest, threadBean.getThreadAllocatedBytes(threadId) - start);
+        }
+        return (double) lowest / operations;
+    }
+
+    private static void assertWithinBudget(String operation, double budget, double bytes) {
+        assertTrue(
+                String.format("Allocated %.1f bytes per %s, over the budget of %.0f", bytes, operation, budget),
+                bytes <= budget
+        );
+    }
+}
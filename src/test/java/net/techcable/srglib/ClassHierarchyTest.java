@@ -0,0 +1,184 @@
+package net.techcable.srglib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+
+import net.techcable.srglib.bytecode.ClassHierarchy;
+import net.techcable.srglib.bytecode.ClassInfo;
+import net.techcable.srglib.bytecode.HierarchyIndex;
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClassHierarchyTest {
+    private static final ClassHierarchy HIERARCHY = ClassHierarchy.create(ImmutableList.of(
+            createClass(ClassInfo.ACC_PUBLIC | ClassInfo.ACC_INTERFACE, "a", null, ImmutableList.of(), "a()V", ClassInfo.ACC_PUBLIC),
+            createClass(ClassInfo.ACC_PUBLIC, "b", "java/lang/Object", ImmutableList.of("a"), "a()V", ClassInfo.ACC_PUBLIC),
+            createClass(ClassInfo.ACC_PUBLIC, "c", "b", ImmutableList.of(), "a()V", ClassInfo.ACC_PUBLIC),
+            createClass(ClassInfo.ACC_PUBLIC, "d", "java/lang/Object", ImmutableList.of(), "a()V", ClassInfo.ACC_PUBLIC),
+            createClass(ClassInfo.ACC_PUBLIC, "e", "c", ImmutableList.of(), "a()V", ClassInfo.ACC_PRIVATE),
+            createClass(ClassInfo.ACC_PUBLIC, "f", "java/lang/Object", ImmutableList.of("a"), "a()V", ClassInfo.ACC_PUBLIC)
+    ));
+
+    @Test
+    public void testPropagate() {
+        Mappings mappings = MappingsFormat.SEARGE_FORMAT.parseLines(
+                "CL: b Base",
+                "MD: c/a ()V c/run ()V"
+        );
+        ImmutableMappings propagated = HIERARCHY.propagate(mappings);
+        assertEquals("run", propagated.getNewMethod(method("c/a")).getName());
+        // Up to the superclass and the interface
+        assertEquals(method("Base/run"), propagated.getNewMethod(method("b/a")));
+        assertEquals("run", propagated.getNewMethod(method("a/a")).getName());
+        // Then back down to the other implementations of the interface
+        assertEquals("run", propagated.getNewMethod(method("f/a")).getName());
+        // Unrelated and private methods keep their names
+        assertFalse(propagated.contains(method("d/a")));
+        assertFalse(propagated.contains(method("e/a")));
+        assertEquals(JavaType.fromInternalName("Base"), propagated.getNewClass("b"));
+    }
+
+    @Test
+    public void testPropagateInherited() {
+        // d inherits a() from b through c, and uses it to implement the interface a
+        ClassHierarchy hierarchy = ClassHierarchy.create(ImmutableList.of(
+                createClass(ClassInfo.ACC_PUBLIC | ClassInfo.ACC_INTERFACE, "a", null, ImmutableList.of(), "a()V", ClassInfo.ACC_PUBLIC),
+                createClass(ClassInfo.ACC_PUBLIC, "b", "java/lang/Object", ImmutableList.of(), "a()V", ClassInfo.ACC_PUBLIC),
+                ClassInfo.create(ClassInfo.ACC_PUBLIC, "c", "b", ImmutableList.of(), ImmutableMap.of(), ImmutableMap.of()),
+                ClassInfo.create(ClassInfo.ACC_PUBLIC, "d", "c", ImmutableList.of("a"), ImmutableMap.of(), ImmutableMap.of()),
+                createClass(ClassInfo.ACC_PUBLIC, "e", "java/lang/Object", ImmutableList.of(), "a()V", ClassInfo.ACC_PUBLIC)
+        ));
+        ImmutableMappings propagated = hierarchy.propagate(MappingsFormat.SEARGE_FORMAT.parseLines("MD: a/a ()V a/run ()V"));
+        assertEquals("run", propagated.getNewMethod(method("b/a")).getName());
+        assertFalse(propagated.contains(method("e/a")));
+        // And back the other way
+        propagated = hierarchy.propagate(MappingsFormat.SEARGE_FORMAT.parseLines("MD: b/a ()V b/run ()V"));
+        assertEquals("run", propagated.getNewMethod(method("a/a")).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPropagateConflict() {
+        // c overrides b, so they can't have different names
+        HIERARCHY.propagate(MappingsFormat.SEARGE_FORMAT.parseLines(
+                "MD: b/a ()V b/walk ()V",
+                "MD: c/a ()V c/run ()V"
+        ));
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        ClassInfo info;
+        try (InputStream in = ClassRemapperTest.Counter.class.getResourceAsStream("ClassRemapperTest$Counter.class")) {
+            info = ClassInfo.read(ByteStreams.toByteArray(in));
+        }
+        assertEquals("net/techcable/srglib/ClassRemapperTest$Counter", info.getName());
+        assertEquals("java/lang/Object", info.getSuperName());
+        assertEquals(ImmutableList.of(), info.getInterfaces());
+        assertEquals(ImmutableMap.of("count", ClassInfo.ACC_PRIVATE), info.getFields());
+        assertEquals(ClassInfo.ACC_PUBLIC, info.getMethodAccess("increment", "()I"));
+        assertEquals(ClassInfo.ACC_PUBLIC, info.getMethodAccess("add", "(Lnet/techcable/srglib/ClassRemapperTest$Counter;)I"));
+        assertEquals(-1, info.getMethodAccess("remove", "()V"));
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        Path directory = Files.createTempDirectory("classHierarchyTest");
+        try {
+            Path jar = createJar(directory);
+            Path cache = directory.resolve("cache");
+            ClassHierarchy expected = ClassHierarchy.readJar(jar);
+            HierarchyIndex index = HierarchyIndex.open(jar, cache);
+            assertEquals(expected.classNames(), index.classNames());
+            for (String name : expected.classNames()) {
+                assertEquals(expected.getInfo(name), index.getInfo(name));
+            }
+            assertNull(index.getInfo("net/techcable/srglib/Missing"));
+            // The second time the cached index should be reused
+            assertEquals(index.getPath(), HierarchyIndex.open(jar, cache).getPath());
+            try (Stream<Path> files = Files.list(cache)) {
+                assertEquals(1, files.count());
+            }
+            assertEquals(expected.getInfo("net/techcable/srglib/ClassHierarchyTest"), HierarchyIndex.load(index.getPath()).getInfo("net/techcable/srglib/ClassHierarchyTest"));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void testCorruptIndex() throws IOException {
+        Path directory = Files.createTempDirectory("classHierarchyTest");
+        try {
+            Path jar = createJar(directory);
+            Path cache = directory.resolve("cache");
+            ClassHierarchy expected = ClassHierarchy.readJar(jar);
+            Path indexFile = HierarchyIndex.open(jar, cache).getPath();
+            byte[] original = Files.readAllBytes(indexFile);
+            ByteBuffer header = ByteBuffer.wrap(original);
+            int stringOffsetsStart = header.getInt(16), tableStart = header.getInt(20);
+            int firstRecord = stringOffsetsStart + header.getInt(12) * 4;
+            // Point a string past the end of the file, then give the first record too many interfaces
+            for (int[] corruption : new int[][] { { stringOffsetsStart, original.length }, { firstRecord + 12, tableStart } }) {
+                byte[] corrupted = original.clone();
+                ByteBuffer.wrap(corrupted).putInt(corruption[0], corruption[1]);
+                Files.write(indexFile, corrupted);
+                try {
+                    HierarchyIndex.load(indexFile);
+                    fail("Expected a corrupted index");
+                } catch (IOException ignored) {}
+                HierarchyIndex rebuilt = HierarchyIndex.open(jar, cache);
+                for (String name : expected.classNames()) {
+                    assertEquals(expected.getInfo(name), rebuilt.getInfo(name));
+                }
+                assertArrayEquals(original, Files.readAllBytes(indexFile));
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static Path createJar(Path directory) throws IOException {
+        Path jar = directory.resolve("classes.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (Class<?> type : ImmutableList.of(ClassRemapperTest.Counter.class, ClassHierarchyTest.class)) {
+                out.putNextEntry(new ZipEntry(type.getName().replace('.', '/') + ".class"));
+                try (InputStream in = type.getResourceAsStream("/" + type.getName().replace('.', '/') + ".class")) {
+                    ByteStreams.copy(in, out);
+                }
+            }
+        }
+        return jar;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static MethodData method(String name) {
+        return MethodData.fromInternalName(name, MethodSignature.fromDescriptor("()V"));
+    }
+
+    private static ClassInfo createClass(int access, String name, String superName, List<String> interfaces, String method, int methodAccess) {
+        return ClassInfo.create(access, name, superName, interfaces, ImmutableMap.of(), ImmutableMap.of(method, methodAccess));
+    }
+}
@@ -0,0 +1,225 @@
+package net.techcable.srglib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.google.common.io.ByteStreams;
+
+import net.techcable.srglib.bytecode.ClassRemapper;
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MutableMappings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClassRemapperTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: net/techcable/srglib/ClassRemapperTest$Counter remapped/Tally",
+            "FD: net/techcable/srglib/ClassRemapperTest$Counter/count remapped/Tally/total",
+            "MD: net/techcable/srglib/ClassRemapperTest$Counter/add (Lnet/techcable/srglib/ClassRemapperTest$Counter;)I remapped/Tally/merge (Lremapped/Tally;)I",
+            "MD: net/techcable/srglib/ClassRemapperTest$Counter/increment ()I remapped/Tally/bump ()I"
+    );
+
+    public static class Counter {
+        private int count;
+
+        public int increment() {
+            return ++count;
+        }
+
+        public int add(Counter other) {
+            count += other.count;
+            return increment();
+        }
+
+        @Override
+        public String toString() {
+            return "Counter(" + count + ")";
+        }
+    }
+
+    @Test
+    public void testRemap() throws ReflectiveOperationException, IOException {
+        byte[] remapped = ClassRemapper.create(MAPPINGS).remap(readClass(Counter.class));
+        Class<?> tally = new ClassLoader(ClassRemapperTest.class.getClassLoader()) {
+            {
+                defineClass("remapped.Tally", remapped, 0, remapped.length);
+            }
+        }.loadClass("remapped.Tally");
+        assertEquals("remapped.Tally", tally.getName());
+        Field total = tally.getDeclaredField("total");
+        Method bump = tally.getMethod("bump");
+        Method merge = tally.getMethod("merge", tally);
+        Object first = tally.newInstance(), second = tally.newInstance();
+        assertEquals(1, bump.invoke(first));
+        assertEquals(1, bump.invoke(second));
+        assertEquals(3, merge.invoke(first, second));
+        total.setAccessible(true);
+        assertEquals(3, total.getInt(first));
+        assertEquals("Counter(3)", first.toString());
+    }
+
+    public interface Operation {
+        int apply(int value);
+    }
+
+    public static class Doubler {
+        public static int run(int value) {
+            Operation operation = x -> x * 2;
+            return operation.apply(value);
+        }
+    }
+
+    @Test
+    public void testRemapLambda() throws ReflectiveOperationException, IOException {
+        // The lambda's call site is named after the interface method, so it needs renaming with it
+        ClassRemapper remapper = ClassRemapper.create(MappingsFormat.SEARGE_FORMAT.parseLines(
+                "CL: net/techcable/srglib/ClassRemapperTest$Operation remapped/Function",
+                "CL: net/techcable/srglib/ClassRemapperTest$Doubler remapped/Doubler",
+                "MD: net/techcable/srglib/ClassRemapperTest$Operation/apply (I)I remapped/Function/call (I)I"
+        ));
+        byte[] function = remapper.remap(readClass(Operation.class));
+        byte[] doubler = remapper.remap(readClass(Doubler.class));
+        Class<?> remapped = new ClassLoader(ClassRemapperTest.class.getClassLoader()) {
+            {
+                defineClass("remapped.Function", function, 0, function.length);
+                defineClass("remapped.Doubler", doubler, 0, doubler.length);
+            }
+        }.loadClass("remapped.Doubler");
+        assertEquals(42, remapped.getMethod("run", int.class).invoke(null, 21));
+    }
+
+    public enum Level {
+        LOW,
+        HIGH
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marker {
+        Class<?> type() default void.class;
+
+        Level level();
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE_USE)
+    public @interface Tag {
+        String value();
+    }
+
+    @Marker(level = Level.HIGH)
+    public static class Annotated {
+        public List<@Tag("name") String> names;
+    }
+
+    @Test
+    public void testRemapAnnotations() throws ReflectiveOperationException, IOException {
+        Mappings mappings = MappingsFormat.SEARGE_FORMAT.parseLines(
+                "CL: net/techcable/srglib/ClassRemapperTest$Marker remapped/Marker",
+                "CL: net/techcable/srglib/ClassRemapperTest$Tag remapped/Tag",
+                "CL: net/techcable/srglib/ClassRemapperTest$Annotated remapped/Annotated",
+                "MD: net/techcable/srglib/ClassRemapperTest$Marker/type ()Ljava/lang/Class; remapped/Marker/kind ()Ljava/lang/Class;",
+                "MD: net/techcable/srglib/ClassRemapperTest$Marker/level ()Lnet/techcable/srglib/ClassRemapperTest$Level; "
+                        + "remapped/Marker/priority ()Lnet/techcable/srglib/ClassRemapperTest$Level;",
+                "MD: net/techcable/srglib/ClassRemapperTest$Tag/value ()Ljava/lang/String; remapped/Tag/text ()Ljava/lang/String;"
+        );
+        ClassRemapper remapper = ClassRemapper.create(mappings);
+        byte[] marker = remapper.remap(readClass(Marker.class));
+        byte[] tag = remapper.remap(readClass(Tag.class));
+        byte[] annotated = remapper.remap(readClass(Annotated.class));
+        ClassLoader loader = new ClassLoader(ClassRemapperTest.class.getClassLoader()) {
+            {
+                defineClass("remapped.Marker", marker, 0, marker.length);
+                defineClass("remapped.Tag", tag, 0, tag.length);
+                defineClass("remapped.Annotated", annotated, 0, annotated.length);
+            }
+        };
+        Class<? extends Annotation> markerType = loader.loadClass("remapped.Marker").asSubclass(Annotation.class);
+        Class<? extends Annotation> tagType = loader.loadClass("remapped.Tag").asSubclass(Annotation.class);
+        Annotation annotation = loader.loadClass("remapped.Annotated").getAnnotation(markerType);
+        // The default of void.class is kept, and the elements use their new names
+        assertEquals(void.class, markerType.getMethod("kind").invoke(annotation));
+        assertEquals(Level.HIGH, markerType.getMethod("priority").invoke(annotation));
+        AnnotatedType names = loader.loadClass("remapped.Annotated").getField("names").getAnnotatedType();
+        Annotation typeAnnotation = ((AnnotatedParameterizedType) names).getAnnotatedActualTypeArguments()[0].getAnnotation(tagType);
+        assertEquals("name", tagType.getMethod("text").invoke(typeAnnotation));
+        // Enum constants are named after their fields
+        byte[] renamedConstant = ClassRemapper.create(MappingsFormat.SEARGE_FORMAT.parseLines(
+                "FD: net/techcable/srglib/ClassRemapperTest$Level/HIGH net/techcable/srglib/ClassRemapperTest$Level/STRONG"
+        )).remap(readClass(Annotated.class));
+        assertTrue(new String(renamedConstant, StandardCharsets.ISO_8859_1).contains("STRONG"));
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        byte[] original = readClass(ClassRemapperTest.class);
+        assertSame(original, ClassRemapper.create(Mappings.empty()).remap(original));
+    }
+
+    @Test
+    public void testRemapSignature() {
+        ClassRemapper remapper = ClassRemapper.create(MappingsFormat.SEARGE_FORMAT.parseLines(
+                "CL: a Outer",
+                "CL: a$b Outer$Inner",
+                "CL: c Value"
+        ));
+        assertEquals(
+                "<K:Ljava/lang/Object;V:LValue;L::Ljava/lang/Comparable<-TV;>;>LOuter<TK;>.Inner<[TL;>;Ljava/util/Map<TK;*>;",
+                remapper.remapSignature("<K:Ljava/lang/Object;V:Lc;L::Ljava/lang/Comparable<-TV;>;>La<TK;>.b<[TL;>;Ljava/util/Map<TK;*>;")
+        );
+        assertEquals(
+                "<T:Ljava/lang/Object;>(Ljava/util/List<+LValue;>;[TT;I)LOuter$Inner;^TX;^Ljava/io/IOException;",
+                remapper.remapSignature("<T:Ljava/lang/Object;>(Ljava/util/List<+Lc;>;[TT;I)La$b;^TX;^Ljava/io/IOException;")
+        );
+        String unchanged = "Ljava/util/Map<Ljava/lang/String;Ljava/util/List<*>;>;";
+        assertSame(unchanged, remapper.remapSignature(unchanged));
+    }
+
+    @Test
+    public void testRemapDescriptors() {
+        MutableMappings mutable = MutableMappings.create();
+        MAPPINGS.forEachClass(mutable::putClass);
+        for (Mappings mappings : new Mappings[] { MAPPINGS, mutable }) {
+            String counter = "Lnet/techcable/srglib/ClassRemapperTest$Counter;";
+            assertEquals("Lremapped/Tally;", mappings.remapDescriptor(counter));
+            assertEquals("[[Lremapped/Tally;", mappings.remapDescriptor("[[" + counter));
+            assertEquals(
+                    "(I[Lremapped/Tally;Ljava/lang/String;)Lremapped/Tally;",
+                    mappings.remapMethodDescriptor("(I[" + counter + "Ljava/lang/String;)" + counter)
+            );
+            String unchanged = "([JLjava/lang/Object;)V";
+            assertSame(unchanged, mappings.remapMethodDescriptor(unchanged));
+            for (String invalid : new String[] { "", "V", "II", "[", "L;", "Ljava/lang/Object", "()V" }) {
+                try {
+                    mappings.remapDescriptor(invalid);
+                    fail("Expected invalid descriptor " + invalid);
+                } catch (IllegalArgumentException ignored) {}
+            }
+            for (String invalid : new String[] { "", "I", "(I", "()", "(V)V", "()VV", "()[V" }) {
+                try {
+                    mappings.remapMethodDescriptor(invalid);
+                    fail("Expected invalid method descriptor " + invalid);
+                } catch (IllegalArgumentException ignored) {}
+            }
+        }
+    }
+
+    private static byte[] readClass(Class<?> type) throws IOException {
+        try (InputStream in = type.getResourceAsStream("/" + type.getName().replace('.', '/') + ".class")) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package net.techcable.srglib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+import net.techcable.srglib.bytecode.ClassRemapper;
+import net.techcable.srglib.bytecode.JarRemapper;
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JarRemapperTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: net/techcable/srglib/ClassRemapperTest$Counter remapped/Tally",
+            "FD: net/techcable/srglib/ClassRemapperTest$Counter/count remapped/Tally/total",
+            "MD: net/techcable/srglib/ClassRemapperTest$Counter/increment ()I remapped/Tally/bump ()I"
+    );
+    private static final byte[] RESOURCE = "Hello, world!\n".getBytes(StandardCharsets.UTF_8);
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("jarRemapperTest");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Path createInput() throws IOException {
+        Path input = directory.resolve("input.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(input))) {
+            out.putNextEntry(new ZipEntry("META-INF/"));
+            out.putNextEntry(new ZipEntry("net/techcable/srglib/ClassRemapperTest$Counter.class"));
+            out.write(readClass(ClassRemapperTest.Counter.class));
+            ZipEntry stored = new ZipEntry("hello.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(RESOURCE.length);
+            CRC32 crc = new CRC32();
+            crc.update(RESOURCE);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(RESOURCE);
+            out.putNextEntry(new ZipEntry("META-INF/versions/9/net/techcable/srglib/ClassRemapperTest$Counter.class"));
+            out.write(readClass(ClassRemapperTest.Counter.class));
+            out.putNextEntry(new ZipEntry("net/techcable/srglib/SrgLib.class"));
+            out.write(readClass(SrgLib.class));
+        }
+        return input;
+    }
+
+    @Test
+    public void testRemap() throws IOException {
+        Path input = createInput();
+        byte[] expectedCounter = ClassRemapper.create(MAPPINGS).remap(readClass(ClassRemapperTest.Counter.class));
+        List<String> expectedNames = ImmutableList.of(
+                "META-INF/",
+                "remapped/Tally.class",
+                "hello.txt",
+                "META-INF/versions/9/remapped/Tally.class",
+                "net/techcable/srglib/SrgLib.class"
+        );
+        // Limiting the in-flight bytes forces the classes to be remapped one at a time
+        for (long maxInFlightBytes : new long[] { 1, Long.MAX_VALUE }) {
+            Path output = directory.resolve("output.jar");
+            JarRemapper.create(MAPPINGS).withMaxInFlightBytes(maxInFlightBytes).remap(input, output);
+            try (ZipFile zip = new ZipFile(output.toFile())) {
+                List<String> names = new ArrayList<>();
+                for (ZipEntry entry : Collections.list(zip.entries())) {
+                    names.add(entry.getName());
+                }
+                assertEquals(expectedNames, names);
+                assertArrayEquals(expectedCounter, read(zip, "remapped/Tally.class"));
+                assertArrayEquals(expectedCounter, read(zip, "META-INF/versions/9/remapped/Tally.class"));
+                assertArrayEquals(RESOURCE, read(zip, "hello.txt"));
+                assertEquals(ZipEntry.STORED, zip.getEntry("hello.txt").getMethod());
+                assertArrayEquals(readClass(SrgLib.class), read(zip, "net/techcable/srglib/SrgLib.class"));
+            }
+            // Make sure the local headers are consistent with the central directory
+            try (ZipInputStream in = new ZipInputStream(Files.newInputStream(output))) {
+                List<String> names = new ArrayList<>();
+                ZipEntry entry;
+                while ((entry = in.getNextEntry()) != null) {
+                    names.add(entry.getName());
+                    ByteStreams.exhaust(in);
+                }
+                assertEquals(expectedNames, names);
+            }
+        }
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        Path input = createInput();
+        Path expected = directory.resolve("expected.jar");
+        JarRemapper.create(MAPPINGS).remap(input, expected);
+        Path cache = directory.resolve("cache");
+        JarRemapper remapper = JarRemapper.create(MAPPINGS).withCacheDirectory(cache);
+        Path output = directory.resolve("output.jar");
+        remapper.remap(input, output);
+        // Both copies of the counter have the same data, so they share a cache entry
+        List<Path> cached = listFiles(cache);
+        assertEquals(2, cached.size());
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(output));
+        // The second time, everything comes from the cache
+        remapper.remap(input, output);
+        assertEquals(cached, listFiles(cache));
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(output));
+        // Different mappings need their own entries
+        Mappings otherMappings = MappingsFormat.SEARGE_FORMAT.parseLines("CL: net/techcable/srglib/Missing remapped/Missing");
+        JarRemapper.create(otherMappings).withCacheDirectory(cache).remap(input, output);
+        assertEquals(4, listFiles(cache).size());
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private static byte[] readClass(Class<?> type) throws IOException {
+        try (InputStream in = type.getResourceAsStream("/" + type.getName().replace('.', '/') + ".class")) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.LookupStatistics;
+import net.techcable.srglib.mappings.LookupStatistics.Outcome;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsMetrics.EntryKind;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LookupStatisticsTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: a net/techcable/Main",
+            "FD: a/a net/techcable/Main/instance",
+            "MD: a/a (La;)V net/techcable/Main/run (Lnet/techcable/Main;)V"
+    ).snapshot();
+
+    @Test
+    public void testLookups() {
+        LookupStatistics statistics = LookupStatistics.create();
+        Mappings counting = Mappings.createCountingMappings(MAPPINGS, statistics);
+        JavaType main = JavaType.fromInternalName("a");
+        JavaType other = JavaType.fromInternalName("b");
+        assertEquals(MethodData.fromInternalName("net/techcable/Main/run", MethodSignature.fromDescriptor("(Lnet/techcable/Main;)V")),
+                counting.getNewMethod(MethodData.fromInternalName("a/a", MethodSignature.fromDescriptor("(La;)V"))));
+        // Not mapped, but the signature still needs remapping
+        counting.getNewMethod(MethodData.fromInternalName("a/b", MethodSignature.fromDescriptor("(La;)V")));
+        counting.getNewMethod(MethodData.fromInternalName("b/b", MethodSignature.fromDescriptor("(I)V")));
+        counting.getNewField(FieldData.create(main, "a"));
+        counting.getNewField(FieldData.create(main, "b"));
+        counting.getNewField(FieldData.create(other, "a"));
+        counting.getNewClass(main);
+        counting.getNewClass(other);
+        assertEquals(1, statistics.getCount(EntryKind.METHOD, Outcome.HIT));
+        assertEquals(1, statistics.getCount(EntryKind.METHOD, Outcome.FALLBACK));
+        assertEquals(1, statistics.getCount(EntryKind.METHOD, Outcome.MISS));
+        assertEquals(1, statistics.getCount(EntryKind.FIELD, Outcome.HIT));
+        assertEquals(1, statistics.getCount(EntryKind.FIELD, Outcome.FALLBACK));
+        assertEquals(1, statistics.getCount(EntryKind.FIELD, Outcome.MISS));
+        assertEquals(1, statistics.getCount(EntryKind.CLASS, Outcome.HIT));
+        assertEquals(1, statistics.getCount(EntryKind.CLASS, Outcome.MISS));
+        assertEquals(3, statistics.getTotal(EntryKind.METHOD));
+
+        // Iterating isn't counted as lookups
+        statistics.reset();
+        assertEquals(MAPPINGS, counting.snapshot());
+        counting.forEachMethod((original, renamed) -> assertEquals(MAPPINGS.getNewMethod(original), renamed));
+        for (EntryKind kind : EntryKind.values()) {
+            assertEquals(0, statistics.getTotal(kind));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package net.techcable.srglib;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.MappingsDiff;
+import net.techcable.srglib.mappings.MappingsGenerator;
+import net.techcable.srglib.mappings.MutableMappings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappingsDiffTest {
+    private static final ImmutableMappings OLD_MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: aa Entity",
+            "CL: ab Cow",
+            "CL: ac World",
+            "FD: aa/a Entity/dead",
+            "FD: ac/a World/time",
+            "MD: ab/a (Lab;)V Cow/love (LCow;)V",
+            "MD: ac/a ()V World/tick ()V"
+    ).snapshot();
+    private static final ImmutableMappings NEW_MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: aa Entity",
+            "CL: ab Sheep",
+            "CL: ad Server",
+            "FD: aa/a Entity/alive",
+            "FD: ac/a ac/time",
+            "MD: ab/a (Lab;)V Sheep/love (LSheep;)V",
+            "MD: ad/a ()V Server/tick ()V"
+    ).snapshot();
+
+    @Test
+    public void testCompute() {
+        MappingsDiff diff = MappingsDiff.compute(OLD_MAPPINGS, NEW_MAPPINGS);
+        assertEquals(JavaType.fromName("Sheep"), diff.getRenamedClasses().get(JavaType.fromName("ab")));
+        assertEquals(JavaType.fromName("Server"), diff.getAddedClasses().get(JavaType.fromName("ad")));
+        assertEquals(ImmutableSet.of(JavaType.fromName("ac")), diff.getRemovedClasses());
+        assertEquals("alive", diff.getRenamedFields().get(FieldData.create(JavaType.fromName("aa"), "a")));
+        assertTrue(diff.getRenamedMethods().isEmpty());
+        assertEquals(1, diff.getAddedMethods().size());
+        assertEquals(1, diff.getRemovedMethods().size());
+        assertTrue(MappingsDiff.compute(NEW_MAPPINGS, NEW_MAPPINGS).isEmpty());
+    }
+
+    @Test
+    public void testApply() {
+        MappingsDiff diff = MappingsDiff.compute(OLD_MAPPINGS, NEW_MAPPINGS);
+        assertEquals(NEW_MAPPINGS, MappingsDiff.apply(OLD_MAPPINGS, diff));
+        assertEquals(OLD_MAPPINGS, MappingsDiff.apply(NEW_MAPPINGS, MappingsDiff.compute(NEW_MAPPINGS, OLD_MAPPINGS)));
+    }
+
+    @Test
+    public void testSerialize() {
+        MappingsDiff diff = MappingsDiff.compute(OLD_MAPPINGS, NEW_MAPPINGS);
+        List<String> lines = diff.toLines();
+        assertEquals(diff.size(), lines.size());
+        assertEquals(diff, MappingsDiff.parseLines(lines));
+    }
+
+    @Test
+    public void testComputeLarge() {
+        // Enough methods to be compared in parallel partitions
+        ImmutableMappings first = MappingsGenerator.create(42).withClassCount(100).withMemberCount(20_000).generate();
+        MutableMappings changed = MutableMappings.create();
+        first.forEachClass(changed::putClass);
+        first.forEachField(changed::putField);
+        int i = 0;
+        for (MethodData method : first.methods()) {
+            if (i % 7 == 0) {
+                changed.putMethod(method.withName(method.getName() + "_added"), "added" + i);
+            } else if (i % 5 == 0) {
+                changed.putMethod(method, "renamed" + i);
+            } else if (i % 3 != 0) {
+                changed.putMethod(method, first.getNewMethod(method).getName());
+            }
+            i++;
+        }
+        ImmutableMappings second = changed.snapshot();
+        MappingsDiff diff = MappingsDiff.compute(first, second);
+        // Compare one by one, in the same order as the inputs
+        Map<MethodData, String> added = new LinkedHashMap<>(), renamed = new LinkedHashMap<>();
+        Set<MethodData> removed = new LinkedHashSet<>();
+        for (MethodData method : first.methods()) {
+            if (!second.methods().contains(method)) {
+                removed.add(method);
+            } else if (!second.getNewMethod(method).getName().equals(first.getNewMethod(method).getName())) {
+                renamed.put(method, second.getNewMethod(method).getName());
+            }
+        }
+        for (MethodData method : second.methods()) {
+            if (!first.methods().contains(method)) added.put(method, second.getNewMethod(method).getName());
+        }
+        assertFalse(added.isEmpty() || renamed.isEmpty() || removed.isEmpty());
+        assertEquals(new ArrayList<>(added.entrySet()), new ArrayList<>(diff.getAddedMethods().entrySet()));
+        assertEquals(new ArrayList<>(renamed.entrySet()), new ArrayList<>(diff.getRenamedMethods().entrySet()));
+        assertEquals(new ArrayList<>(removed), new ArrayList<>(diff.getRemovedMethods()));
+        assertEquals(second, MappingsDiff.apply(first, diff));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApplyMismatched() {
+        MappingsDiff.apply(NEW_MAPPINGS, MappingsDiff.compute(OLD_MAPPINGS, NEW_MAPPINGS));
+    }
+}
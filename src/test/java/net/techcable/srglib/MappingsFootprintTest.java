@@ -0,0 +1,72 @@
+package net.techcable.srglib;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappingsFootprintTest {
+    @Test
+    public void testEmpty() {
+        assertEquals(0, SrgLib.estimateFootprint(Mappings.empty()).getTotalBytes());
+    }
+
+    @Test
+    public void testSharedInstances() {
+        JavaType original = JavaType.fromInternalName("a");
+        JavaType renamed = JavaType.fromInternalName("net/techcable/Main");
+        MethodSignature originalSignature = MethodSignature.create(ImmutableList.of(original, PrimitiveType.INT), PrimitiveType.VOID);
+        MethodSignature renamedSignature = MethodSignature.create(ImmutableList.of(renamed, PrimitiveType.INT), PrimitiveType.VOID);
+        ImmutableBiMap<JavaType, JavaType> classes = ImmutableBiMap.of(original, renamed);
+        MappingsFootprint single = SrgLib.estimateFootprint(ImmutableMappings.create(
+                classes,
+                ImmutableBiMap.of(
+                        MethodData.create(original, "a", originalSignature),
+                        MethodData.create(renamed, "run", renamedSignature)
+                ),
+                ImmutableBiMap.of()
+        ));
+        assertTrue(single.getClassBytes() > 0);
+        assertTrue(single.getMethodBytes() > 0);
+        assertEquals(0, single.getFieldBytes());
+        assertTrue(single.getBiMapBytes() > 0);
+        assertEquals(
+                single.getClassBytes() + single.getMethodBytes() + single.getSignatureBytes()
+                        + single.getStringBytes() + single.getBiMapBytes(),
+                single.getTotalBytes()
+        );
+
+        // Another method sharing the same types and signatures only adds the methods and their names
+        MappingsFootprint shared = SrgLib.estimateFootprint(ImmutableMappings.create(
+                classes,
+                ImmutableBiMap.of(
+                        MethodData.create(original, "a", originalSignature),
+                        MethodData.create(renamed, "run", renamedSignature),
+                        MethodData.create(original, "b", originalSignature),
+                        MethodData.create(renamed, "stop", renamedSignature)
+                ),
+                ImmutableBiMap.of()
+        ));
+        assertEquals(single.getClassBytes(), shared.getClassBytes());
+        assertEquals(single.getSignatureBytes(), shared.getSignatureBytes());
+        assertEquals(single.getMethodBytes() * 2, shared.getMethodBytes());
+        assertTrue(shared.getStringBytes() > single.getStringBytes());
+    }
+
+    @Test
+    public void testScalesWithEntries() {
+        MappingsGenerator generator = MappingsGenerator.create(42).withClassCount(100).withMemberCount(2000);
+        MappingsFootprint small = SrgLib.estimateFootprint(generator.generate());
+        MappingsFootprint large = SrgLib.estimateFootprint(generator.withClassCount(1000).withMemberCount(20_000).generate());
+        double ratio = (double) large.getTotalBytes() / small.getTotalBytes();
+        assertTrue("Expected roughly ten times the footprint, but got " + ratio, ratio > 8 && ratio < 12);
+        // Every entry needs at least its member and a bimap entry
+        assertTrue(large.getTotalBytes() > 20_000 * 40);
+    }
+}
@@ -1,11 +1,24 @@
 package net.techcable.srglib;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.ImmutableMappings;
 import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -47,18 +60,30 @@ public class MappingsFormatTest {
             "org/spigotmc/XRay deobfuscate ([BLjava/util/Set;)I doAFunkyDance",
             "org/spigotmc/XRay$Manager aquire ()Lorg/spigotmc/XRay; get"
     );
+    private static final ImmutableList<String> ARRAY_TEST_LINES = ImmutableList.of(
+            "CL: obfs net/techcable/minecraft/NoHax",
+            "CL: obf4 net/techcable/minecraft/Player",
+            "MD: obfs/b ([Lobf4;)[[Lobfs; net/techcable/minecraft/NoHax/check ([Lnet/techcable/minecraft/Player;)[[Lnet/techcable/minecraft/NoHax;"
+    );
+    private static final ImmutableList<String> COMPACT_ARRAY_TEST_LINES = ImmutableList.of(
+            "obfs net/techcable/minecraft/NoHax",
+            "obf4 net/techcable/minecraft/Player",
+            "obfs b ([Lobf4;)[[Lobfs; check"
+    );
     @Parameterized.Parameters
     public static Object[][] mappingFormats() {
         return new Object[][] {
-                new Object[] {  MappingsFormat.SEARGE_FORMAT, TEST_LINES },
-                new Object[] {  MappingsFormat.COMPACT_SEARGE_FORMAT, COMPACT_TEST_LINES }
+                new Object[] {  MappingsFormat.SEARGE_FORMAT, TEST_LINES, ARRAY_TEST_LINES },
+                new Object[] {  MappingsFormat.COMPACT_SEARGE_FORMAT, COMPACT_TEST_LINES, COMPACT_ARRAY_TEST_LINES }
         };
     }
     private final MappingsFormat mappingsFormat;
     private final ImmutableList<String> testLines;
-    public MappingsFormatTest(MappingsFormat mappingsFormat, ImmutableList<String> testLines) {
+    private final ImmutableList<String> arrayTestLines;
+    public MappingsFormatTest(MappingsFormat mappingsFormat, ImmutableList<String> testLines, ImmutableList<String> arrayTestLines) {
         this.mappingsFormat = mappingsFormat;
         this.testLines = testLines;
+        this.arrayTestLines = arrayTestLines;
     }
 
     @Test
@@ -95,6 +120,44 @@ public class MappingsFormatTest {
         );
     }
 
+    @Test
+    public void testParseArrays() {
+        Mappings result = mappingsFormat.parseLines(arrayTestLines);
+        // The element types of arrays are remapped too
+        assertEquals(
+                MethodData.fromInternalName(
+                        "net/techcable/minecraft/NoHax/check",
+                        MethodSignature.fromDescriptor("([Lnet/techcable/minecraft/Player;)[[Lnet/techcable/minecraft/NoHax;")
+                ),
+                result.getNewMethod(MethodData.fromInternalName("obfs/b", MethodSignature.fromDescriptor("([Lobf4;)[[Lobfs;")))
+        );
+    }
+
+    @Test
+    public void testSharedSignatures() {
+        Mappings result = mappingsFormat.parseLines(testLines);
+        for (MethodData method : result.methods()) {
+            MethodSignature signature = method.getSignature();
+            // Parsed signatures are interned, so parsing the same descriptor again gives the same instance
+            assertSame(signature, MethodSignature.fromDescriptor(new String(signature.getDescriptor())));
+            assertSame(signature, MethodSignature.create(signature.getParameterTypes(), signature.getReturnType()).intern());
+        }
+    }
+
+    @Test
+    public void testSharedNames() {
+        Mappings first = mappingsFormat.parseLines(testLines);
+        Mappings second = mappingsFormat.parseLines(testLines);
+        for (FieldData field : first.fields()) {
+            // Member names are interned, so parsing them again gives the same instances
+            assertSame(first.getNewField(field).getName(), second.getNewField(field).getName());
+            assertSame(field.getName(), field.withName(field.getName() + "_").withName(new String(field.getName())).getName());
+        }
+        for (MethodData method : first.methods()) {
+            assertSame(first.getNewMethod(method).getName(), second.getNewMethod(method).getName());
+        }
+    }
+
     @Test
     public void testSerialize() {
         Mappings expected = mappingsFormat.parseLines(testLines);
@@ -102,4 +165,102 @@ public class MappingsFormatTest {
         Mappings actual = mappingsFormat.parseLines(serialized);
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void testSortedSerialize() throws IOException {
+        Mappings forwards = mappingsFormat.parseLines(testLines);
+        // Classes have to come before members, so only reverse the order within each group
+        List<String> reversedLines = new ArrayList<>(testLines.size());
+        Lists.reverse(testLines).stream().filter(MappingsFormatTest::isClassLine).forEach(reversedLines::add);
+        Lists.reverse(testLines).stream().filter(line -> !isClassLine(line)).forEach(reversedLines::add);
+        Mappings backwards = mappingsFormat.parseLines(reversedLines);
+        StringBuilder forwardsOutput = new StringBuilder(), backwardsOutput = new StringBuilder();
+        mappingsFormat.writeSorted(forwards, forwardsOutput);
+        mappingsFormat.writeSorted(backwards, backwardsOutput);
+        assertEquals(forwardsOutput.toString(), backwardsOutput.toString());
+        assertEquals(forwards, mappingsFormat.parseLines(forwardsOutput.toString().split("\n")));
+    }
+
+    @Test
+    public void testChannelWrite() throws IOException {
+        ImmutableMappings mappings = mappingsFormat.parseLines(testLines).snapshot().sorted();
+        StringBuilder expected = new StringBuilder();
+        mappingsFormat.write(mappings, expected);
+        Path file = Files.createTempFile("srglib", ".srg");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                mappingsFormat.write(mappings, channel);
+            }
+            assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testChannelWriteChunks() throws IOException {
+        // Enough fields and methods for several chunks each
+        ImmutableMappings mappings = MappingsGenerator.create(42).withClassCount(100).withMemberCount(20_000).generate();
+        StringBuilder expected = new StringBuilder();
+        mappingsFormat.write(mappings, expected);
+        ShortWriteChannel channel = new ShortWriteChannel(1000);
+        mappingsFormat.write(mappings, channel);
+        assertEquals(expected.toString(), new String(channel.output.toByteArray(), StandardCharsets.UTF_8));
+        // No write took more than the limit, so the rest had to be written again
+        assertTrue(channel.writes >= channel.output.size() / 1000);
+    }
+
+    private static boolean isClassLine(String line) {
+        return line.startsWith("CL: ") || line.split(" ").length == 2;
+    }
+
+    /**
+     * A channel which accepts at most a fixed number of bytes per write, like a non-blocking socket.
+     */
+    private static final class ShortWriteChannel implements GatheringByteChannel {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final int maxWrite;
+        private int writes;
+
+        /* package */ ShortWriteChannel(int maxWrite) {
+            this.maxWrite = maxWrite;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            writes++;
+            int written = 0;
+            for (int i = offset; i < offset + length && written < maxWrite; i++) {
+                written += write(srcs[i], maxWrite - written);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            writes++;
+            return write(src, maxWrite);
+        }
+
+        private int write(ByteBuffer src, int limit) {
+            int count = Math.min(src.remaining(), limit);
+            for (int i = 0; i < count; i++) {
+                output.write(src.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
 }
@@ -0,0 +1,53 @@
+package net.techcable.srglib;
+
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the generator on small mappings, leaving large sizes to the benchmarks.
+ */
+public class MappingsGeneratorTest {
+    private static final MappingsGenerator GENERATOR = MappingsGenerator.create(42)
+            .withClassCount(200)
+            .withMemberCount(5000)
+            .withChurn(0.1);
+
+    @Test
+    public void testGenerate() {
+        ImmutableMappings mappings = GENERATOR.generate();
+        assertEquals(200, mappings.classes().size());
+        assertEquals(5000, mappings.methods().size() + mappings.fields().size());
+        // The same seed always gives the same mappings
+        assertEquals(mappings, GENERATOR.generate());
+        assertNotEquals(mappings, GENERATOR.withClassCount(199).generate());
+        for (MappingsFormat format : ImmutableList.of(MappingsFormat.SEARGE_FORMAT, MappingsFormat.COMPACT_SEARGE_FORMAT)) {
+            assertEquals(mappings, format.parseLines(format.toLines(mappings)).snapshot());
+        }
+    }
+
+    @Test
+    public void testGenerateChain() {
+        ImmutableList<ImmutableMappings> versions = GENERATOR.generateChain(3);
+        assertEquals(GENERATOR.generate(), versions.get(0));
+        for (int i = 1; i < versions.size(); i++) {
+            ImmutableMappings version = versions.get(i);
+            assertEquals(versions.get(i - 1).inverted().classes(), version.classes());
+            long renamedMethods = version.methods().stream()
+                    .filter(method -> !method.getName().equals(version.getNewMethod(method).getName()))
+                    .count();
+            // Roughly the churn of the methods should be renamed
+            assertEquals(0.1, (double) renamedMethods / version.methods().size(), 0.02);
+        }
+        Mappings chained = Mappings.chain(versions);
+        assertEquals(versions.get(0).classes(), chained.classes());
+        assertEquals(versions.get(0).methods(), chained.methods());
+    }
+}
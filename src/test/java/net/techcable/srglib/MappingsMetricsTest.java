@@ -0,0 +1,91 @@
+package net.techcable.srglib;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsMetrics;
+import net.techcable.srglib.mappings.MappingsMetrics.EntryKind;
+import net.techcable.srglib.mappings.MappingsMetrics.Operation;
+import net.techcable.srglib.mappings.MappingsMetrics.Phase;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappingsMetricsTest {
+    private static final ImmutableList<String> SRG_LINES = ImmutableList.of(
+            "# Comment",
+            "CL: a net/techcable/Main",
+            "CL: b net/techcable/Util",
+            "FD: a/a net/techcable/Main/instance",
+            "MD: a/a (Lb;)La; net/techcable/Main/create (Lnet/techcable/Util;)Lnet/techcable/Main;",
+            "MD: b/a ()V net/techcable/Util/run ()V"
+    );
+    private static final ImmutableList<String> COMPACT_SRG_LINES = ImmutableList.of(
+            "a net/techcable/Main",
+            "b net/techcable/Util",
+            "a a instance",
+            "a a (Lb;)La; create"
+    );
+
+    @After
+    public void uninstall() {
+        MappingsMetrics.install(null);
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        MappingsMetrics metrics = MappingsMetrics.create();
+        MappingsMetrics.install(metrics);
+        assertSame(metrics, MappingsMetrics.current());
+        Mappings mappings = MappingsFormat.SEARGE_FORMAT.parse(new StringReader(String.join("\n", SRG_LINES)));
+        assertEquals(2, mappings.classes().size());
+        assertEquals(SRG_LINES.size(), metrics.getLines());
+        assertEquals(SRG_LINES.stream().mapToInt(line -> line.length() + 1).sum(), metrics.getBytesRead());
+        assertEquals(2, metrics.getEntries(EntryKind.CLASS));
+        assertEquals(1, metrics.getEntries(EntryKind.FIELD));
+        assertEquals(2, metrics.getEntries(EntryKind.METHOD));
+        assertEquals(1, metrics.getCount(Operation.PARSE));
+        assertTrue(metrics.getTime(Phase.TOKENIZE, TimeUnit.NANOSECONDS) > 0);
+        assertTrue(metrics.getTime(Phase.DESCRIPTOR_PARSE, TimeUnit.NANOSECONDS) > 0);
+        assertTrue(metrics.getLinesPerSecond() > 0);
+
+        metrics.reset();
+        MappingsFormat.COMPACT_SEARGE_FORMAT.parseLines(COMPACT_SRG_LINES);
+        assertEquals(COMPACT_SRG_LINES.size(), metrics.getLines());
+        assertEquals(1, metrics.getEntries(EntryKind.METHOD));
+        assertEquals(1, metrics.getCount(Operation.PARSE));
+        // Parsing compact srg creates immutable mappings
+        assertEquals(1, metrics.getCount(Operation.CREATE));
+        assertTrue(metrics.getTime(Phase.BIMAP_BUILD, TimeUnit.NANOSECONDS) > 0);
+        assertTrue(metrics.getTime(Phase.VALIDATE, TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testChainAndTransform() {
+        Mappings first = MappingsFormat.SEARGE_FORMAT.parseLines(SRG_LINES);
+        Mappings second = MappingsFormat.COMPACT_SEARGE_FORMAT.parseLines("net/techcable/Main net/techcable/Application");
+        MappingsMetrics metrics = MappingsMetrics.create();
+        MappingsMetrics.install(metrics);
+        Mappings chained = Mappings.chain(first, second);
+        second.transform(chained);
+        assertEquals(1, metrics.getCount(Operation.CHAIN));
+        assertEquals(1, metrics.getCount(Operation.TRANSFORM));
+        // One for each mapping in the chain, and one for the transform
+        assertEquals(3, metrics.getCount(Operation.CREATE));
+        assertEquals(0, metrics.getLines());
+        assertTrue(metrics.getTime(Phase.BIMAP_BUILD, TimeUnit.NANOSECONDS) > 0);
+
+        // Nothing is reported after uninstalling
+        MappingsMetrics.install(null);
+        assertNull(MappingsMetrics.current());
+        Mappings.chain(first, second);
+        assertEquals(1, metrics.getCount(Operation.CHAIN));
+    }
+}
@@ -0,0 +1,147 @@
+package net.techcable.srglib;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.format.MappingsWatcher;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsMetrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappingsWatcherTest {
+    private static final String[] LINES = {
+            "CL: a net/techcable/Main",
+            "CL: b net/techcable/Player",
+            "FD: a/a net/techcable/Main/instance",
+            "MD: a/a (Lb;)V net/techcable/Main/run (Lnet/techcable/Player;)V"
+    };
+    private Path directory;
+    private Path file;
+    private MappingsWatcher watcher;
+
+    @Before
+    public void createWatcher() throws IOException {
+        directory = Files.createTempDirectory("mappingsWatcherTest");
+        file = directory.resolve("mappings.srg");
+        write(LINES);
+        watcher = MappingsWatcher.watch(MappingsFormat.SEARGE_FORMAT, file.toFile());
+    }
+
+    @After
+    public void closeWatcher() throws IOException {
+        watcher.close();
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+
+    private void write(String... lines) throws IOException {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private static Mappings parse(String... lines) {
+        return MappingsFormat.SEARGE_FORMAT.parseLines(lines);
+    }
+
+    @Test
+    public void testInitial() {
+        assertEquals(parse(LINES), watcher.current());
+    }
+
+    @Test
+    public void testAdd() throws IOException {
+        List<ImmutableMappings> published = new ArrayList<>();
+        watcher.addListener(published::add);
+        String[] lines = Arrays.copyOf(LINES, LINES.length + 3);
+        lines[LINES.length] = "CL: c net/techcable/World";
+        lines[LINES.length + 1] = "FD: b/a net/techcable/Player/health";
+        lines[LINES.length + 2] = "MD: b/b (La;)V net/techcable/Player/join (Lnet/techcable/Main;)V";
+        write(lines);
+        assertTrue(watcher.reload());
+        assertEquals(parse(lines), watcher.current());
+        assertEquals(Arrays.asList(watcher.current()), published);
+        // Nothing changed, so nothing is published
+        assertFalse(watcher.reload());
+        assertEquals(1, published.size());
+    }
+
+    @Test
+    public void testChange() throws IOException {
+        String[] lines = {
+                "CL: a net/techcable/Game",
+                "CL: b net/techcable/Player",
+                "FD: a/a net/techcable/Game/INSTANCE",
+                "MD: a/a (Lb;)V net/techcable/Game/start (Lnet/techcable/Player;)V"
+        };
+        write(lines);
+        assertTrue(watcher.reload());
+        assertEquals(parse(lines), watcher.current());
+        // Only renaming a member reuses the rest of the snapshot
+        lines[3] = "MD: a/a (Lb;)V net/techcable/Game/stop (Lnet/techcable/Player;)V";
+        write(lines);
+        assertTrue(watcher.reload());
+        assertEquals(parse(lines), watcher.current());
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+        write(LINES[1]);
+        assertTrue(watcher.reload());
+        assertEquals(parse(LINES[1]), watcher.current());
+        write();
+        assertTrue(watcher.reload());
+        assertEquals(Mappings.empty(), watcher.current());
+    }
+
+    @Test
+    public void testInvalidEdit() throws IOException {
+        write(LINES[0], "CL: broken");
+        try {
+            watcher.reload();
+            fail("Expected an invalid line");
+        } catch (IllegalArgumentException ignored) {}
+        assertEquals(parse(LINES), watcher.current());
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+        MappingsMetrics metrics = MappingsMetrics.create();
+        MappingsMetrics.install(metrics);
+        try {
+            write(LINES[0], LINES[1]);
+            assertTrue(watcher.reload());
+        } finally {
+            MappingsMetrics.install(null);
+        }
+        // Every line in the file is counted, not just the ones which changed
+        assertEquals(1, metrics.getCount(MappingsMetrics.Operation.PARSE));
+        assertEquals(2, metrics.getLines());
+    }
+
+    @Test
+    public void testRecreate() throws IOException, InterruptedException {
+        Files.delete(file);
+        // A missing file keeps the current mappings
+        assertFalse(watcher.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(parse(LINES), watcher.current());
+        write(LINES[0], "CL: c net/techcable/World");
+        Mappings expected = parse(LINES[0], "CL: c net/techcable/World");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!expected.equals(watcher.current()) && System.nanoTime() < deadline) {
+            watcher.poll(1, TimeUnit.SECONDS);
+        }
+        assertEquals(expected, watcher.current());
+    }
+}
@@ -0,0 +1,174 @@
+package net.techcable.srglib;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+import net.techcable.srglib.mappings.MutableMappings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MutableMappingsTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: a net/techcable/Main",
+            "CL: b net/techcable/Player",
+            "FD: a/a net/techcable/Main/instance",
+            "MD: a/a (Lb;)V net/techcable/Main/run (Lnet/techcable/Player;)V"
+    ).snapshot();
+    private static final JavaType MAIN = JavaType.fromInternalName("a");
+    private static final JavaType PLAYER = JavaType.fromInternalName("b");
+    private static final MethodData RUN = MethodData.fromInternalName("a/a", MethodSignature.fromDescriptor("(Lb;)V"));
+    private static final FieldData INSTANCE = FieldData.create(MAIN, "a");
+
+    private static MutableMappings copy(Mappings mappings) {
+        MutableMappings result = MutableMappings.create();
+        mappings.forEachClass(result::putClass);
+        mappings.forEachMethod(result::putMethod);
+        mappings.forEachField(result::putField);
+        return result;
+    }
+
+    @Test
+    public void testSnapshotReused() {
+        MutableMappings mappings = copy(MAPPINGS);
+        ImmutableMappings snapshot = mappings.snapshot();
+        assertEquals(MAPPINGS, snapshot);
+        assertSame(snapshot, mappings.snapshot());
+        assertSame(snapshot.inverted(), mappings.inverted());
+        // Writes which don't change anything keep the snapshot
+        mappings.putField(INSTANCE, "instance");
+        mappings.removeMethod(MethodData.fromInternalName("a/b", MethodSignature.fromDescriptor("()V")));
+        assertSame(snapshot, mappings.snapshot());
+    }
+
+    @Test
+    public void testMemberChanges() {
+        MutableMappings mappings = copy(MAPPINGS);
+        ImmutableMappings original = mappings.snapshot();
+        mappings.putField(INSTANCE, "INSTANCE");
+        mappings.removeMethod(RUN);
+        MethodData stop = MethodData.fromInternalName("a/b", MethodSignature.fromDescriptor("(Lb;)V"));
+        mappings.putMethod(stop, "stop");
+        ImmutableMappings changed = mappings.snapshot();
+        assertNotSame(original, changed);
+        // The earlier snapshot isn't affected
+        assertEquals(MAPPINGS, original);
+        assertEquals("INSTANCE", changed.getNewField(INSTANCE).getName());
+        assertFalse(changed.contains(RUN));
+        assertEquals(
+                MethodData.fromInternalName("net/techcable/Main/stop", MethodSignature.fromDescriptor("(Lnet/techcable/Player;)V")),
+                changed.getNewMethod(stop)
+        );
+        assertEquals(ImmutableMappings.copyOf(copy(changed)), changed);
+        SrgLib.checkConsistency(changed);
+    }
+
+    @Test
+    public void testClassChanges() {
+        MutableMappings mappings = copy(MAPPINGS);
+        mappings.snapshot();
+        mappings.putField(INSTANCE, "INSTANCE");
+        mappings.putClass(PLAYER, JavaType.fromInternalName("net/techcable/Entity"));
+        ImmutableMappings changed = mappings.snapshot();
+        // Renaming a class remaps the signatures of the unchanged members too
+        assertEquals(
+                MethodData.fromInternalName("net/techcable/Main/run", MethodSignature.fromDescriptor("(Lnet/techcable/Entity;)V")),
+                changed.getNewMethod(RUN)
+        );
+        assertEquals("INSTANCE", changed.getNewField(INSTANCE).getName());
+        SrgLib.checkConsistency(changed);
+        mappings.removeClass(PLAYER);
+        assertEquals(PLAYER, mappings.snapshot().getNewClass(PLAYER));
+    }
+
+    @Test
+    public void testLiveInverse() {
+        MutableMappings mappings = copy(MAPPINGS);
+        Mappings copy = mappings.inverted();
+        Mappings inverted = mappings.invertedView();
+        assertEquals(MAPPINGS.inverted(), inverted);
+        assertSame(inverted, mappings.invertedView());
+        assertSame(mappings, inverted.inverted());
+        JavaType entity = JavaType.fromInternalName("net/techcable/Entity");
+        MethodData renamedRun = MethodData.fromInternalName("net/techcable/Main/run", MethodSignature.fromDescriptor("(Lnet/techcable/Entity;)V"));
+        mappings.putClass(PLAYER, entity);
+        mappings.putField(INSTANCE, "INSTANCE");
+        // The view reflects writes made after it was created
+        assertEquals(PLAYER, inverted.getNewClass(entity));
+        assertEquals(INSTANCE, inverted.getNewField(FieldData.create(JavaType.fromInternalName("net/techcable/Main"), "INSTANCE")));
+        assertEquals(RUN, inverted.getNewMethod(renamedRun));
+        assertTrue(inverted.methods().contains(renamedRun));
+        assertFalse(inverted.fields().contains(FieldData.create(JavaType.fromInternalName("net/techcable/Main"), "instance")));
+        assertEquals(mappings.snapshot().inverted(), inverted.snapshot());
+        assertEquals(mappings.snapshot().inverted(), ImmutableMappings.copyOf(copy(inverted)));
+        mappings.removeMethod(RUN);
+        // Removed members fall back to only remapping their types
+        assertEquals(
+                MethodData.fromInternalName("a/run", MethodSignature.fromDescriptor("(Lb;)V")),
+                inverted.getNewMethod(renamedRun)
+        );
+        assertFalse(inverted.methods().contains(renamedRun));
+        assertEquals(0, inverted.methods().size());
+        // The inverted copy isn't affected
+        assertEquals(MAPPINGS.inverted(), copy);
+    }
+
+    @Test
+    public void testInverseSharedName() {
+        MutableMappings mappings = copy(MAPPINGS);
+        Mappings inverted = mappings.invertedView();
+        FieldData other = FieldData.create(MAIN, "b");
+        FieldData renamed = FieldData.create(JavaType.fromInternalName("net/techcable/Main"), "instance");
+        // Both fields are briefly renamed to the same name, then one of them is fixed
+        mappings.putField(other, "instance");
+        try {
+            inverted.getNewField(renamed);
+            fail("Expected an ambiguous field");
+        } catch (IllegalStateException ignored) {}
+        mappings.putField(other, "other");
+        assertEquals(INSTANCE, inverted.getNewField(renamed));
+        assertEquals(other, inverted.getNewField(renamed.withName("other")));
+        // Removing the one which was added later still leaves the original
+        mappings.putField(other, "instance");
+        mappings.removeField(other);
+        assertEquals(INSTANCE, inverted.getNewField(renamed));
+        assertTrue(inverted.fields().contains(renamed));
+        mappings.removeField(INSTANCE);
+        assertFalse(inverted.fields().contains(renamed));
+    }
+
+    @Test
+    public void testOrderPreserved() {
+        Mappings generated = MappingsGenerator.create(42).withClassCount(10).withMemberCount(200).generate();
+        MutableMappings mappings = copy(generated);
+        List<MethodData> order = new ArrayList<>(mappings.snapshot().methods());
+        MethodData changed = order.get(order.size() / 2);
+        mappings.putMethod(changed, "renamed");
+        MethodData added = MethodData.fromInternalName("a/added", MethodSignature.fromDescriptor("()V"));
+        mappings.putMethod(added, "added2");
+        // Renamed entries stay where they were, so the written output only differs in that line
+        order.add(added);
+        assertEquals(order, new ArrayList<>(mappings.snapshot().methods()));
+        assertEquals("renamed", mappings.snapshot().getNewMethod(changed).getName());
+    }
+
+    @Test
+    public void testMatchesFullCopy() {
+        Mappings generated = MappingsGenerator.create(42).withClassCount(100).withMemberCount(2000).generate();
+        MutableMappings mappings = copy(generated);
+        mappings.snapshot();
+        int i = 0;
+        for (MethodData method : generated.methods()) {
+            if (i++ % 10 == 0) mappings.putMethod(method, method.getName() + "_" + i);
+        }
+        for (FieldData field : generated.fields()) {
+            if (i++ % 10 == 0) mappings.removeField(field);
+        }
+        assertEquals(ImmutableMappings.copyOf(copy(mappings)), mappings.snapshot());
+    }
+}
@@ -0,0 +1,145 @@
+package net.techcable.srglib;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MappingsGenerator;
+import net.techcable.srglib.mappings.PersistentMappings;
+import net.techcable.srglib.utils.PersistentHashMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PersistentMappingsTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: a net/techcable/Main",
+            "CL: b net/techcable/Player",
+            "FD: a/a net/techcable/Main/instance",
+            "MD: a/a (Lb;)V net/techcable/Main/run (Lnet/techcable/Player;)V"
+    ).snapshot();
+
+    @Test
+    public void testMapMatchesHashMap() {
+        Random random = new Random(42);
+        Map<CollidingKey, Integer> expected = new HashMap<>();
+        PersistentHashMap<CollidingKey, Integer> actual = PersistentHashMap.empty();
+        for (int i = 0; i < 20_000; i++) {
+            // Few distinct hashes, so plenty of keys end up in collision nodes
+            CollidingKey key = new CollidingKey(random.nextInt(2000), random.nextInt(64));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual = actual.without(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.with(key, i);
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        for (CollidingKey key : expected.keySet()) {
+            actual = actual.without(key);
+        }
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void testMapVersionsIndependent() {
+        PersistentHashMap<Integer, String> original = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            original = original.with(i, Integer.toString(i));
+        }
+        PersistentHashMap<Integer, String> modified = original.with(5, "five").without(6);
+        // Changing the new version leaves the old one untouched
+        assertEquals("5", original.get(5));
+        assertTrue(original.containsKey(6));
+        assertEquals("five", modified.get(5));
+        assertFalse(modified.containsKey(6));
+        assertEquals(999, modified.size());
+        // Writes which don't change anything return the same version
+        assertSame(original, original.with(5, "5"));
+        assertSame(original, original.without(1000));
+    }
+
+    @Test
+    public void testCopyOf() {
+        PersistentMappings persistent = PersistentMappings.copyOf(MAPPINGS);
+        assertEquals(MAPPINGS, persistent);
+        assertEquals(MAPPINGS, persistent.snapshot());
+        SrgLib.checkConsistency(persistent.snapshot());
+        assertSame(persistent, PersistentMappings.copyOf(persistent));
+    }
+
+    @Test
+    public void testVersions() {
+        JavaType main = JavaType.fromInternalName("a");
+        JavaType player = JavaType.fromInternalName("b");
+        MethodData run = MethodData.fromInternalName("a/a", MethodSignature.fromDescriptor("(Lb;)V"));
+        FieldData instance = FieldData.create(main, "a");
+        PersistentMappings original = PersistentMappings.copyOf(MAPPINGS);
+        PersistentMappings renamed = original.with(player, JavaType.fromInternalName("net/techcable/Entity"))
+                .with(instance, "INSTANCE")
+                .without(run);
+        // The previous version is unchanged
+        assertEquals(MAPPINGS, original);
+        assertEquals("net.techcable.Entity", renamed.getNewClass(player).getName());
+        assertEquals("INSTANCE", renamed.getNewField(instance).getName());
+        assertFalse(renamed.methods().contains(run));
+        // Unmapped methods still have their signatures remapped
+        assertEquals(
+                MethodData.fromInternalName("net/techcable/Main/a", MethodSignature.fromDescriptor("(Lnet/techcable/Entity;)V")),
+                renamed.getNewMethod(run)
+        );
+        SrgLib.checkConsistency(renamed.snapshot());
+        // Renaming something to itself removes it
+        assertEquals(original.without(main), original.with(main, main));
+        assertSame(original, original.with(instance, "instance"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateClass() {
+        PersistentMappings.copyOf(MAPPINGS).with(JavaType.fromInternalName("c"), JavaType.fromInternalName("net/techcable/Main"));
+    }
+
+    @Test
+    public void testRenameClassAgain() {
+        JavaType main = JavaType.fromInternalName("a");
+        JavaType renamed = JavaType.fromInternalName("net/techcable/Main");
+        PersistentMappings mappings = PersistentMappings.copyOf(MAPPINGS).with(main, JavaType.fromInternalName("net/techcable/Other"));
+        // The old name is free again
+        mappings = mappings.with(JavaType.fromInternalName("c"), renamed);
+        assertEquals(renamed, mappings.getNewClass("c"));
+    }
+
+    @Test
+    public void testGenerated() {
+        Mappings generated = MappingsGenerator.create(42).withClassCount(100).withMemberCount(2000).generate();
+        PersistentMappings persistent = PersistentMappings.copyOf(generated);
+        assertEquals(generated, persistent);
+        assertEquals(generated.snapshot().hashCode(), persistent.snapshot().hashCode());
+    }
+
+    private static final class CollidingKey {
+        private final int id;
+        private final int hash;
+
+        /* package */ CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CollidingKey && ((CollidingKey) obj).id == id && ((CollidingKey) obj).hash == hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
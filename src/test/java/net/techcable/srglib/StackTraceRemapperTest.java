@@ -0,0 +1,65 @@
+package net.techcable.srglib;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.text.StackTraceRemapper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StackTraceRemapperTest {
+    // The mappings used to obfuscate the program
+    private static final Mappings OBFUSCATION = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: net/techcable/Main a",
+            "CL: net/techcable/Main$Task a$b",
+            "CL: net/techcable/TaskException c",
+            "MD: net/techcable/Main/run ()V a/a ()V",
+            "MD: net/techcable/Main/start (I)V a/a (I)V",
+            "MD: net/techcable/Main$Task/execute ()V a$b/a ()V"
+    );
+    private static final StackTraceRemapper REMAPPER = StackTraceRemapper.deobfuscating(OBFUSCATION);
+
+    @Test
+    public void testRemapLine() {
+        assertEquals("\tat net.techcable.Main$Task.execute(Main.java:12)", REMAPPER.remapLine("\tat a$b.a(a.java:12)"));
+        assertEquals("\tat app//net.techcable.Main$1.run(SourceFile)", REMAPPER.remapLine("\tat app//a$1.run(SourceFile)"));
+        // Overloads which were renamed differently are ambiguous without descriptors
+        assertEquals("    at net.techcable.Main.run|start(Unknown Source) ~[app.jar:?]", REMAPPER.remapLine("    at a.a(Unknown Source) ~[app.jar:?]"));
+        assertEquals("\tat java.base/java.lang.Thread.run(Thread.java:829)", REMAPPER.remapLine("\tat java.base/java.lang.Thread.run(Thread.java:829)"));
+        assertEquals("Caused by: net.techcable.TaskException: Failed to run net.techcable.Main$Task", REMAPPER.remapLine("Caused by: c: Failed to run a$b"));
+    }
+
+    @Test
+    public void testRemapStream() throws IOException {
+        String log = "Exception in thread \"main\" c: Failed\r\n\tat a.a(a.java:5)\r\n\tat a$b.a(a.java:12)\n\t... 3 more";
+        StringWriter out = new StringWriter();
+        REMAPPER.remap(new StringReader(log), out);
+        assertEquals(
+                "Exception in thread \"main\" net.techcable.TaskException: Failed\r\n"
+                        + "\tat net.techcable.Main.run|start(Main.java:5)\r\n"
+                        + "\tat net.techcable.Main$Task.execute(Main.java:12)\n"
+                        + "\t... 3 more",
+                out.toString()
+        );
+    }
+
+    @Test
+    public void testRemapLongLine() throws IOException {
+        // A line past the limit is copied through entirely, even the part after the limit
+        StringBuilder longLine = new StringBuilder("Caused by: c: ");
+        while (longLine.length() < 1024 * 1024 + 100_000) {
+            longLine.append("\tat a.a(a.java:5) ");
+        }
+        longLine.append('\n');
+        String log = "\tat a$b.a(a.java:12)\n" + longLine + "\tat a$b.a(a.java:12)";
+        StringWriter out = new StringWriter();
+        REMAPPER.remap(new StringReader(log), out);
+        String expectedLine = "\tat net.techcable.Main$Task.execute(Main.java:12)";
+        assertEquals(expectedLine + "\n" + longLine + expectedLine, out.toString());
+    }
+}
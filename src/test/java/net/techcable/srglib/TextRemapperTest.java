@@ -0,0 +1,40 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.text.TextRemapper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextRemapperTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: a net/techcable/Main",
+            "CL: org/example/b org/example/Counter",
+            "CL: org/example/b$c org/example/Counter$Entry",
+            "CL: org/example/bc org/example/Other"
+    );
+    private static final TextRemapper REMAPPER = TextRemapper.create(MAPPINGS);
+
+    @Test
+    public void testRemap() {
+        assertEquals("main: net.techcable.Main", REMAPPER.remap("main: a"));
+        assertEquals("org.example.Counter, org.example.Other", REMAPPER.remap("org.example.b, org.example.bc"));
+        assertEquals("org/example/Counter.increment()I", REMAPPER.remap("org/example/b.increment()I"));
+        // The longest name wins, but unmapped inner classes follow their outer class
+        assertEquals("org.example.Counter$Entry org.example.Counter$1", REMAPPER.remap("org.example.b$c org.example.b$1"));
+        assertEquals("(ILnet/techcable/Main;[Lorg/example/Counter;)V", REMAPPER.remap("(ILa;[Lorg/example/b;)V"));
+        assertEquals("Lnet/techcable/Main; (Z[[JLnet/techcable/Main;)V", REMAPPER.remap("La; (Z[[JLa;)V"));
+    }
+
+    @Test
+    public void testBoundaries() {
+        // An L in the middle of a name doesn't start a descriptor
+        String text = "ab com.org.example.b org.example.b/d org.example.bcd xorg/example/b fooLa; xILa; org/La;";
+        assertSame(text, REMAPPER.remap(text));
+        StringBuilder output = new StringBuilder("> ");
+        REMAPPER.remap(text, output);
+        assertEquals("> " + text, output.toString());
+    }
+}